@@ -0,0 +1,149 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.service.IStationService;
+import com.iheartmedia.utils.ContinuationTokens;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of the station service against a file based H2 database, with and without the
+ * settings of the production profile.
+ *
+ * <p>As many threads as the asynchronous executor has by default run a mix of batched lookups,
+ * keyset pages, delta syncs, updates, and creations followed by deletions, so that the threads
+ * contend for the connection pool the way the executor's threads do.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class DataSourceTuningBenchmark {
+
+  @Param({"default", "production"})
+  private String profile;
+
+  @Param({"1000"})
+  private int stations;
+
+  private Path directory;
+
+  private ConfigurableApplicationContext context;
+
+  private IStationService stationService;
+
+  private IStationRepository stationRepository;
+
+  private final AtomicInteger nextStation = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("stations");
+    String path = this.directory.resolve("stations").toString();
+    SpringApplicationBuilder builder = new SpringApplicationBuilder(IHeartMedia.class)
+        .web(WebApplicationType.NONE);
+    String dataSource;
+    if ("production".equals(this.profile)) {
+      builder.profiles("production");
+      dataSource = "--iheartmedia.datasource.path=" + path;
+    } else {
+      dataSource = "--spring.datasource.url=jdbc:h2:file:" + path + ";DB_CLOSE_ON_EXIT=FALSE";
+    }
+    // Passed as arguments rather than as default properties, which the profile would override.
+    this.context = builder.run(
+        dataSource,
+        "--spring.jpa.show-sql=false",
+        "--logging.level.com.iheartmedia=WARN",
+        "--logging.level.org.springframework=WARN",
+        "--logging.level.org.hibernate=WARN");
+    this.stationService = this.context.getBean(IStationService.class);
+    this.stationRepository = this.context.getBean(IStationRepository.class);
+    List<Station> batch = new ArrayList<>(this.stations);
+    for (int i = 0; i < this.stations; i++) {
+      batch.add(Stations.station(i));
+    }
+    this.stationService.createStations(batch);
+    this.nextStation.set(this.stations);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.context.close();
+    FileSystemUtils.deleteRecursively(this.directory);
+  }
+
+  private String randomStationId() {
+    return Stations.station(ThreadLocalRandom.current().nextInt(this.stations)).getStationId();
+  }
+
+  @Benchmark
+  public Object mixedWorkload() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    switch (random.nextInt(10)) {
+      case 0:
+      case 1:
+      case 2: {
+        int keys = 1 + random.nextInt(20);
+        List<String> stationIds = new ArrayList<>(keys);
+        for (int i = 0; i < keys; i++) {
+          stationIds.add(randomStationId());
+        }
+        return this.stationRepository.findByStationIdIn(stationIds);
+      }
+      case 3:
+      case 4:
+        return this.stationService.retrieveStationPage(
+            ContinuationTokens.encode(random.nextInt(this.stations)), 20, Locale.US);
+      case 5:
+        return this.stationService.retrieveStationChanges(
+            String.valueOf(System.currentTimeMillis() - 60000L), 20, Locale.US);
+      case 6:
+      case 7: {
+        StationMixin mixin = new UpdateStationMixin();
+        mixin.setHdEnabled(random.nextBoolean());
+        return this.stationService.updateStation(randomStationId(), mixin, Locale.US);
+      }
+      default: {
+        Station station = Stations.station(this.nextStation.getAndIncrement());
+        this.stationService.createStation(station);
+        return this.stationService.deleteStationByStationId(
+            station.getStationId(), null, Locale.US);
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.iheartmedia.model.Station;
+import com.iheartmedia.service.MappedStationSnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lookups and pages served by a replica from a memory mapped snapshot of 500k
+ * stations, and the time it takes to map the snapshot.
+ *
+ * <p>Run with {@code -prof gc} to report the bytes allocated by each lookup, and with
+ * {@code -prof com.iheartmedia.benchmark.SizeProfiler} to report the size of the snapshot as the
+ * {@code bytes} secondary result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MappedStationSnapshotBenchmark {
+
+  @Param({"500000"})
+  private int stations;
+
+  private Path file;
+
+  private MappedStationSnapshot snapshot;
+
+  private String[] stationIds;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    MappedStationSnapshot.Builder builder = new MappedStationSnapshot.Builder();
+    this.stationIds = new String[this.stations];
+    for (int i = 0; i < this.stations; i++) {
+      Station station = Stations.station(i);
+      this.stationIds[i] = station.getStationId();
+      station.setId((long) i + 1);
+      station.setVersion(0);
+      station.setHdEnabled(i % 10 == 0);
+      builder.add(station);
+    }
+    this.file = Files.createTempFile("stations", ".snapshot");
+    builder.writeTo(this.file);
+    this.snapshot = MappedStationSnapshot.open(this.file);
+    SizeProfiler.record("bytes", Files.size(this.file));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.file);
+  }
+
+  @Benchmark
+  public Station findByStationId() {
+    return this.snapshot.findByStationId(
+        this.stationIds[ThreadLocalRandom.current().nextInt(this.stations)]);
+  }
+
+  @Benchmark
+  public Station findByStationId_notFound() {
+    return this.snapshot.findByStationId("KNONE-FM");
+  }
+
+  @Benchmark
+  public List<Station> pageHdByStationId() {
+    return this.snapshot.pageHdByStationId(null, 100);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Measurement(iterations = 20)
+  public MappedStationSnapshot open() throws IOException {
+    return MappedStationSnapshot.open(this.file);
+  }
+}
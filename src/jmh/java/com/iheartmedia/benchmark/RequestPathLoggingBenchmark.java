@@ -0,0 +1,121 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.service.IStationService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks the logging done on the request path of creating, updating and deleting a station,
+ * by driving the station service with the logging configuration of each profile.
+ *
+ * <p>The application is started with {@code logback-spring.xml} and the properties of the profile,
+ * except for the data source, which is an in-memory database, and the server port, which is
+ * random. With the default profile, the request path logs at DEBUG to the console synchronously,
+ * whereas with the production profile the level is INFO and the console is written to by an
+ * asynchronous appender. The console output is formatted with the console pattern, and then
+ * discarded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RequestPathLoggingBenchmark {
+
+  @Param({"default", "production"})
+  private String profile;
+
+  @Param({"1000"})
+  private int stations;
+
+  private PrintStream out;
+
+  private ConfigurableApplicationContext context;
+
+  private IStationService stationService;
+
+  private final AtomicInteger created = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // The console appender writes to whichever stream is the standard output at the time.
+    this.out = System.out;
+    System.setOut(new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b) {}
+
+      @Override
+      public void write(byte[] b, int off, int len) {}
+    }));
+    // The overrides are passed as arguments, so that they take precedence over the profile.
+    this.context = new SpringApplicationBuilder(IHeartMedia.class)
+        .web(WebApplicationType.SERVLET)
+        .profiles(this.profile)
+        .run(
+            "--server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_ON_EXIT=FALSE",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.org.springframework=WARN",
+            "--logging.level.org.hibernate=WARN");
+    this.stationService = this.context.getBean(IStationService.class);
+    List<Station> batch = new ArrayList<>(this.stations);
+    for (int i = 0; i < this.stations; i++) {
+      batch.add(Stations.station(i));
+    }
+    this.stationService.createStations(batch);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.context.close();
+    System.setOut(this.out);
+  }
+
+  @Benchmark
+  public StationMixin createAndDeleteStation() {
+    Station station = Stations.station(this.stations + this.created.getAndIncrement());
+    this.stationService.createStation(station);
+    return this.stationService.deleteStationByStationId(station.getStationId(), Locale.US);
+  }
+
+  @Benchmark
+  public StationMixin updateStation() {
+    StationMixin mixin = new UpdateStationMixin();
+    mixin.setHdEnabled(ThreadLocalRandom.current().nextBoolean());
+    return this.stationService.updateStation(
+        Stations.station(ThreadLocalRandom.current().nextInt(this.stations)).getStationId(),
+        mixin, Locale.US);
+  }
+}
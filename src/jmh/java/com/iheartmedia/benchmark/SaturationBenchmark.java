@@ -0,0 +1,147 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.service.IStationService;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the servlet container's threads while the database is slow.
+ *
+ * <p>Every keyset page query is delayed by {@link SlowDatabase}, and 32 clients keep requesting
+ * pages of stations from a servlet container with 8 threads. Meanwhile a single client requests
+ * the HD stations, which are served from memory, so its latency shows how long a request waits for
+ * a servlet container thread.
+ *
+ * <p>With {@code async=false} the page requests hold the servlet container's threads for the
+ * duration of the queries, and the probe queues behind them. With {@code async=true} the queries
+ * run on the station executor, the servlet container's threads stay free, and the page requests
+ * beyond the endpoint's concurrency limit are rejected with 503 responses instead of queueing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaturationBenchmark {
+
+  private static final long QUERY_DELAY_MILLIS = 20L;
+
+  @Param({"false", "true"})
+  private boolean async;
+
+  private ConfigurableApplicationContext context;
+
+  private String pageUrl;
+
+  private String hdUrl;
+
+  /**
+   * Delays the keyset page query to simulate a slow database.
+   */
+  @Aspect
+  @Configuration
+  public static class SlowDatabase {
+
+    @Around("execution(* com.iheartmedia.repository.IStationRepository"
+        + ".findByIdGreaterThanOrderByIdAsc(..))")
+    public Object delay(ProceedingJoinPoint joinPoint) throws Throwable {
+      Thread.sleep(QUERY_DELAY_MILLIS);
+      return joinPoint.proceed();
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.context = new SpringApplicationBuilder(IHeartMedia.class, SlowDatabase.class)
+        .properties(
+            "server.port=0",
+            "server.tomcat.max-threads=8",
+            "spring.datasource.url=jdbc:h2:mem:saturation;DB_CLOSE_ON_EXIT=FALSE",
+            "spring.jpa.show-sql=false",
+            "logging.level.com.iheartmedia=WARN",
+            "logging.level.org.springframework=WARN",
+            "logging.level.org.hibernate=WARN",
+            "iheartmedia.async.enabled=" + this.async,
+            "iheartmedia.async.pool-size=32",
+            "iheartmedia.async.endpoints.retrieveStationPage.max-concurrency=32")
+        .run();
+    List<Station> stations = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Station station = Stations.station(i);
+      station.setHdEnabled(i % 2 == 0);
+      stations.add(station);
+    }
+    this.context.getBean(IStationService.class).createStations(stations);
+    String baseUrl = "http://localhost:"
+        + this.context.getEnvironment().getProperty("local.server.port") + "/iheartmedia";
+    this.pageUrl = baseUrl + "/stations/page?limit=10";
+    this.hdUrl = baseUrl + "/stations/hd?limit=10";
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.context.close();
+  }
+
+  private static int get(String url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    int status = connection.getResponseCode();
+    // The response is drained so that the connection is kept alive.
+    try (InputStream body = status < 400 ? connection.getInputStream()
+        : connection.getErrorStream()) {
+      if (body != null) {
+        byte[] buffer = new byte[4096];
+        while (body.read(buffer) != -1) {
+          // Discarded.
+        }
+      }
+    }
+    return status;
+  }
+
+  @Benchmark
+  @Group("saturated")
+  @GroupThreads(32)
+  public int pages() throws IOException {
+    return get(this.pageUrl);
+  }
+
+  @Benchmark
+  @Group("saturated")
+  @GroupThreads(1)
+  public int hdStations() throws IOException {
+    return get(this.hdUrl);
+  }
+}
@@ -0,0 +1,58 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports the sizes recorded by the benchmarks as secondary results, e.g. the size of the encoded
+ * stations, which JMH would otherwise not report.
+ *
+ * <p>Run with {@code -prof com.iheartmedia.benchmark.SizeProfiler}. Unlike the counters of events
+ * of {@code @AuxCounters}, which are summed across iterations and forks, the sizes are averaged.
+ */
+public class SizeProfiler implements InternalProfiler {
+
+  private static final Map<String, Long> SIZES = new ConcurrentHashMap<>();
+
+  /**
+   * Records the size to be reported after each iteration of the running benchmark.
+   *
+   * @param name name of the secondary result
+   * @param bytes size in bytes
+   */
+  static void record(String name, long bytes) {
+    SIZES.put(name, bytes);
+  }
+
+  @Override
+  public String getDescription() {
+    return "Sizes recorded by the benchmark";
+  }
+
+  @Override
+  public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+  }
+
+  @Override
+  public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+      IterationParams iterationParams, IterationResult result) {
+    List<Result> results = new ArrayList<>();
+    for (Map.Entry<String, Long> size : SIZES.entrySet()) {
+      results.add(
+          new ScalarResult(size.getKey(), size.getValue(), "bytes", AggregationPolicy.AVG));
+    }
+    return results;
+  }
+}
@@ -0,0 +1,131 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.utils.StationConstraints;
+import com.iheartmedia.utils.StationMixinValidator;
+import com.iheartmedia.utils.StationValidator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+
+/**
+ * Benchmarks the construction and validation of mixin objects, and the validation of stations.
+ *
+ * <p>The fast path benchmarks validate stations the way the station endpoints do, i.e. with
+ * {@link StationValidator}, against which {@link #validateStation()} measures bean validation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class StationMixinBenchmark {
+
+  private Station station;
+
+  private Station invalidStation;
+
+  private StationMixin validMixin;
+
+  private StationMixin invalidMixin;
+
+  private StationMixinValidator mixinValidator;
+
+  private LocalValidatorFactoryBean validator;
+
+  private StationValidator stationValidator;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.station = Stations.station(1);
+    this.invalidStation = Stations.station(1);
+    this.invalidStation.setStationId("AXYZ-FM");
+    this.invalidStation.setCallSign("AXYZ1");
+
+    this.validMixin = new UpdateStationMixin();
+    this.validMixin.setCallSign("WHTZ");
+    this.invalidMixin = new UpdateStationMixin();
+    this.invalidMixin.setCallSign("WHTZ1");
+
+    this.mixinValidator = new StationMixinValidator();
+    // Same as the validator configured by the application.
+    this.validator = new LocalValidatorFactoryBean();
+    this.validator.afterPropertiesSet();
+    this.stationValidator = new StationValidator(this.validator);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.validator.close();
+  }
+
+  @Benchmark
+  public StationMixin buildMixin() {
+    return new UpdateStationMixin().buildMixin(this.station);
+  }
+
+  @Benchmark
+  public Errors validateMixin() {
+    Errors errors = new BeanPropertyBindingResult(this.validMixin, "mixin");
+    this.mixinValidator.validate(this.validMixin, errors);
+    return errors;
+  }
+
+  @Benchmark
+  public Errors validateInvalidMixin() {
+    Errors errors = new BeanPropertyBindingResult(this.invalidMixin, "mixin");
+    this.mixinValidator.validate(this.invalidMixin, errors);
+    return errors;
+  }
+
+  @Benchmark
+  public Errors validateStationFastPath() {
+    Errors errors = new BeanPropertyBindingResult(this.station, "station");
+    this.stationValidator.validate(this.station, errors);
+    return errors;
+  }
+
+  @Benchmark
+  public Errors validateInvalidStationFastPath() {
+    Errors errors = new BeanPropertyBindingResult(this.invalidStation, "station");
+    this.stationValidator.validate(this.invalidStation, errors);
+    return errors;
+  }
+
+  @Benchmark
+  public boolean checkStationConstraints() {
+    return StationConstraints.isValid(this.station);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<Station>> validateStation() {
+    return this.validator.validate(this.station);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<Station>> validateInvalidStation() {
+    return this.validator.validate(this.invalidStation);
+  }
+}
@@ -0,0 +1,79 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.iheartmedia.model.Station;
+import com.iheartmedia.service.StationMutationEvent;
+import com.iheartmedia.service.StationSearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks the search of the stations as the user types, against an index of 500k stations.
+ *
+ * <p>The latency is sampled, so that the p99 of each query is reported. The queries cover a
+ * single character prefix matched by most stations, a longer prefix of a call sign, a word of the
+ * names, a word with two typos and a query that matches nothing, which has to walk the dictionary
+ * in full before giving up.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class StationSearchBenchmark {
+
+  private static final String[] WORDS = {"Kiss", "Country", "Classic", "Rock", "News", "Talk",
+      "Jazz", "Public", "Radio", "Hits", "Sports", "Gospel", "Oldies", "Alternative", "Urban",
+      "Christian", "Latino", "Mix", "Power", "Star"};
+
+  @Param({"500000"})
+  private int stations;
+
+  @Param({"k", "wkis", "radio", "clasik", "zqxj"})
+  private String query;
+
+  private StationSearchIndex searchIndex;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.searchIndex =
+        new StationSearchIndex(null, null, 3, 6, new SimpleMeterRegistry());
+    Random random = new Random(42L);
+    for (int i = 0; i < this.stations; i++) {
+      Station station = new Station();
+      station.setStationId("W" + i + "-FM");
+      station.setStationName(WORDS[random.nextInt(WORDS.length)] + " "
+          + WORDS[random.nextInt(WORDS.length)] + " " + (88 + random.nextInt(20)) + "."
+          + random.nextInt(10));
+      StringBuilder callSign = new StringBuilder(random.nextBoolean() ? "K" : "W");
+      for (int j = 0; j < 3; j++) {
+        callSign.append((char) ('A' + random.nextInt(26)));
+      }
+      station.setCallSign(callSign.toString());
+      this.searchIndex.onStationMutation(StationMutationEvent.created(station));
+    }
+  }
+
+  @Benchmark
+  public List<StationSearchIndex.Hit> search() {
+    return this.searchIndex.search(this.query, null, 21);
+  }
+}
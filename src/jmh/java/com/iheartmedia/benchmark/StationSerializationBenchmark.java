@@ -0,0 +1,83 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.ErrorCodes;
+import com.iheartmedia.model.Station;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the JSON serialisation of stations and mixin objects, with and without errors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class StationSerializationBenchmark {
+
+  private ObjectWriter stationWriter;
+
+  private ObjectWriter mixinWriter;
+
+  private Station station;
+
+  private StationMixin mixin;
+
+  private StationMixin mixinWithErrors;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // Same as the object mapper configured by the application.
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+    builder.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    this.stationWriter = builder.build().writerFor(Station.class);
+    this.mixinWriter = builder.build().writerFor(UpdateStationMixin.class);
+
+    this.station = Stations.station(1);
+    this.station.setId(1L);
+    this.station.setTimestamps();
+
+    this.mixin = new UpdateStationMixin().buildMixin(this.station);
+    this.mixin.setTimestamp(LocalDateTime.now());
+
+    this.mixinWithErrors = new UpdateStationMixin();
+    this.mixinWithErrors.addError(ErrorCodes.BAD_REQUEST, "Call sign must be 4 characters long.");
+    this.mixinWithErrors.addError(ErrorCodes.BAD_REQUEST, "Station id must start with K or W.");
+  }
+
+  @Benchmark
+  public byte[] serializeStation() throws JsonProcessingException {
+    return this.stationWriter.writeValueAsBytes(this.station);
+  }
+
+  @Benchmark
+  public byte[] serializeMixin() throws JsonProcessingException {
+    return this.mixinWriter.writeValueAsBytes(this.mixin);
+  }
+
+  @Benchmark
+  public byte[] serializeMixinWithErrors() throws JsonProcessingException {
+    return this.mixinWriter.writeValueAsBytes(this.mixinWithErrors);
+  }
+}
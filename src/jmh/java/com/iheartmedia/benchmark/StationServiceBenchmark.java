@@ -0,0 +1,124 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
+import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.service.IStationService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the station service end to end against an embedded H2 database.
+ *
+ * <p>The repository lookups bypass the station cache, and so measure the cost of a round trip to
+ * the database. The station updates are measured both with and without the single statement
+ * update of cached stations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StationServiceBenchmark {
+
+  @Param({"1000"})
+  private int stations;
+
+  @Param({"true", "false"})
+  private boolean singleStatementUpdates;
+
+  private ConfigurableApplicationContext context;
+
+  private IStationService stationService;
+
+  private IStationRepository stationRepository;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.context = new SpringApplicationBuilder(IHeartMedia.class)
+        .web(WebApplicationType.NONE)
+        .properties(
+            "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_ON_EXIT=FALSE",
+            "spring.jpa.show-sql=false",
+            "logging.level.com.iheartmedia=WARN",
+            "logging.level.org.springframework=WARN",
+            "logging.level.org.hibernate=WARN",
+            "iheartmedia.stations.update.single-statement=" + this.singleStatementUpdates)
+        .run();
+    this.stationService = this.context.getBean(IStationService.class);
+    this.stationRepository = this.context.getBean(IStationRepository.class);
+    List<Station> batch = new ArrayList<>(this.stations);
+    for (int i = 0; i < this.stations; i++) {
+      batch.add(Stations.station(i));
+    }
+    this.stationService.createStations(batch);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.context.close();
+  }
+
+  private String randomStationId() {
+    return Stations.station(ThreadLocalRandom.current().nextInt(this.stations)).getStationId();
+  }
+
+  @Benchmark
+  public StationMixin retrieveStationByStationId() {
+    return this.stationService.retrieveStationByStationId(randomStationId(), Locale.US);
+  }
+
+  @Benchmark
+  public Station findByStationId() {
+    return this.stationRepository.findByStationId(randomStationId());
+  }
+
+  @Benchmark
+  public List<Station> retrieveHdEnabledStations() {
+    return this.stationService.retrieveHdEnabledStations();
+  }
+
+  @Benchmark
+  public StationPage retrieveStationPage() {
+    return this.stationService.retrieveStationPage(null, null, Locale.US);
+  }
+
+  @Benchmark
+  public void streamAllStations(Blackhole blackhole) {
+    this.stationService.streamAllStations(blackhole::consume);
+  }
+
+  @Benchmark
+  public StationMixin updateStation() {
+    StationMixin mixin = new UpdateStationMixin();
+    mixin.setHdEnabled(ThreadLocalRandom.current().nextBoolean());
+    return this.stationService.updateStation(randomStationId(), mixin, Locale.US);
+  }
+}
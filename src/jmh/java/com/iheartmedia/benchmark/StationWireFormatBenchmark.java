@@ -0,0 +1,119 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.protobuf.CodedOutputStream;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.proto.StationProtos;
+import com.iheartmedia.utils.StationProtobufHttpMessageConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the encoding and decoding of a list of 1000 stations as JSON, Smile, CBOR and
+ * Protobuf.
+ *
+ * <p>Run with {@code -prof com.iheartmedia.benchmark.SizeProfiler} to report the size of the
+ * encoded list as the {@code bytes} secondary result. Protobuf is encoded the same way as the
+ * catalogue streamed by {@code GET /stations}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class StationWireFormatBenchmark {
+
+  @Param({"json", "smile", "cbor", "protobuf"})
+  private String format;
+
+  private ObjectWriter writer;
+
+  private ObjectReader reader;
+
+  private List<Station> stations;
+
+  private byte[] encodedStations;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    // Same as the object mappers configured by the application.
+    Jackson2ObjectMapperBuilder builder;
+    switch (this.format) {
+      case "smile":
+        builder = Jackson2ObjectMapperBuilder.smile();
+        break;
+      case "cbor":
+        builder = Jackson2ObjectMapperBuilder.cbor();
+        break;
+      default:
+        builder = Jackson2ObjectMapperBuilder.json();
+    }
+    builder.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    ObjectMapper objectMapper = builder.build();
+    TypeReference<List<Station>> type = new TypeReference<List<Station>>() {};
+    this.writer = objectMapper.writerFor(type);
+    this.reader = objectMapper.readerFor(type);
+
+    this.stations = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      this.stations.add(Stations.station(i));
+    }
+    this.encodedStations = encodeStations();
+    SizeProfiler.record("bytes", this.encodedStations.length);
+  }
+
+  private byte[] encodeStations() throws IOException {
+    if (!"protobuf".equals(this.format)) {
+      return this.writer.writeValueAsBytes(this.stations);
+    }
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    CodedOutputStream output = CodedOutputStream.newInstance(outputStream);
+    for (Station station : this.stations) {
+      StationProtobufHttpMessageConverter.writeStation(station, output);
+    }
+    output.flush();
+    return outputStream.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return encodeStations();
+  }
+
+  @Benchmark
+  public List<Station> decode() throws IOException {
+    if (!"protobuf".equals(this.format)) {
+      return this.reader.readValue(this.encodedStations);
+    }
+    StationProtos.StationList message = StationProtos.StationList.parseFrom(this.encodedStations);
+    List<Station> stations = new ArrayList<>(message.getStationsCount());
+    for (StationProtos.Station station : message.getStationsList()) {
+      stations.add(StationProtobufHttpMessageConverter.toStation(station));
+    }
+    return stations;
+  }
+}
@@ -0,0 +1,27 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.benchmark;
+
+import com.iheartmedia.model.Station;
+
+/**
+ * Builds the stations used by the benchmarks.
+ */
+final class Stations {
+
+  private Stations() {}
+
+  /**
+   * Returns a valid station whose station id, name and call sign are derived from the index.
+   *
+   * @param index index of the station
+   * @return station
+   */
+  static Station station(int index) {
+    Station station = new Station();
+    station.setStationId("W" + index + "-FM");
+    station.setStationName("Station " + index);
+    station.setCallSign(String.format("W%03d", index % 1000));
+    station.setHdEnabled(index % 2 == 0);
+    return station;
+  }
+}
@@ -4,13 +4,13 @@ package com.iheartmedia;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Represents the entry point to the com.iheartmedia.IHeartMedia web application.
  */
 @SpringBootApplication
-@EnableJpaRepositories(considerNestedRepositories = true)
+@EnableScheduling
 public class IHeartMedia {
 
     public static void main(String[] args) {
@@ -1,36 +1,88 @@
 // Copyright 2018 Kartik Krishnanand. All Rights Reserved.
 package com.iheartmedia.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.protobuf.CodedOutputStream;
 import com.iheartmedia.dto.CreateStationMixin;
+import com.iheartmedia.dto.StationCatalogVersion;
+import com.iheartmedia.dto.StationChangePage;
+import com.iheartmedia.dto.StationDeletion;
+import com.iheartmedia.dto.StationDeletionRequest;
+import com.iheartmedia.dto.StationDelta;
+import com.iheartmedia.dto.StationLookup;
+import com.iheartmedia.dto.StationLookupRequest;
 import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
 import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.ErrorCodes;
 import com.iheartmedia.model.Station;
 import com.iheartmedia.service.IStationService;
+import com.iheartmedia.service.StationCatalogSnapshot;
+import com.iheartmedia.service.StationChangeFeed;
+import com.iheartmedia.service.StationImporter;
+import com.iheartmedia.service.StationResponseCache;
+import com.iheartmedia.utils.AsyncStationExecutor;
+import com.iheartmedia.utils.BinaryFormatsConfig;
+import com.iheartmedia.utils.EntityTags;
+import com.iheartmedia.utils.OutcomeMetricsAdvice;
+import com.iheartmedia.utils.Outcomes;
 import com.iheartmedia.utils.StationMixinValidator;
+import com.iheartmedia.utils.StationProtobufHttpMessageConverter;
+import com.iheartmedia.utils.StationValidator;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.BindingResult;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.validation.Errors;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationStrategy;
+import org.springframework.web.accept.HeaderContentNegotiationStrategy;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.RequestContextUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpServletRequest;
-import javax.validation.Valid;
+import javax.servlet.http.HttpServletResponse;
 
 /**
  * Instance of this class encapsulates all the nahndler methods.
+ *
+ * <p>The handlers that block on the database hand the service calls over to the
+ * {@link AsyncStationExecutor}, so that the servlet container's threads are not held up for the
+ * duration of the calls. The handlers that stream, or that are served from memory, are handled on
+ * the servlet container's threads.
  */
 @RestController
 @RequestMapping("/iheartmedia")
@@ -41,35 +93,247 @@ public class StationController {
   @Autowired
   private StationMixinValidator stationMixinValidator;
 
-  private static final Log LOG = LogFactory.getLog(StationController.class);
+  @Autowired
+  private StationValidator stationValidator;
+
+  @Autowired
+  private StationImporter stationImporter;
+
+  @Autowired
+  private AsyncStationExecutor asyncExecutor;
+
+  @Autowired
+  private StationChangeFeed changeFeed;
+
+  @Autowired
+  private StationResponseCache responseCache;
+
+  @Autowired
+  private StationCatalogSnapshot catalogSnapshot;
+
+  @Autowired
+  private OutcomeMetricsAdvice outcomeMetrics;
+
+  private static final Logger LOG = LoggerFactory.getLogger(StationController.class);
+
+  // Request attributes by which Tomcat sends a file without copying it through the heap.
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private static final ContentNegotiationStrategy CONTENT_NEGOTIATION =
+      new HeaderContentNegotiationStrategy();
+
+  // Media types of the formats in which the stations are exchanged, JSON first.
+  private static final List<MediaType> FORMATS = Arrays.asList(MediaType.APPLICATION_JSON,
+      BinaryFormatsConfig.SMILE, BinaryFormatsConfig.CBOR, BinaryFormatsConfig.PROTOBUF);
+
+  // Writers of the stations by the media type of each Jackson format.
+  private final Map<MediaType, ObjectWriter> stationWriters = new LinkedHashMap<>();
 
   @Autowired
-  public StationController(IStationService stationService) {
+  public StationController(IStationService stationService, ObjectMapper objectMapper,
+      MappingJackson2SmileHttpMessageConverter smileConverter,
+      MappingJackson2CborHttpMessageConverter cborConverter) {
     this.stationService = stationService;
+    this.stationWriters.put(MediaType.APPLICATION_JSON, stationWriter(objectMapper));
+    this.stationWriters.put(
+        BinaryFormatsConfig.SMILE, stationWriter(smileConverter.getObjectMapper()));
+    this.stationWriters.put(
+        BinaryFormatsConfig.CBOR, stationWriter(cborConverter.getObjectMapper()));
+  }
+
+  private static ObjectWriter stationWriter(ObjectMapper objectMapper) {
+    return objectMapper.writerFor(Station.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  /**
+   * Marks every response as varying by the format and the encoding that the client accepts,
+   * including the responses that are written without a message converter, and the 304 responses.
+   *
+   * @param response response
+   */
+  @ModelAttribute
+  public void varyByFormat(HttpServletResponse response) {
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
   }
 
   /**
    * Returns all the stations.
-   * @return list of stations
+   *
+   * <p>The stations are streamed from the repository, and serialised to the response one at a
+   * time so that the memory footprint does not grow with the number of stations.
+   *
+   * <p>The response carries an entity tag and a last modified time that summarise the entire
+   * catalogue. A conditional request for an unchanged catalogue is answered with a 304 response
+   * without loading any station.
+   *
+   * <p>The stations are written as JSON, Smile, CBOR or Protobuf, whichever the client prefers, and
+   * the entity tag is that of the format. As long as the catalogue has not changed since the
+   * {@link StationCatalogSnapshot} was generated, JSON is sent from the files of the snapshot
+   * instead, in its gzip encoding if the client accepts it.
+   *
+   * @param webRequest request
+   * @param response response to which the stations are written
+   */
+  @GetMapping(value = "/stations", produces = {MediaType.APPLICATION_JSON_VALUE,
+      BinaryFormatsConfig.SMILE_VALUE, BinaryFormatsConfig.CBOR_VALUE,
+      BinaryFormatsConfig.PROTOBUF_VALUE})
+  public void retrieveAllStations(ServletWebRequest webRequest, HttpServletResponse response)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    MediaType mediaType = negotiateFormat(webRequest);
+    // The stations are streamed on the calling thread, holding a connection throughout.
+    try (AsyncStationExecutor.Permit permit = this.asyncExecutor.admit("retrieveAllStations")) {
+      writeAllStations(webRequest, response, mediaType);
+    }
+  }
+
+  private void writeAllStations(ServletWebRequest webRequest, HttpServletResponse response,
+      MediaType mediaType) throws IOException {
+    StationCatalogVersion catalogVersion = this.stationService.retrieveCatalogVersion();
+    if (webRequest.checkNotModified(EntityTags.inFormat(catalogVersion.getETag(), mediaType),
+        catalogVersion.getLastModifiedMillis())) {
+      return;
+    }
+    StationCatalogSnapshot.Snapshot snapshot = MediaType.APPLICATION_JSON.equals(mediaType)
+        ? this.catalogSnapshot.get(catalogVersion) : null;
+    if (snapshot != null) {
+      writeSnapshot(webRequest.getRequest(), response, snapshot);
+      return;
+    }
+    response.setContentType(MediaType.APPLICATION_JSON.equals(mediaType)
+        ? MediaType.APPLICATION_JSON_UTF8_VALUE : mediaType.toString());
+    if (BinaryFormatsConfig.PROTOBUF.equals(mediaType)) {
+      CodedOutputStream output = CodedOutputStream.newInstance(response.getOutputStream());
+      this.stationService.streamAllStations(station -> {
+        try {
+          StationProtobufHttpMessageConverter.writeStation(station, output);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      output.flush();
+      return;
+    }
+    try (SequenceWriter sequenceWriter =
+        this.stationWriters.get(mediaType).writeValuesAsArray(response.getOutputStream())) {
+      this.stationService.streamAllStations(station -> {
+        try {
+          sequenceWriter.write(station);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns a single page of stations.
+   *
+   * @param request request
+   * @param continuationToken token returned with the previous page, absent for the first page
+   * @param limit maximum number of stations to be returned, absent for the default page size
+   * @return page of stations
+   */
+  @GetMapping("/stations/page")
+  public CompletableFuture<ResponseEntity<StationPage>> retrieveStationPage(
+      HttpServletRequest request,
+      @RequestParam(required = false) String continuationToken,
+      @RequestParam(required = false) Integer limit) {
+    Locale locale = RequestContextUtils.getLocale(request);
+    return this.asyncExecutor.supply("retrieveStationPage", () -> {
+      StationPage page = this.stationService.retrieveStationPage(continuationToken, limit, locale);
+      return new ResponseEntity<>(page,
+          page.hasErrors() ? HttpStatus.BAD_REQUEST : HttpStatus.OK);
+    });
+  }
+
+  /**
+   * Returns a single page of HD enabled stations, ordered by station id.
+   *
+   * @param request request
+   * @param continuationToken token returned with the previous page, absent for the first page
+   * @param limit maximum number of stations to be returned, absent for the default page size
+   * @return page of stations
+   */
+  @GetMapping("/stations/hd")
+  public ResponseEntity<StationPage> retrieveHdStationPage(HttpServletRequest request,
+      @RequestParam(required = false) String continuationToken,
+      @RequestParam(required = false) Integer limit) {
+    StationPage page = this.stationService.retrieveHdStationPage(continuationToken, limit,
+        RequestContextUtils.getLocale(request));
+    return new ResponseEntity<>(page, page.hasErrors() ? HttpStatus.BAD_REQUEST : HttpStatus.OK);
+  }
+
+  /**
+   * Searches the stations by station name and call sign, as the user types.
+   *
+   * <p>The stations are ranked by how well they match: stations whose call sign or name starts
+   * with the query come first, followed by stations with a later word of the name starting with
+   * the query, and then by stations that only match with a typo.
+   *
+   * @param request request
+   * @param q query
+   * @param continuationToken token returned with the previous page, absent for the first page
+   * @param limit maximum number of stations to be returned, absent for the default page size
+   * @return page of stations
    */
-  @GetMapping("/stations")
-  public List<Station> retrieveAllStations() {
-    return this.stationService.retrieveAllStations();
+  @GetMapping("/stations/search")
+  public ResponseEntity<StationPage> searchStations(HttpServletRequest request,
+      @RequestParam(required = false) String q,
+      @RequestParam(required = false) String continuationToken,
+      @RequestParam(required = false) Integer limit) {
+    StationPage page = this.stationService.searchStations(q, continuationToken, limit,
+        RequestContextUtils.getLocale(request));
+    return new ResponseEntity<>(page, page.hasErrors() ? HttpStatus.BAD_REQUEST : HttpStatus.OK);
   }
 
   /**
    * Returns the stations by station id
    *
+   * <p>The response carries the entity tag of the station in the negotiated format, so that a
+   * conditional request for an unchanged station is answered with a 304 response without
+   * serialising the station.
+   *
+   * <p>The serialised response of the station is cached by the {@link StationResponseCache}. A
+   * cached response is written to the servlet container's output stream on the calling thread, in
+   * its gzip encoding if the client accepts it, without building or serialising a mixin object.
+   * It counts towards the calls in flight of the endpoint, and its outcome is recorded explicitly,
+   * as no body is returned to the {@link OutcomeMetricsAdvice}.
+   *
    * @param request request
+   * @param response response to which a cached response is written
    * @param stationId station id
-   * @return mixin object
+   * @return mixin object, or {@code null} if a cached response has been written
    */
   @GetMapping("/station/id/{stationId}")
-  public ResponseEntity<StationMixin> findByStationId(HttpServletRequest request,
-      @PathVariable String stationId) {
-    StationMixin mixin = this.stationService.retrieveStationByStationId(stationId,
-        RequestContextUtils.getLocale(request));
-    return new ResponseEntity<>(mixin, mixin.hasErrors() ? HttpStatus.BAD_REQUEST: HttpStatus.OK);
+  public CompletableFuture<ResponseEntity<StationMixin>> findByStationId(
+      HttpServletRequest request, HttpServletResponse response, @PathVariable String stationId)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    // The cached responses are only held as JSON.
+    MediaType mediaType = negotiateFormat(new ServletWebRequest(request));
+    StationResponseCache.CachedResponse cachedResponse =
+        MediaType.APPLICATION_JSON.equals(mediaType) ? this.responseCache.get(stationId) : null;
+    if (cachedResponse != null) {
+      try (AsyncStationExecutor.Permit permit = this.asyncExecutor.admit("findByStationId")) {
+        writeCachedResponse(request, response, cachedResponse);
+      }
+      this.outcomeMetrics.record(request, Outcomes.OK);
+      return null;
+    }
+    Locale locale = RequestContextUtils.getLocale(request);
+    return this.asyncExecutor.supply("findByStationId", () -> {
+      StationMixin mixin = this.stationService.retrieveStationByStationId(stationId, locale);
+      if (!mixin.hasErrors()) {
+        this.responseCache.put(mixin);
+      }
+      return toConditionalResponse(mixin, mediaType);
+    });
   }
 
   /**
@@ -80,54 +344,324 @@ public class StationController {
    * @return mixin object
    */
   @GetMapping("/station/name/{stationName}")
-  public ResponseEntity<StationMixin> findByStationName(HttpServletRequest request,
-      @PathVariable String stationName) {
-    StationMixin mixin = this.stationService.retrieveStationByStationName(stationName,
-        RequestContextUtils.getLocale(request));
-    return new ResponseEntity<>(mixin, mixin.hasErrors() ? HttpStatus.BAD_REQUEST: HttpStatus.OK);
+  public CompletableFuture<ResponseEntity<StationMixin>> findByStationName(
+      HttpServletRequest request, @PathVariable String stationName)
+      throws HttpMediaTypeNotAcceptableException {
+    MediaType mediaType = negotiateFormat(new ServletWebRequest(request));
+    Locale locale = RequestContextUtils.getLocale(request);
+    return this.asyncExecutor.supply("findByStationName", () -> toConditionalResponse(
+        this.stationService.retrieveStationByStationName(stationName, locale), mediaType));
   }
 
+  /**
+   * Returns several stations by station ids and station names in a single request.
+   *
+   * <p>A station id or station name of which no station exists is mapped to a not found error,
+   * without failing the lookup of the others.
+   *
+   * @param request request
+   * @param lookupRequest station ids and station names to be looked up
+   * @return outcome of the lookup of each station id and station name
+   */
+  @PostMapping("/stations/lookup")
+  public CompletableFuture<ResponseEntity<StationLookup>> lookupStations(
+      HttpServletRequest request, @RequestBody StationLookupRequest lookupRequest) {
+    Locale locale = RequestContextUtils.getLocale(request);
+    return this.asyncExecutor.supply("lookupStations", () -> {
+      StationLookup lookup = this.stationService.lookupStations(lookupRequest, locale);
+      return new ResponseEntity<>(lookup,
+          lookup.hasErrors() ? HttpStatus.BAD_REQUEST : HttpStatus.OK);
+    });
+  }
+
+  /**
+   * Returns the stations created, updated or deleted since a point in time.
+   *
+   * <p>The changes are fetched with a keyset query on the modification time, so that a client
+   * which has already synced the catalogue only fetches what has changed since.
+   *
+   * @param request request
+   * @param since time in milliseconds since the epoch, ISO-8601 instant, or continuation token
+   *     returned with the previous delta, absent to fetch all the stations
+   * @param limit maximum number of changes to be returned, absent for the default page size
+   * @return delta of stations
+   */
+  @GetMapping("/stations/changes")
+  public CompletableFuture<ResponseEntity<StationDelta>> retrieveStationChanges(
+      HttpServletRequest request,
+      @RequestParam(required = false) String since,
+      @RequestParam(required = false) Integer limit) {
+    Locale locale = RequestContextUtils.getLocale(request);
+    return this.asyncExecutor.supply("retrieveStationChanges", () -> {
+      StationDelta delta = this.stationService.retrieveStationChanges(since, limit, locale);
+      return new ResponseEntity<>(delta, delta.hasErrors()
+          ? HttpStatus.valueOf(delta.getErrors().get(0).getCode()) : HttpStatus.OK);
+    });
+  }
+
+  /**
+   * Returns the changes to the stations that follow the sequence.
+   *
+   * <p>If there are no such changes yet, the request is held until either a station changes, or
+   * the poll times out, in which case no changes are returned.
+   *
+   * @param request request
+   * @param since sequence returned with the previous changes, absent to return the last sequence
+   * @param limit maximum number of changes to be returned, absent for the default limit
+   * @return changes
+   */
+  @GetMapping("/stations/feed")
+  public CompletableFuture<ResponseEntity<StationChangePage>> pollChanges(
+      HttpServletRequest request,
+      @RequestParam(required = false) Long since,
+      @RequestParam(required = false) Integer limit) {
+    return this.changeFeed.poll(since, limit, RequestContextUtils.getLocale(request))
+        .thenApply(page -> new ResponseEntity<>(page, page.hasErrors()
+            ? HttpStatus.valueOf(page.getErrors().get(0).getCode()) : HttpStatus.OK));
+  }
+
+  /**
+   * Streams the changes to the stations that follow the sequence as server sent events.
+   *
+   * <p>A client reconnecting with a {@code Last-Event-ID} header resumes from the last change it
+   * received.
+   *
+   * @param since sequence from which the changes are streamed, absent to start from the last change
+   * @param lastEventId id of the last event received by a reconnecting client
+   * @return stream of changes
+   */
+  @GetMapping("/stations/feed/stream")
+  public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+      @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+    return this.changeFeed.subscribe(lastEventId != null ? lastEventId : since);
+  }
+
+  /**
+   * Creates the station.
+   *
+   * <p>The station is validated without a binding result, whose errors are only allocated if the
+   * station is not valid.
+   *
+   * @param stationObject station to be created
+   * @return mixin object
+   */
   @PostMapping("/station")
-  public ResponseEntity<StationMixin> createStation(
-      @RequestBody @Valid Station stationObject, BindingResult result) {
-    LOG.info("Creating stations");
-    if (result.hasErrors()) {
-      LOG.warn("Failure to validate station objects.");
+  public CompletableFuture<ResponseEntity<StationMixin>> createStation(
+      @RequestBody Station stationObject) {
+    LOG.debug("Creating stations");
+    Errors result = this.stationValidator.findErrors(stationObject);
+    if (result != null) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Unable to create the station {}: {}", stationObject.getStationId(),
+            result.getFieldErrors());
+      }
       StationMixin mixin = new CreateStationMixin();
       mixin.buildMixin(result);
-      LOG.warn("Unable to create a station : " + stationObject);
-      return  new ResponseEntity<>(mixin, HttpStatus.BAD_REQUEST);
+      return CompletableFuture.completedFuture(
+          new ResponseEntity<>(mixin, HttpStatus.BAD_REQUEST));
+    }
+    return this.asyncExecutor.supply("createStation", () -> {
+      StationMixin mixin = this.stationService.createStation(stationObject);
+      LOG.debug("Station has been created");
+      return new ResponseEntity<>(mixin, HttpStatus.CREATED);
+    });
+  }
+
+  /**
+   * Imports the stations in bulk.
+   *
+   * <p>The request body is either a JSON array of stations or a newline delimited stream of
+   * stations. The response body encapsulates the outcome of each station in the order in which
+   * the stations were sent.
+   *
+   * @param request request whose body encapsulates the stations
+   * @return list of mixin objects
+   */
+  @PostMapping(value = "/stations/bulk",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+  public ResponseEntity<List<StationMixin>> importStations(HttpServletRequest request)
+      throws IOException {
+    LOG.debug("Importing stations");
+    List<StationMixin> mixins;
+    try (AsyncStationExecutor.Permit permit = this.asyncExecutor.admit("importStations")) {
+      mixins = this.stationImporter.importStations(request.getInputStream(),
+          RequestContextUtils.getLocale(request));
     }
-    StationMixin mixin = this.stationService.createStation(stationObject);
-    LOG.info("Station has been created");
-    return new ResponseEntity<>(mixin, HttpStatus.CREATED);
+    LOG.debug("Stations have been imported");
+    return new ResponseEntity<>(mixins, HttpStatus.OK);
   }
 
+  /**
+   * Deletes the station by station id.
+   *
+   * <p>If the request carries an {@code If-Match} header, the station is only deleted if it still
+   * matches one of the entity tags, and a 412 response is returned otherwise.
+   *
+   * @param request request
+   * @param stationId station id
+   * @param ifMatch entity tags of which the station must match one
+   * @return mixin object
+   */
   @DeleteMapping("/station/{stationId}")
-  public ResponseEntity<StationMixin> deleteStation(HttpServletRequest request, 
-      @PathVariable String stationId) {
-    StationMixin mixin = 
-        this.stationService.deleteStationByStationId(stationId,
-            RequestContextUtils.getLocale(request));
-      return new ResponseEntity<>(mixin, mixin.hasErrors() ? HttpStatus.BAD_REQUEST:
-          HttpStatus.OK);
+  public CompletableFuture<ResponseEntity<StationMixin>> deleteStation(
+      HttpServletRequest request, @PathVariable String stationId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Locale locale = RequestContextUtils.getLocale(request);
+    return this.asyncExecutor.supply("deleteStation", () -> {
+      StationMixin mixin =
+          this.stationService.deleteStationByStationId(stationId, ifMatch, locale);
+      return new ResponseEntity<>(mixin,
+          mixin.hasErrors() ? errorStatus(mixin) : HttpStatus.OK);
+    });
   }
 
+  /**
+   * Deletes several stations by station ids in a single request.
+   *
+   * <p>A station id of which no station exists is mapped to a not found error, without failing
+   * the deletion of the others.
+   *
+   * @param request request
+   * @param deletionRequest station ids of the stations to be deleted
+   * @return outcome of the deletion of each station id
+   */
+  @DeleteMapping("/stations")
+  public CompletableFuture<ResponseEntity<StationDeletion>> deleteStations(
+      HttpServletRequest request, @RequestBody StationDeletionRequest deletionRequest) {
+    Locale locale = RequestContextUtils.getLocale(request);
+    return this.asyncExecutor.supply("deleteStations", () -> {
+      StationDeletion deletion = this.stationService.deleteStations(deletionRequest, locale);
+      return new ResponseEntity<>(deletion,
+          deletion.hasErrors() ? HttpStatus.BAD_REQUEST : HttpStatus.OK);
+    });
+  }
+
+  /**
+   * Updates the station by station id.
+   *
+   * <p>If the request carries an {@code If-Match} header, the station is only updated if it still
+   * matches one of the entity tags, and a 412 response is returned otherwise. The response carries
+   * the entity tag of the updated station in the negotiated format.
+   *
+   * @param request request
+   * @param stationId station id
+   * @param ifMatch entity tags of which the station must match one
+   * @param updateMixin fields to be updated
+   * @return mixin object
+   */
   @PutMapping("/station/{stationId}")
-  public ResponseEntity<StationMixin> updateStation(
+  public CompletableFuture<ResponseEntity<StationMixin>> updateStation(
       HttpServletRequest request, @PathVariable String stationId,
-      @RequestBody UpdateStationMixin updateMixin, BindingResult result) {
-    LOG.info("Updating the stations.");
-    this.stationMixinValidator.validate(updateMixin, result);
-    if (result.hasErrors()) {
-      LOG.warn("Validation of the station object failed");
-      return new ResponseEntity<>(
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestBody UpdateStationMixin updateMixin)
+      throws HttpMediaTypeNotAcceptableException {
+    LOG.debug("Updating the station {}", stationId);
+    Errors result = this.stationMixinValidator.findErrors(updateMixin);
+    if (result != null) {
+      LOG.debug("Validation of the station {} failed", stationId);
+      return CompletableFuture.completedFuture(new ResponseEntity<>(
           this.stationMixinValidator.createMixin(result, RequestContextUtils.getLocale(request)),
-          HttpStatus.BAD_REQUEST);
+          HttpStatus.BAD_REQUEST));
     }
-    StationMixin mixin = this.stationService
-        .updateStation(stationId, updateMixin, RequestContextUtils.getLocale(request));
-    return new ResponseEntity<>(mixin, mixin.hasErrors() ? HttpStatus.BAD_REQUEST : HttpStatus.OK);
+    MediaType mediaType = negotiateFormat(new ServletWebRequest(request));
+    Locale locale = RequestContextUtils.getLocale(request);
+    return this.asyncExecutor.supply("updateStation", () -> {
+      StationMixin mixin =
+          this.stationService.updateStation(stationId, updateMixin, ifMatch, locale);
+      if (mixin.hasErrors()) {
+        return new ResponseEntity<>(mixin, errorStatus(mixin));
+      }
+      return ResponseEntity.ok().eTag(EntityTags.inFormat(mixin.getETag(), mediaType))
+          .body(mixin);
+    });
   }
 
+  /**
+   * Returns the status of a response carrying errors.
+   *
+   * <p>A failed precondition is reported as such, whereas any other error is reported as a bad
+   * request.
+   */
+  private static HttpStatus errorStatus(StationMixin mixin) {
+    return mixin.getErrors().get(0).getCode() == ErrorCodes.PRECONDITION_FAILED.getCode()
+        ? HttpStatus.PRECONDITION_FAILED : HttpStatus.BAD_REQUEST;
+  }
+
+  /**
+   * Returns the media type of the format of the stations that the client prefers, which is JSON
+   * unless the client prefers a binary format.
+   */
+  private static MediaType negotiateFormat(NativeWebRequest webRequest)
+      throws HttpMediaTypeNotAcceptableException {
+    List<MediaType> acceptableMediaTypes = CONTENT_NEGOTIATION.resolveMediaTypes(webRequest);
+    MediaType.sortBySpecificityAndQuality(acceptableMediaTypes);
+    for (MediaType acceptableMediaType : acceptableMediaTypes) {
+      for (MediaType mediaType : FORMATS) {
+        if (acceptableMediaType.isCompatibleWith(mediaType)) {
+          return mediaType;
+        }
+      }
+    }
+    return MediaType.APPLICATION_JSON;
+  }
+
+  private static void writeSnapshot(HttpServletRequest request, HttpServletResponse response,
+      StationCatalogSnapshot.Snapshot snapshot) throws IOException {
+    Path file = snapshot.getJsonFile();
+    long length = snapshot.getJsonLength();
+    if (acceptsGzip(request)) {
+      file = snapshot.getGzipFile();
+      length = snapshot.getGzipLength();
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+    response.setContentLengthLong(length);
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      // The file is sent by the servlet container once the handler returns.
+      request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, 0L);
+      request.setAttribute(SENDFILE_END, length);
+    } else {
+      Files.copy(file, response.getOutputStream());
+    }
+  }
+
+  private static void writeCachedResponse(HttpServletRequest request,
+      HttpServletResponse response, StationResponseCache.CachedResponse cachedResponse)
+      throws IOException {
+    if (new ServletWebRequest(request, response).checkNotModified(cachedResponse.getETag())) {
+      return;
+    }
+    byte[] body = cachedResponse.getJson();
+    if (cachedResponse.getGzip() != null && acceptsGzip(request)) {
+      body = cachedResponse.getGzip();
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  private static boolean acceptsGzip(HttpServletRequest request) {
+    String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      if (parameters[0].trim().equalsIgnoreCase("gzip")) {
+        return parameters.length == 1 || !parameters[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
+  private static ResponseEntity<StationMixin> toConditionalResponse(StationMixin mixin,
+      MediaType mediaType) {
+    if (mixin.hasErrors()) {
+      return new ResponseEntity<>(mixin, HttpStatus.BAD_REQUEST);
+    }
+    // The 304 response to a matching If-None-Match header is handled by Spring MVC.
+    return ResponseEntity.ok().eTag(EntityTags.inFormat(mixin.getETag(), mediaType)).body(mixin);
+  }
 }
@@ -0,0 +1,55 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A value object that summarises the state of the entire catalogue of stations.
+ *
+ * <p>The summary changes whenever a station is created, updated or deleted, and so is used to
+ * build the entity tag of the list of all stations without loading the stations themselves.
+ * Creations are reflected by the count and the highest primary key, updates by the sum of the
+ * versions, and deletions by the count.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class StationCatalogVersion {
+
+    private final long count;
+
+    private final long maxId;
+
+    private final long versionSum;
+
+    private final LocalDateTime lastModified;
+
+    public StationCatalogVersion(Long count, Long maxId, Long versionSum,
+        LocalDateTime lastModified) {
+        this.count = count == null ? 0L : count;
+        this.maxId = maxId == null ? 0L : maxId;
+        this.versionSum = versionSum == null ? 0L : versionSum;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the strong entity tag of the catalogue.
+     */
+    public String getETag() {
+        return "\"" + this.count + "-" + this.maxId + "-" + this.versionSum + "\"";
+    }
+
+    /**
+     * Returns the time when a station was last created or updated in milliseconds since the
+     * epoch, or {@code -1} if there are no stations.
+     */
+    public long getLastModifiedMillis() {
+        return this.lastModified == null
+            ? -1L : this.lastModified.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
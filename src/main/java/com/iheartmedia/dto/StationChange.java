@@ -0,0 +1,45 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import com.iheartmedia.model.Station;
+import com.iheartmedia.service.StationMutationEvent;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A value object that encapsulates a single committed mutation of a station, as published by the
+ * change feed.
+ *
+ * <p>The sequence numbers of the changes increase monotonically in the order in which the
+ * mutations were committed. The station is the state after the mutation, or the last known state
+ * of a deleted station.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class StationChange {
+
+    private final long sequence;
+
+    private final StationMutationEvent.Type type;
+
+    private final String stationId;
+
+    private final Integer version;
+
+    private final long timestamp;
+
+    private final Station station;
+
+    public StationChange(long sequence, StationMutationEvent.Type type, Station station,
+            long timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.stationId = station.getStationId();
+        this.version = station.getVersion();
+        this.timestamp = timestamp;
+        this.station = station;
+    }
+}
@@ -0,0 +1,29 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.iheartmedia.model.IError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A value object that encapsulates the changes read from the change feed.
+ *
+ * <p>The last sequence is the sequence from which the next read resumes. It is the sequence of the
+ * last change returned, or the sequence that was read from if no changes were returned.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StationChangePage extends IError {
+
+    private List<StationChange> changes = new ArrayList<>();
+
+    private Long lastSequence;
+}
@@ -0,0 +1,28 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.iheartmedia.model.IError;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A value object that encapsulates the outcome of deleting several stations in a single request.
+ *
+ * <p>Each station id that was to be deleted is mapped to a mixin object, which carries the state
+ * of the deleted station, or a not found error if there is no such station. The errors of the
+ * deletion itself, such as too many stations being deleted, are reported against the deletion.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StationDeletion extends IError {
+
+    private Map<String, StationMixin> stationIds = new LinkedHashMap<>();
+}
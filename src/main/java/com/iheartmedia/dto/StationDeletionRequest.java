@@ -0,0 +1,17 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * A value object that encapsulates the station ids of the stations to be deleted in a single
+ * request.
+ */
+@Data
+public class StationDeletionRequest {
+
+    private List<String> stationIds = new ArrayList<>();
+}
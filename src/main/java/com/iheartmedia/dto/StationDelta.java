@@ -0,0 +1,37 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.iheartmedia.model.IError;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.model.StationTombstone;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A value object that encapsulates the stations created, updated or deleted since a point in time.
+ *
+ * <p>A station appears at most once per delta, in its latest state, so the stations and the
+ * deleted stations may be applied in any order. The continuation token is opaque to the clients,
+ * and is always present, so that the next sync resumes from where this delta ends. If there are
+ * more changes to be fetched straight away, the delta is marked as such.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StationDelta extends IError {
+
+    private List<Station> stations = new ArrayList<>();
+
+    private List<StationTombstone> deletedStations = new ArrayList<>();
+
+    private String continuationToken;
+
+    private boolean hasMore;
+}
@@ -0,0 +1,30 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.iheartmedia.model.IError;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A value object that encapsulates the outcome of looking up several stations in a single request.
+ *
+ * <p>Each station id and station name that was looked up is mapped to a mixin object, which
+ * carries a not found error if there is no such station. The errors of the lookup itself, such as
+ * too many stations being looked up, are reported against the lookup.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StationLookup extends IError {
+
+    private Map<String, StationMixin> stationIds = new LinkedHashMap<>();
+
+    private Map<String, StationMixin> stationNames = new LinkedHashMap<>();
+}
@@ -0,0 +1,19 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * A value object that encapsulates the station ids and the station names of the stations to be
+ * looked up in a single request.
+ */
+@Data
+public class StationLookupRequest {
+
+    private List<String> stationIds = new ArrayList<>();
+
+    private List<String> stationNames = new ArrayList<>();
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.iheartmedia.model.ErrorCodes;
 import com.iheartmedia.model.IError;
 import com.iheartmedia.model.Station;
+import com.iheartmedia.utils.EntityTags;
 
 import org.springframework.validation.Errors;
 import org.springframework.validation.FieldError;
@@ -24,7 +25,7 @@ import lombok.ToString;
  */
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 @Data
-@EqualsAndHashCode(callSuper = true, exclude = "id")
+@EqualsAndHashCode(callSuper = true, exclude = {"id", "version"})
 @ToString(callSuper = true)
 @Setter(AccessLevel.NONE)
 public abstract class StationMixin extends IError {
@@ -32,6 +33,9 @@ public abstract class StationMixin extends IError {
   @JsonIgnore
   private Long id;
 
+  @JsonIgnore
+  private Integer version;
+
   private String stationId;
 
   @JsonProperty("name")
@@ -68,6 +72,22 @@ public abstract class StationMixin extends IError {
     return this;
   }
 
+  private StationMixin withVersion(Integer version) {
+    this.version = version;
+    return this;
+  }
+
+  /**
+   * Returns the strong entity tag of the station this mixin was built from, or {@code null} if
+   * the mixin was not built from a persisted station.
+   *
+   * <p>The tag changes whenever the station is updated, or is deleted and created again.
+   */
+  @JsonIgnore
+  public String getETag() {
+    return EntityTags.of(this.id, this.version);
+  }
+
 
   /**
    * Returns the timestamp when the operation was carried out successfully.
@@ -105,7 +125,8 @@ public abstract class StationMixin extends IError {
    */
   public StationMixin buildMixin(Station station) {
     this.withStationId(station.getStationId()).withStationName(station.getStationName())
-        .withId(station.getId()).withCallSign(station.getCallSign())
+        .withId(station.getId()).withVersion(station.getVersion())
+        .withCallSign(station.getCallSign())
         .withHdEnabled(station.getHdEnabled());
     return this;
   }
@@ -0,0 +1,30 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.iheartmedia.model.IError;
+import com.iheartmedia.model.Station;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A value object that encapsulates a single page of stations returned by a keyset paginated query.
+ *
+ * <p>The continuation token is opaque to the clients, and is only present if there are more
+ * stations to be fetched.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StationPage extends IError {
+
+    private List<Station> stations = new ArrayList<>();
+
+    private String continuationToken;
+}
@@ -7,7 +7,12 @@ package com.iheartmedia.model;
 public enum ErrorCodes {
     BAD_REQUEST(400),
     NOT_FOUND(404),
-    CONFLICT(409);
+    METHOD_NOT_ALLOWED(405),
+    CONFLICT(409),
+    GONE(410),
+    PRECONDITION_FAILED(412),
+    NOT_IMPLEMENTED(501),
+    SERVICE_UNAVAILABLE(503);
 
     private final int code;
 
@@ -18,4 +23,16 @@ public enum ErrorCodes {
     public int getCode() {
         return this.code;
     }
+
+    /**
+     * Returns the error code matching the numeric code, or {@code null} if there is none.
+     */
+    public static ErrorCodes forCode(int code) {
+        for (ErrorCodes errorCode : values()) {
+            if (errorCode.code == code) {
+                return errorCode;
+            }
+        }
+        return null;
+    }
 }
@@ -5,9 +5,16 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -16,8 +23,10 @@ import javax.persistence.Id;
 import javax.persistence.Index;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
@@ -29,12 +38,20 @@ import lombok.ToString;
 /**
  * An instance of this class encapsulates properties representing a specific detail related to
  * radio stations.
+ *
+ * <p>Updates only write the columns that have changed. If the second level cache is enabled, the
+ * stations are cached by primary key, and by station id, which is the natural id of a station.
  */
 @Data
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 @Table(name = "user_station", indexes = {
     @Index(columnList = "station_id", name = "station_index_station_id"),
     @Index(columnList = "station_name", name="station_index_name"),
-    @Index(columnList = "hd_enabled", name = "station_index_hd_enabled")
+    @Index(columnList = "hd_enabled", name = "station_index_hd_enabled"),
+    @Index(columnList = "user_modified_timestamp, id", name = "station_index_modified")
 }, uniqueConstraints = {
     @UniqueConstraint(columnNames = {"id", "version"})
 })
@@ -45,12 +62,16 @@ import lombok.ToString;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class Station extends IError {
 
+    // Ids are allocated in blocks by the pooled optimizer so that inserts can be batched.
     @Id
-    @GeneratedValue(strategy= GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "station_sequence")
+    @SequenceGenerator(name = "station_sequence", sequenceName = "station_sequence",
+        allocationSize = 50)
     @JsonIgnore
     private Long id;
 
     // Represents a station id for the user.
+    @NaturalId
     @Column(name="station_id", nullable = false, unique = true)
     @NotEmpty(message = "{station.id.empty}")
     @Pattern(regexp = "^([KW])[A-Za-z0-9\\-].*$", message = "{station.id.format.not.valid}")
@@ -77,15 +98,18 @@ public class Station extends IError {
     @JsonIgnore
     private LocalDateTime updatedTimestamp;
 
+    // Optimistic lock, incremented by Hibernate whenever the station is updated.
+    @Version
     @Column(name="version", columnDefinition="INT default '0'")
     @JsonIgnore
-    private Integer version = 0;
+    private Integer version;
 
     /**
      * Initialises the timestamps prior to update or insertions.
      *
      * <p>The implementation ensures that time stamps would always reflect the time when entities
-     * were persisted or updated.
+     * were persisted or updated. The updated timestamp is moved past its previous value even within
+     * the same millisecond, so that the updates of a station are ordered by their timestamps.
      */
     @PrePersist
     @PreUpdate
@@ -94,10 +118,45 @@ public class Station extends IError {
         if (this.createdTimeStamp == null) {
             this.createdTimeStamp = utcNow;
         }
-        this.updatedTimestamp = utcNow;
+        this.updatedTimestamp = nextTimestamp(this.updatedTimestamp, utcNow);
         if (this.hdEnabled == null) {
             this.hdEnabled = Boolean.FALSE;
         }
-        this.version += 1;
+    }
+
+    /**
+     * Returns the updated timestamp that follows the given one.
+     *
+     * @param previous previous updated timestamp, or {@code null} if there is none
+     * @return current time in UTC, or 1 microsecond past the previous timestamp if the clock has not
+     *     moved past it
+     */
+    public static LocalDateTime nextTimestamp(LocalDateTime previous) {
+        return nextTimestamp(previous, LocalDateTime.now(ZoneOffset.UTC));
+    }
+
+    private static LocalDateTime nextTimestamp(LocalDateTime previous, LocalDateTime utcNow) {
+        return previous != null && !utcNow.isAfter(previous) ? previous.plusNanos(1000L) : utcNow;
+    }
+
+    /**
+     * Returns a detached copy of the station.
+     *
+     * <p>The copy is safe to be shared across threads, and to be held on to beyond the lifetime of
+     * the persistence context from which the station was loaded.
+     *
+     * @return copy of the station
+     */
+    public Station copy() {
+        Station copy = new Station();
+        copy.id = this.id;
+        copy.stationId = this.stationId;
+        copy.stationName = this.stationName;
+        copy.hdEnabled = this.hdEnabled;
+        copy.callSign = this.callSign;
+        copy.createdTimeStamp = this.createdTimeStamp;
+        copy.updatedTimestamp = this.updatedTimestamp;
+        copy.version = this.version;
+        return copy;
     }
 }
@@ -0,0 +1,64 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import lombok.Data;
+
+/**
+ * An instance of this class records the deletion of a station, so that the clients syncing the
+ * changes to the stations find out about the deletion.
+ *
+ * <p>Tombstones are only kept for the configured retention period.
+ */
+@Data
+@Table(name = "station_tombstone", indexes = {
+    @Index(columnList = "deleted_timestamp, id", name = "station_tombstone_index_deleted")
+})
+@Entity
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StationTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "station_tombstone_sequence")
+    @SequenceGenerator(name = "station_tombstone_sequence",
+        sequenceName = "station_tombstone_sequence", allocationSize = 50)
+    @JsonIgnore
+    private Long id;
+
+    // Station id of the deleted station.
+    @Column(name = "station_id", nullable = false)
+    private String stationId;
+
+    // Version of the station when it was deleted.
+    @Column(name = "version")
+    @JsonIgnore
+    private Integer version;
+
+    @Column(name = "deleted_timestamp", nullable = false)
+    @JsonProperty("deletedAt")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime deletedTimestamp;
+
+    protected StationTombstone() {}
+
+    public StationTombstone(String stationId, Integer version, LocalDateTime deletedTimestamp) {
+        this.stationId = stationId;
+        this.version = version;
+        this.deletedTimestamp = deletedTimestamp;
+    }
+}
@@ -1,30 +1,33 @@
 // Copyright 2018 Kartik Krishnanand. All Rights Reserved.
 package com.iheartmedia.repository;
 
+import com.iheartmedia.dto.StationCatalogVersion;
 import com.iheartmedia.model.Station;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 /**
  * Proxy definition to handle CRUD operations for a user.
+ *
+ * <p>The operations are not retried here, as a retry within a transaction that has already been
+ * marked for roll back can never succeed. Transient failures are instead retried around the
+ * transactions of the service layer by {@link com.iheartmedia.utils.TransientFailureRetryAspect}.
  */
 @Repository
-@Retryable(maxAttempts=5, value= {Exception.class}, backoff=@Backoff(delay=2000))
-public interface IStationRepository extends JpaRepository<Station, Long> {
-
-    /**
-     * Proxy method to find station by station id.
-     *
-     * @param stationId station id
-     * @return station
-     */
-    Station findByStationId(String stationId);
+public interface IStationRepository
+    extends JpaRepository<Station, Long>, IStationRepositoryCustom {
 
     /**
      * Proxy method to find station by station name.
@@ -34,17 +37,83 @@ public interface IStationRepository extends JpaRepository<Station, Long> {
      */
     Station findByStationName(String stationName);
 
+    /**
+     * Proxy method to find the stations by station ids in a single query.
+     *
+     * @param stationIds station ids
+     * @return list of stations matching any of the station ids
+     */
+    List<Station> findByStationIdIn(Collection<String> stationIds);
+
+    /**
+     * Proxy method to find the stations by station names in a single query.
+     *
+     * @param stationNames station names
+     * @return list of stations matching any of the station names
+     */
+    List<Station> findByStationNameIn(Collection<String> stationNames);
+
     /**
      * Proxy method to return all hd enabled stations.
+     *
+     * <p>The result is cached by the query cache if the second level cache is enabled, until the
+     * stations are next modified.
+     *
      * @return list of proxy stations
      */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("SELECT s FROM Station s WHERE s.hdEnabled=true")
     List<Station> findHdEnabledStations();
 
     /**
-     * Proxy method to delete the station
-     * @param stationId station id
-     * @return list of deleted station
+     * Proxy method to return the stations whose primary key succeeds the given key.
+     *
+     * <p>This is a keyset (seek) query, so the cost of fetching a page does not depend upon how
+     * deep the page is.
+     *
+     * @param id primary key of the last station that was returned
+     * @param pageable page request whose size limits the number of stations returned
+     * @return list of stations ordered by primary key
+     */
+    List<Station> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Proxy method to return the stations that succeed the given modification time and primary key.
+     *
+     * <p>This is a keyset (seek) query over the index on the modification time and the primary key.
+     *
+     * @param timestamp modification time of the last station that was returned
+     * @param id primary key of the last station that was returned with the same modification time
+     * @param until modification time up to which the stations are returned
+     * @param pageable page request whose size limits the number of stations returned
+     * @return list of stations ordered by modification time and primary key
+     */
+    @Query("SELECT s FROM Station s WHERE s.updatedTimestamp >= :timestamp"
+        + " AND (s.updatedTimestamp > :timestamp OR s.id > :id) AND s.updatedTimestamp <= :until"
+        + " ORDER BY s.updatedTimestamp, s.id")
+    List<Station> findModifiedAfter(@Param("timestamp") LocalDateTime timestamp,
+        @Param("id") Long id, @Param("until") LocalDateTime until, Pageable pageable);
+
+    /**
+     * Proxy method to stream all the stations.
+     *
+     * <p>The stream must be consumed, and closed within a transaction.
+     *
+     * @return stream of all stations ordered by primary key
+     */
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT s FROM Station s ORDER BY s.id")
+    Stream<Station> streamAllStations();
+
+    /**
+     * Proxy method to summarise the state of all the stations in a single aggregate query.
+     *
+     * @return summary of all the stations
      */
-    List<Station> removeByStationId(String stationId);
+    @Query("SELECT new com.iheartmedia.dto.StationCatalogVersion("
+        + "COUNT(s), MAX(s.id), SUM(s.version), MAX(s.updatedTimestamp)) FROM Station s")
+    StationCatalogVersion findCatalogVersion();
 }
@@ -0,0 +1,70 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.repository;
+
+import com.iheartmedia.model.Station;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository operations that can not be derived from the method names.
+ */
+public interface IStationRepositoryCustom {
+
+    /**
+     * Finds the station by station id.
+     *
+     * <p>If the second level cache is enabled, the station is loaded by its natural id, so that it
+     * can be served from the natural id cache without querying the database.
+     *
+     * @param stationId station id
+     * @return station, or {@code null} if there is no station with the station id
+     */
+    Station findByStationId(String stationId);
+
+    /**
+     * Updates the station in a single statement without loading it first.
+     *
+     * <p>Only the call sign, the station name, the hd enabled flag and the updated timestamp of the
+     * changes are written, and only if they are not {@code null}, so that the statement touches the
+     * changed columns alone. The version is incremented as part of the same statement.
+     *
+     * @param stationId station id of the station to be updated
+     * @param version version that the station must currently be at
+     * @param changes state to be written, whose updated timestamp is set to the one stored if the
+     *     station is updated
+     * @return number of stations updated, which is 0 if the station does not exist or is no
+     *     longer at the given version
+     */
+    int updateIfVersionMatches(String stationId, Integer version, Station changes);
+
+    /**
+     * Finds the stations by station ids, and locks them until the end of the transaction.
+     *
+     * <p>The columns of the stations are read as a projection, so the returned stations are
+     * detached copies that are neither managed by, nor checked for changes by, the persistence
+     * context.
+     *
+     * @param stationIds station ids
+     * @return detached stations matching any of the station ids
+     */
+    List<Station> findAndLockByStationIdIn(Collection<String> stationIds);
+
+    /**
+     * Deletes the station in a single statement without loading it first.
+     *
+     * @param stationId station id of the station to be deleted
+     * @param version version that the station must currently be at
+     * @return number of stations deleted, which is 0 if the station does not exist or is no longer
+     *     at the given version
+     */
+    int deleteIfVersionMatches(String stationId, Integer version);
+
+    /**
+     * Deletes the stations by primary key in a single statement without loading them first.
+     *
+     * @param ids primary keys of the stations to be deleted
+     * @return number of stations deleted
+     */
+    int deleteByIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,175 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.repository;
+
+import com.iheartmedia.model.Station;
+
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+/**
+ * Implementation of {@link IStationRepositoryCustom}, which is picked up by Spring Data as a
+ * fragment of {@link IStationRepository}.
+ */
+public class IStationRepositoryCustomImpl implements IStationRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The lookup joins the current transaction, if any. Otherwise the session is only held for
+     * the duration of the lookup, and a connection is only acquired if the station has not been
+     * cached.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Station findByStationId(String stationId) {
+        Session session = this.entityManager.unwrap(Session.class);
+        if (isSecondLevelCacheEnabled(session)) {
+            return session.bySimpleNaturalId(Station.class).load(stationId);
+        }
+        List<Station> stations = this.entityManager.createQuery(
+            "SELECT s FROM Station s WHERE s.stationId = :stationId", Station.class)
+            .setParameter("stationId", stationId)
+            .getResultList();
+        return stations.isEmpty() ? null : stations.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If the second level cache is enabled, the station is instead read and locked, and updated
+     * through the persistence context, as a bulk statement would evict every station from the
+     * cache rather than the updated station alone. The updated timestamp is then set by the station
+     * as it is flushed, and is copied back to the changes.
+     */
+    @Override
+    public int updateIfVersionMatches(String stationId, Integer version, Station changes) {
+        Session session = this.entityManager.unwrap(Session.class);
+        if (isSecondLevelCacheEnabled(session)) {
+            Station station = findAndLockByStationId(session, stationId, version);
+            if (station == null) {
+                return 0;
+            }
+            if (changes.getCallSign() != null) {
+                station.setCallSign(changes.getCallSign());
+            }
+            if (changes.getStationName() != null) {
+                station.setStationName(changes.getStationName());
+            }
+            if (changes.getHdEnabled() != null) {
+                station.setHdEnabled(changes.getHdEnabled());
+            }
+            station.setUpdatedTimestamp(changes.getUpdatedTimestamp());
+            session.flush();
+            changes.setUpdatedTimestamp(station.getUpdatedTimestamp());
+            return 1;
+        }
+        Map<String, Object> assignments = new LinkedHashMap<>();
+        assignments.put("callSign", changes.getCallSign());
+        assignments.put("stationName", changes.getStationName());
+        assignments.put("hdEnabled", changes.getHdEnabled());
+        assignments.put("updatedTimestamp", changes.getUpdatedTimestamp());
+        assignments.values().removeIf(value -> value == null);
+
+        StringBuilder jpql = new StringBuilder("UPDATE Station s SET s.version = s.version + 1");
+        for (String field : assignments.keySet()) {
+            jpql.append(", s.").append(field).append(" = :").append(field);
+        }
+        jpql.append(" WHERE s.stationId = :stationId AND s.version = :version");
+
+        Query query = this.entityManager.createQuery(jpql.toString());
+        assignments.forEach(query::setParameter);
+        query.setParameter("stationId", stationId);
+        query.setParameter("version", version);
+        return query.executeUpdate();
+    }
+
+    @Override
+    public List<Station> findAndLockByStationIdIn(Collection<String> stationIds) {
+        List<Object[]> rows = this.entityManager.createQuery(
+            "SELECT s.id, s.stationId, s.stationName, s.hdEnabled, s.callSign,"
+                + " s.createdTimeStamp, s.updatedTimestamp, s.version"
+                + " FROM Station s WHERE s.stationId IN :stationIds", Object[].class)
+            .setParameter("stationIds", stationIds)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+        List<Station> stations = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Station station = new Station();
+            station.setId((Long) row[0]);
+            station.setStationId((String) row[1]);
+            station.setStationName((String) row[2]);
+            station.setHdEnabled((Boolean) row[3]);
+            station.setCallSign((String) row[4]);
+            station.setCreatedTimeStamp((LocalDateTime) row[5]);
+            station.setUpdatedTimestamp((LocalDateTime) row[6]);
+            station.setVersion((Integer) row[7]);
+            stations.add(station);
+        }
+        return stations;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If the second level cache is enabled, the station is instead read and locked, and removed
+     * through the persistence context, so that only the deleted station is evicted from the cache.
+     */
+    @Override
+    public int deleteIfVersionMatches(String stationId, Integer version) {
+        Session session = this.entityManager.unwrap(Session.class);
+        if (isSecondLevelCacheEnabled(session)) {
+            Station station = findAndLockByStationId(session, stationId, version);
+            if (station == null) {
+                return 0;
+            }
+            session.remove(station);
+            session.flush();
+            return 1;
+        }
+        return this.entityManager.createQuery(
+            "DELETE FROM Station s WHERE s.stationId = :stationId AND s.version = :version")
+            .setParameter("stationId", stationId)
+            .setParameter("version", version)
+            .executeUpdate();
+    }
+
+    @Override
+    public int deleteByIdIn(Collection<Long> ids) {
+        return this.entityManager.createQuery("DELETE FROM Station s WHERE s.id IN :ids")
+            .setParameter("ids", ids)
+            .executeUpdate();
+    }
+
+    private static boolean isSecondLevelCacheEnabled(Session session) {
+        return session.getSessionFactory().getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    }
+
+    /**
+     * Reads and locks the station, bypassing the cache, and returns it if it is at the given
+     * version, or {@code null} otherwise.
+     */
+    private static Station findAndLockByStationId(Session session, String stationId,
+        Integer version) {
+        Station station = session.bySimpleNaturalId(Station.class)
+            .with(LockOptions.UPGRADE)
+            .load(stationId);
+        return station != null && version.equals(station.getVersion()) ? station : null;
+    }
+}
@@ -0,0 +1,48 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.repository;
+
+import com.iheartmedia.model.StationTombstone;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Proxy definition to handle the tombstones of the deleted stations.
+ */
+@Repository
+public interface IStationTombstoneRepository extends JpaRepository<StationTombstone, Long> {
+
+    /**
+     * Proxy method to return the tombstones that succeed the given deletion time and primary key.
+     *
+     * <p>This is a keyset (seek) query over the index on the deletion time and the primary key.
+     *
+     * @param timestamp deletion time of the last tombstone that was returned
+     * @param id primary key of the last tombstone that was returned with the same deletion time
+     * @param until deletion time up to which the tombstones are returned
+     * @param pageable page request whose size limits the number of tombstones returned
+     * @return list of tombstones ordered by deletion time and primary key
+     */
+    @Query("SELECT t FROM StationTombstone t WHERE t.deletedTimestamp >= :timestamp"
+        + " AND (t.deletedTimestamp > :timestamp OR t.id > :id) AND t.deletedTimestamp <= :until"
+        + " ORDER BY t.deletedTimestamp, t.id")
+    List<StationTombstone> findDeletedAfter(@Param("timestamp") LocalDateTime timestamp,
+        @Param("id") Long id, @Param("until") LocalDateTime until, Pageable pageable);
+
+    /**
+     * Proxy method to delete the tombstones of the stations deleted before the given time.
+     *
+     * @param timestamp time before which the tombstones are deleted
+     * @return number of tombstones deleted
+     */
+    @Modifying
+    @Query("DELETE FROM StationTombstone t WHERE t.deletedTimestamp < :timestamp")
+    int deleteDeletedBefore(@Param("timestamp") LocalDateTime timestamp);
+}
@@ -0,0 +1,140 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.model.Station;
+import com.iheartmedia.repository.IStationRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory view of the HD enabled stations, ordered by station id.
+ *
+ * <p>The view is loaded from the repository once the application is ready, and is then maintained
+ * incrementally from the {@link StationMutationEvent}s published by the service layer, once the
+ * mutations have been committed. Reads never touch the database, and never block writers.
+ *
+ * <p>The events are applied in version order, so that the event of a mutation that is delivered
+ * after the event of a later mutation of the same station is discarded.
+ *
+ * <p>Stations written to the repository without going through the service layer are not picked up
+ * until the view is {@link #rebuild() rebuilt}. The size of the view is published as the
+ * {@code station.hd.index.size} gauge.
+ */
+@Component
+@ConditionalOnProperty(name = "iheartmedia.replica.enabled", havingValue = "false",
+    matchIfMissing = true)
+public class HdStationIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HdStationIndex.class);
+
+  private final IStationRepository stationRepository;
+
+  // Detached snapshots of the HD enabled stations keyed by station id.
+  private final ConcurrentSkipListMap<String, Station> stations = new ConcurrentSkipListMap<>();
+
+  private final StationVersions versions = new StationVersions();
+
+  @Autowired
+  public HdStationIndex(IStationRepository stationRepository, MeterRegistry meterRegistry) {
+    this.stationRepository = stationRepository;
+    meterRegistry.gauge("station.hd.index.size", this.stations, ConcurrentSkipListMap::size);
+  }
+
+  /**
+   * Reloads the view from the repository.
+   *
+   * <p>The events are held off while the stations are read, so that the event of a mutation that
+   * is committed meanwhile is applied after the view has been reloaded, rather than overwritten.
+   * The view is reloaded in place, so that the readers never see it empty.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void rebuild() {
+    List<Station> hdStations = this.stationRepository.findHdEnabledStations();
+    Set<String> stationIds = new HashSet<>();
+    for (Station station : hdStations) {
+      stationIds.add(station.getStationId());
+      this.stations.put(station.getStationId(), station.copy());
+    }
+    this.stations.keySet().retainAll(stationIds);
+    LOG.info("Loaded {} HD enabled stations", this.stations.size());
+  }
+
+  /**
+   * Returns the HD enabled stations that follow the station id, in the order of their station ids.
+   *
+   * <p>The returned stations are shared snapshots, and must not be modified.
+   *
+   * @param afterStationId station id after which the stations are returned, or {@code null} to
+   *     return the stations from the beginning
+   * @param limit maximum number of stations to be returned
+   * @return stations
+   */
+  public List<Station> page(String afterStationId, int limit) {
+    Collection<Station> candidates = afterStationId == null
+        ? this.stations.values()
+        : this.stations.tailMap(afterStationId, false).values();
+    List<Station> page = new ArrayList<>(Math.min(limit, this.stations.size()));
+    for (Station station : candidates) {
+      if (page.size() == limit) {
+        break;
+      }
+      page.add(station);
+    }
+    return page;
+  }
+
+  /**
+   * Applies the committed mutation to the view.
+   *
+   * @param event mutation event
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onStationMutation(StationMutationEvent event) {
+    Station previous = event.getPrevious();
+    Station current = event.getCurrent();
+    if (!this.versions.advance(event) || isStale(current)) {
+      LOG.debug("Discarded a stale mutation event of station {}",
+          (current == null ? previous : current).getStationId());
+      return;
+    }
+    if (previous != null
+        && (current == null || !previous.getStationId().equals(current.getStationId()))) {
+      this.stations.remove(previous.getStationId());
+    }
+    if (current != null) {
+      if (Boolean.TRUE.equals(current.getHdEnabled())) {
+        this.stations.put(current.getStationId(), current.copy());
+      } else {
+        this.stations.remove(current.getStationId());
+      }
+    }
+  }
+
+  // A station loaded by a rebuild may be more recent than the event.
+  private boolean isStale(Station current) {
+    if (current == null || current.getVersion() == null) {
+      return false;
+    }
+    Station held = this.stations.get(current.getStationId());
+    return held != null && Objects.equals(held.getId(), current.getId())
+        && held.getVersion() != null
+        && held.getVersion() > current.getVersion();
+  }
+}
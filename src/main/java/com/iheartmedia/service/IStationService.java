@@ -1,15 +1,28 @@
 // Copyright 2018 Kartik Krishnanand. All Rights Reserved.
 package com.iheartmedia.service;
 
+import com.iheartmedia.dto.StationCatalogVersion;
+import com.iheartmedia.dto.StationDeletion;
+import com.iheartmedia.dto.StationDeletionRequest;
+import com.iheartmedia.dto.StationDelta;
+import com.iheartmedia.dto.StationLookup;
+import com.iheartmedia.dto.StationLookupRequest;
 import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
 import com.iheartmedia.model.Station;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * Strategy definition of all the methods that define all the methods related to manipulation of
  * station related data.
+ *
+ * <p>The stations are not validated by the persistence layer on every insert and update, so the
+ * callers are expected to validate them first, e.g. with the
+ * {@link com.iheartmedia.utils.StationValidator}. The stations that do not satisfy the constraints
+ * declared on {@link Station} are nonetheless refused by the methods that create them.
  */
 public interface IStationService {
 
@@ -18,15 +31,104 @@ public interface IStationService {
      * repository.
      *
      * @return mixin instance instance encapsulating the details of the newly created station
+     * @throws IllegalArgumentException if the station does not satisfy the constraints declared on
+     *     {@link Station}
      */
     StationMixin createStation(Station valueObject);
 
+    /**
+     * A strategy definition of the method to create the stations in a single transaction.
+     *
+     * <p>Either all the stations are persisted or none of them are.
+     *
+     * @param valueObjects stations to be created
+     * @return mixin instances encapsulating the details of the newly created stations, in the
+     *     order of the stations
+     * @throws IllegalArgumentException if any of the stations does not satisfy the constraints
+     *     declared on {@link Station}, in which case none of them are persisted
+     */
+    List<StationMixin> createStations(List<Station> valueObjects);
+
     /**
      * Strategy definition to return all stations.
      * @return set of all stations
      */
     List<Station> retrieveAllStations();
 
+    /**
+     * Strategy definition to stream all stations to the consumer one station at a time.
+     *
+     * <p>Unlike {@link #retrieveAllStations()}, the stations are not materialised in memory all at
+     * once.
+     *
+     * @param consumer consumer to which each station is handed over
+     */
+    void streamAllStations(Consumer<Station> consumer);
+
+    /**
+     * Strategy definition to summarise the state of all the stations without loading them.
+     *
+     * @return summary of all the stations
+     */
+    StationCatalogVersion retrieveCatalogVersion();
+
+    /**
+     * Strategy definition to return a single page of stations.
+     *
+     * @param continuationToken opaque token returned with the previous page, or {@code null} for
+     *     the first page
+     * @param limit maximum number of stations to be returned, or {@code null} for the default
+     *     page size
+     * @param locale locale object
+     * @return page of stations
+     */
+    StationPage retrieveStationPage(String continuationToken, Integer limit, Locale locale);
+
+    /**
+     * Strategy definition to return a single page of HD enabled stations, ordered by station id.
+     *
+     * <p>The stations are served from memory rather than from the database.
+     *
+     * @param continuationToken opaque token returned with the previous page, or {@code null} for
+     *     the first page
+     * @param limit maximum number of stations to be returned, or {@code null} for the default
+     *     page size
+     * @param locale locale object
+     * @return page of stations
+     */
+    StationPage retrieveHdStationPage(String continuationToken, Integer limit, Locale locale);
+
+    /**
+     * Strategy definition to search the stations by station name and call sign.
+     *
+     * <p>The stations are matched by prefix, ignoring case and accents, and by prefixes that are
+     * within a few edits of the query. They are served from memory, ranked by how well they match.
+     *
+     * @param query query
+     * @param continuationToken opaque token returned with the previous page, or {@code null} for
+     *     the first page
+     * @param limit maximum number of stations to be returned, or {@code null} for the default
+     *     page size
+     * @param locale locale object
+     * @return page of stations
+     */
+    StationPage searchStations(String query, String continuationToken, Integer limit,
+        Locale locale);
+
+    /**
+     * Strategy definition to return the stations created, updated or deleted since a point in
+     * time, ordered by the time of the change.
+     *
+     * @param since either a time, in milliseconds since the epoch or as an ISO-8601 instant, after
+     *     which the changes are returned, or the continuation token returned with the previous
+     *     delta, or {@code null} to start from the beginning
+     * @param limit maximum number of changes to be returned, or {@code null} for the default page
+     *     size
+     * @param locale locale object
+     * @return delta of stations
+     */
+    StationDelta retrieveStationChanges(String since, Integer limit, Locale locale);
+
     /**
      * Strategy definition of the class invoked to update the stations by station id.
      *
@@ -37,6 +139,20 @@ public interface IStationService {
 
     StationMixin updateStation(String stationId, StationMixin stationMixin, Locale locale);
 
+    /**
+     * Strategy definition of the class invoked to update the stations by station id, provided that
+     * the station matches one of the entity tags.
+     *
+     * @param stationId station id for which the data is to be updated
+     * @param stationMixin station instance encapsulation the data to be updated
+     * @param ifMatch value of the {@code If-Match} header, or {@code null} for an unconditional
+     *     update
+     * @return mixin instance representing the updated station information, or a failed
+     *     precondition
+     */
+    StationMixin updateStation(String stationId, StationMixin stationMixin, String ifMatch,
+        Locale locale);
+
     /**
      * Returns station by station id.
      *
@@ -51,6 +167,17 @@ public interface IStationService {
      */
     StationMixin retrieveStationByStationName(String stationName, Locale locale);
 
+    /**
+     * Retrieves several stations by station ids and station names at once.
+     *
+     * <p>The stations that have not been cached are fetched in a single query per kind of key.
+     *
+     * @param lookupRequest station ids and station names to be looked up
+     * @param locale locale object
+     * @return outcome of the lookup of each station id and station name
+     */
+    StationLookup lookupStations(StationLookupRequest lookupRequest, Locale locale);
+
     /**
      * Retrieves all stations which are HD enabled.
      *
@@ -65,4 +192,26 @@ public interface IStationService {
      * @return mixin object
      */
     StationMixin deleteStationByStationId(String stationId, Locale locale);
+
+    /**
+     * Stategy definition to delete station, provided that the station matches one of the entity
+     * tags.
+     *
+     * @param stationId station id of the station to be deleted
+     * @param ifMatch value of the {@code If-Match} header, or {@code null} for an unconditional
+     *     deletion
+     * @return mixin object, or a failed precondition
+     */
+    StationMixin deleteStationByStationId(String stationId, String ifMatch, Locale locale);
+
+    /**
+     * Stategy definition to delete several stations by station ids in a single transaction.
+     *
+     * <p>The stations are deleted with a single statement rather than a statement per station.
+     *
+     * @param deletionRequest station ids of the stations to be deleted
+     * @param locale locale object
+     * @return outcome of the deletion of each station id
+     */
+    StationDeletion deleteStations(StationDeletionRequest deletionRequest, Locale locale);
 }
@@ -0,0 +1,524 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.dto.StationCatalogVersion;
+import com.iheartmedia.model.Station;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, compact binary snapshot of all the stations, read in place from a memory mapped file.
+ *
+ * <p>The snapshot is laid out as follows, so that a lookup reads a handful of bytes off the
+ * mapping, and only allocates the station that it returns:
+ *
+ * <ul>
+ *   <li>a header, with the number of stations and the version of the catalogue;</li>
+ *   <li>a record of fixed width per station, ordered by station id, which refers to its strings
+ *       by index;</li>
+ *   <li>the record indexes ordered by primary key;</li>
+ *   <li>a bitmap of the HD enabled stations, in the order of the records;</li>
+ *   <li>the offsets of the strings, followed by open addressing hash indexes of the records by
+ *       station id and by station name;</li>
+ *   <li>the distinct strings, sorted and encoded as UTF-8.</li>
+ * </ul>
+ *
+ * <p>The snapshot is built by a {@link Builder}. As it is mapped as a single buffer, a snapshot is
+ * at most 2 GB, which is about 20 million stations.
+ */
+public final class MappedStationSnapshot {
+
+  private static final int MAGIC = 0x53544e31;
+
+  private static final int HEADER_SIZE = 64;
+
+  private static final int RECORD_SIZE = 48;
+
+  // Offsets of the header fields.
+  private static final int COUNT = 4;
+
+  private static final int STRING_COUNT = 8;
+
+  private static final int INDEX_SLOTS = 12;
+
+  private static final int MAX_ID = 16;
+
+  private static final int VERSION_SUM = 24;
+
+  private static final int LAST_MODIFIED_SECONDS = 32;
+
+  private static final int LAST_MODIFIED_NANOS = 40;
+
+  private static final int STRING_DATA_LENGTH = 44;
+
+  // Offsets of the record fields.
+  private static final int ID = 0;
+
+  private static final int VERSION = 8;
+
+  private static final int STATION_ID = 12;
+
+  private static final int STATION_NAME = 16;
+
+  private static final int CALL_SIGN = 20;
+
+  private static final int CREATED_SECONDS = 24;
+
+  private static final int CREATED_NANOS = 32;
+
+  private static final int UPDATED_SECONDS = 36;
+
+  private static final int UPDATED_NANOS = 44;
+
+  // Index of an absent string, and seconds of an absent timestamp.
+  private static final int NULL_STRING = -1;
+
+  private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+  private final ByteBuffer buffer;
+
+  private final int count;
+
+  private final int indexSlots;
+
+  private final int idOrderOffset;
+
+  private final int hdBitmapOffset;
+
+  private final int stringOffsetsOffset;
+
+  private final int stationIdIndexOffset;
+
+  private final int stationNameIndexOffset;
+
+  private final int stringDataOffset;
+
+  private final StationCatalogVersion catalogVersion;
+
+  private MappedStationSnapshot(ByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a station snapshot");
+    }
+    this.buffer = buffer;
+    this.count = buffer.getInt(COUNT);
+    this.indexSlots = buffer.getInt(INDEX_SLOTS);
+    this.idOrderOffset = HEADER_SIZE + this.count * RECORD_SIZE;
+    this.hdBitmapOffset = this.idOrderOffset + this.count * 4;
+    this.stringOffsetsOffset = this.hdBitmapOffset + bitmapWords(this.count) * 8;
+    this.stationIdIndexOffset = this.stringOffsetsOffset + (buffer.getInt(STRING_COUNT) + 1) * 4;
+    this.stationNameIndexOffset = this.stationIdIndexOffset + this.indexSlots * 4;
+    this.stringDataOffset = this.stationNameIndexOffset + this.indexSlots * 4;
+    if ((long) this.stringDataOffset + buffer.getInt(STRING_DATA_LENGTH) != buffer.capacity()) {
+      throw new IOException("Station snapshot is truncated");
+    }
+    this.catalogVersion = new StationCatalogVersion((long) this.count, buffer.getLong(MAX_ID),
+        buffer.getLong(VERSION_SUM),
+        timestamp(buffer.getLong(LAST_MODIFIED_SECONDS), buffer.getInt(LAST_MODIFIED_NANOS)));
+  }
+
+  /**
+   * Maps the snapshot in the file.
+   *
+   * <p>The file is mapped read only, and may be replaced, but not modified, while it is mapped.
+   *
+   * @param file file written by {@link Builder#writeTo(Path)}
+   * @return snapshot
+   * @throws IOException if the file can not be read, or is not a snapshot
+   */
+  public static MappedStationSnapshot open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Station snapshot is larger than 2 GB");
+      }
+      return new MappedStationSnapshot(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Returns a snapshot without any stations.
+   */
+  public static MappedStationSnapshot empty() {
+    return new Builder().build();
+  }
+
+  /**
+   * Returns the number of stations.
+   */
+  public int size() {
+    return this.count;
+  }
+
+  /**
+   * Returns the version of the catalogue, as of when the snapshot was built.
+   */
+  public StationCatalogVersion getCatalogVersion() {
+    return this.catalogVersion;
+  }
+
+  /**
+   * Returns the station by station id.
+   *
+   * @param stationId station id
+   * @return station, or {@code null} if there is no such station
+   */
+  public Station findByStationId(String stationId) {
+    int record = find(this.stationIdIndexOffset, STATION_ID, stationId);
+    return record < 0 ? null : station(record);
+  }
+
+  /**
+   * Returns the station by station name.
+   *
+   * @param stationName station name
+   * @return station, or {@code null} if there is no such station
+   */
+  public Station findByStationName(String stationName) {
+    int record = find(this.stationNameIndexOffset, STATION_NAME, stationName);
+    return record < 0 ? null : station(record);
+  }
+
+  /**
+   * Hands over all the stations to the consumer, ordered by primary key.
+   *
+   * @param consumer consumer to which each station is handed over
+   */
+  public void forEach(Consumer<Station> consumer) {
+    for (int i = 0; i < this.count; i++) {
+      consumer.accept(station(this.buffer.getInt(this.idOrderOffset + i * 4)));
+    }
+  }
+
+  /**
+   * Returns the stations that succeed the primary key, ordered by primary key.
+   *
+   * @param afterId primary key after which the stations are returned
+   * @param limit maximum number of stations to be returned
+   * @return stations
+   */
+  public List<Station> pageById(long afterId, int limit) {
+    int low = 0;
+    int high = this.count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (id(this.buffer.getInt(this.idOrderOffset + middle * 4)) <= afterId) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    List<Station> stations = new ArrayList<>(Math.min(limit, this.count - low));
+    for (int i = low; i < this.count && stations.size() < limit; i++) {
+      stations.add(station(this.buffer.getInt(this.idOrderOffset + i * 4)));
+    }
+    return stations;
+  }
+
+  /**
+   * Returns the HD enabled stations that succeed the station id, ordered by station id.
+   *
+   * <p>The bitmap is scanned a word at a time, so that 64 stations that are not HD enabled are
+   * skipped at once.
+   *
+   * @param afterStationId station id after which the stations are returned, or {@code null} to
+   *     start from the first station
+   * @param limit maximum number of stations to be returned
+   * @return stations
+   */
+  public List<Station> pageHdByStationId(String afterStationId, int limit) {
+    int low = 0;
+    if (afterStationId != null) {
+      int high = this.count;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (string(recordInt(middle, STATION_ID)).compareTo(afterStationId) <= 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+    }
+    List<Station> stations = new ArrayList<>();
+    int words = bitmapWords(this.count);
+    for (int word = low >>> 6; word < words && stations.size() < limit; word++) {
+      long bits = this.buffer.getLong(this.hdBitmapOffset + word * 8);
+      if (word == low >>> 6) {
+        bits &= -1L << (low & 63);
+      }
+      while (bits != 0 && stations.size() < limit) {
+        stations.add(station((word << 6) + Long.numberOfTrailingZeros(bits)));
+        bits &= bits - 1;
+      }
+    }
+    return stations;
+  }
+
+  private int find(int indexOffset, int field, String key) {
+    if (key == null || this.indexSlots == 0) {
+      return -1;
+    }
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    int mask = this.indexSlots - 1;
+    for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+      int entry = this.buffer.getInt(indexOffset + slot * 4);
+      if (entry == 0) {
+        return -1;
+      }
+      if (stringEquals(recordInt(entry - 1, field), bytes)) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private boolean stringEquals(int string, byte[] bytes) {
+    int start = this.buffer.getInt(this.stringOffsetsOffset + string * 4);
+    int end = this.buffer.getInt(this.stringOffsetsOffset + string * 4 + 4);
+    if (end - start != bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (this.buffer.get(this.stringDataOffset + start + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String string(int string) {
+    if (string == NULL_STRING) {
+      return null;
+    }
+    int start = this.buffer.getInt(this.stringOffsetsOffset + string * 4);
+    int end = this.buffer.getInt(this.stringOffsetsOffset + string * 4 + 4);
+    byte[] bytes = new byte[end - start];
+    // Duplicated so that concurrent readers do not share the position of the buffer.
+    ByteBuffer data = this.buffer.duplicate();
+    data.position(this.stringDataOffset + start);
+    data.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private long id(int record) {
+    return this.buffer.getLong(HEADER_SIZE + record * RECORD_SIZE + ID);
+  }
+
+  private int recordInt(int record, int field) {
+    return this.buffer.getInt(HEADER_SIZE + record * RECORD_SIZE + field);
+  }
+
+  private Station station(int record) {
+    int offset = HEADER_SIZE + record * RECORD_SIZE;
+    Station station = new Station();
+    station.setId(this.buffer.getLong(offset + ID));
+    station.setVersion(this.buffer.getInt(offset + VERSION));
+    station.setStationId(string(this.buffer.getInt(offset + STATION_ID)));
+    station.setStationName(string(this.buffer.getInt(offset + STATION_NAME)));
+    station.setCallSign(string(this.buffer.getInt(offset + CALL_SIGN)));
+    station.setCreatedTimeStamp(timestamp(this.buffer.getLong(offset + CREATED_SECONDS),
+        this.buffer.getInt(offset + CREATED_NANOS)));
+    station.setUpdatedTimestamp(timestamp(this.buffer.getLong(offset + UPDATED_SECONDS),
+        this.buffer.getInt(offset + UPDATED_NANOS)));
+    long bits = this.buffer.getLong(this.hdBitmapOffset + (record >>> 6) * 8);
+    station.setHdEnabled((bits & (1L << (record & 63))) != 0);
+    return station;
+  }
+
+  private static LocalDateTime timestamp(long seconds, int nanos) {
+    return seconds == NULL_TIMESTAMP
+        ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+  }
+
+  private static int bitmapWords(int count) {
+    return (count + 63) >>> 6;
+  }
+
+  private static int hash(String key) {
+    int hash = key.hashCode() * 0x9e3779b9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Builds a snapshot from the stations added to it.
+   *
+   * <p>The stations are held on the heap until the snapshot is built, so a builder is meant to be
+   * used on the primary, where the stations are streamed from the database.
+   */
+  public static final class Builder {
+
+    private final List<Station> stations = new ArrayList<>();
+
+    /**
+     * Adds a copy of the station to the snapshot.
+     *
+     * @param station station, which must have a distinct station id and station name
+     */
+    public void add(Station station) {
+      this.stations.add(station.copy());
+    }
+
+    /**
+     * Builds the snapshot on the heap.
+     */
+    public MappedStationSnapshot build() {
+      try {
+        return new MappedStationSnapshot(encode());
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    /**
+     * Writes the snapshot to the file, which is replaced if it exists.
+     *
+     * <p>The file is not written atomically, so a snapshot that is to be replaced while it is
+     * mapped is written to another file first, and then moved in place.
+     *
+     * @param file file to be written
+     * @throws IOException if the file can not be written
+     */
+    public void writeTo(Path file) throws IOException {
+      ByteBuffer buffer = encode();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(false);
+      }
+    }
+
+    private ByteBuffer encode() {
+      List<Station> records = new ArrayList<>(this.stations);
+      records.sort(Comparator.comparing(Station::getStationId));
+      int count = records.size();
+
+      // Sorted distinct strings, numbered in order.
+      TreeMap<String, Integer> strings = new TreeMap<>();
+      for (Station station : records) {
+        strings.put(station.getStationId(), 0);
+        strings.put(station.getStationName(), 0);
+        if (station.getCallSign() != null) {
+          strings.put(station.getCallSign(), 0);
+        }
+      }
+      List<byte[]> encodedStrings = new ArrayList<>(strings.size());
+      long stringDataLength = 0;
+      for (String string : strings.keySet()) {
+        strings.put(string, encodedStrings.size());
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        encodedStrings.add(bytes);
+        stringDataLength += bytes.length;
+      }
+
+      int indexSlots = count == 0 ? 0 : Integer.highestOneBit(count * 2 - 1) << 1;
+      long size = HEADER_SIZE + (long) count * RECORD_SIZE + count * 4L
+          + bitmapWords(count) * 8L + (strings.size() + 1) * 4L + indexSlots * 8L
+          + stringDataLength;
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Station snapshot would be larger than 2 GB");
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+      long maxId = 0L;
+      long versionSum = 0L;
+      LocalDateTime lastModified = null;
+      int[] stationIdIndex = new int[indexSlots];
+      int[] stationNameIndex = new int[indexSlots];
+      long[] hdBitmap = new long[bitmapWords(count)];
+      buffer.position(HEADER_SIZE);
+      for (int record = 0; record < count; record++) {
+        Station station = records.get(record);
+        long id = station.getId() == null ? 0L : station.getId();
+        int version = station.getVersion() == null ? 0 : station.getVersion();
+        buffer.putLong(id);
+        buffer.putInt(version);
+        buffer.putInt(strings.get(station.getStationId()));
+        buffer.putInt(strings.get(station.getStationName()));
+        buffer.putInt(station.getCallSign() == null
+            ? NULL_STRING : strings.get(station.getCallSign()));
+        putTimestamp(buffer, station.getCreatedTimeStamp());
+        putTimestamp(buffer, station.getUpdatedTimestamp());
+        if (Boolean.TRUE.equals(station.getHdEnabled())) {
+          hdBitmap[record >>> 6] |= 1L << (record & 63);
+        }
+        index(stationIdIndex, station.getStationId(), record);
+        index(stationNameIndex, station.getStationName(), record);
+        maxId = Math.max(maxId, id);
+        versionSum += version;
+        if (station.getUpdatedTimestamp() != null && (lastModified == null
+            || station.getUpdatedTimestamp().isAfter(lastModified))) {
+          lastModified = station.getUpdatedTimestamp();
+        }
+      }
+
+      Integer[] idOrder = new Integer[count];
+      for (int record = 0; record < count; record++) {
+        idOrder[record] = record;
+      }
+      Arrays.sort(idOrder, Comparator.comparing(record -> records.get(record).getId(),
+          Comparator.nullsFirst(Comparator.naturalOrder())));
+      for (int record : idOrder) {
+        buffer.putInt(record);
+      }
+      for (long word : hdBitmap) {
+        buffer.putLong(word);
+      }
+      int stringOffset = 0;
+      buffer.putInt(stringOffset);
+      for (byte[] bytes : encodedStrings) {
+        stringOffset += bytes.length;
+        buffer.putInt(stringOffset);
+      }
+      for (int entry : stationIdIndex) {
+        buffer.putInt(entry);
+      }
+      for (int entry : stationNameIndex) {
+        buffer.putInt(entry);
+      }
+      for (byte[] bytes : encodedStrings) {
+        buffer.put(bytes);
+      }
+
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(COUNT, count);
+      buffer.putInt(STRING_COUNT, strings.size());
+      buffer.putInt(INDEX_SLOTS, indexSlots);
+      buffer.putLong(MAX_ID, maxId);
+      buffer.putLong(VERSION_SUM, versionSum);
+      buffer.putLong(LAST_MODIFIED_SECONDS, lastModified == null
+          ? NULL_TIMESTAMP : lastModified.toEpochSecond(ZoneOffset.UTC));
+      buffer.putInt(LAST_MODIFIED_NANOS, lastModified == null ? 0 : lastModified.getNano());
+      buffer.putInt(STRING_DATA_LENGTH, (int) stringDataLength);
+      buffer.rewind();
+      return buffer;
+    }
+
+    private static void putTimestamp(ByteBuffer buffer, LocalDateTime timestamp) {
+      buffer.putLong(timestamp == null ? NULL_TIMESTAMP : timestamp.toEpochSecond(ZoneOffset.UTC));
+      buffer.putInt(timestamp == null ? 0 : timestamp.getNano());
+    }
+
+    // Entries are one more than the record, so that an empty slot is zero.
+    private static void index(int[] index, String key, int record) {
+      int mask = index.length - 1;
+      int slot = hash(key) & mask;
+      while (index[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      index[slot] = record + 1;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.dto.StationCatalogVersion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Publishes the {@link MappedStationSnapshot} served by the {@link ReplicaStationService} of the
+ * replicas.
+ *
+ * <p>The snapshot is rebuilt from the database every
+ * {@code iheartmedia.replica.publish.refresh-millis} if the catalogue has changed since, and is
+ * published to {@code iheartmedia.replica.snapshot.path}, which is expected to be shared with, or
+ * copied to, the replicas. The snapshot is written next to the published file, and then moved in
+ * place, so that a replica never maps a partially written snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "iheartmedia.replica.publish.enabled", havingValue = "true")
+public class ReplicaSnapshotPublisher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicaSnapshotPublisher.class);
+
+  private final IStationService stationService;
+
+  private final Path snapshotPath;
+
+  private StationCatalogVersion publishedVersion;
+
+  @Autowired
+  public ReplicaSnapshotPublisher(IStationService stationService,
+      @Value("${iheartmedia.replica.snapshot.path:./data/stations.snapshot}") String snapshotPath) {
+    this.stationService = stationService;
+    this.snapshotPath = Paths.get(snapshotPath).toAbsolutePath();
+  }
+
+  /**
+   * Publishes the snapshot if the catalogue has changed since the snapshot was last published.
+   *
+   * <p>The version of the catalogue is read before the stations are, so that the changes made
+   * while the snapshot is being built are published by the next refresh.
+   */
+  @Scheduled(fixedDelayString = "${iheartmedia.replica.publish.refresh-millis:60000}")
+  public synchronized void publish() {
+    StationCatalogVersion catalogVersion;
+    try {
+      catalogVersion = this.stationService.retrieveCatalogVersion();
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to check whether the stations have changed", e);
+      return;
+    }
+    if (catalogVersion.equals(this.publishedVersion)) {
+      return;
+    }
+    Path temporaryFile = this.snapshotPath.resolveSibling(this.snapshotPath.getFileName() + ".tmp");
+    try {
+      MappedStationSnapshot.Builder builder = new MappedStationSnapshot.Builder();
+      this.stationService.streamAllStations(builder::add);
+      Files.createDirectories(this.snapshotPath.getParent());
+      builder.writeTo(temporaryFile);
+      Files.move(temporaryFile, this.snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      this.publishedVersion = catalogVersion;
+      LOG.info("Published snapshot of {} stations to {}", catalogVersion.getCount(),
+          this.snapshotPath);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Unable to publish snapshot to {}", this.snapshotPath, e);
+    }
+  }
+}
@@ -0,0 +1,340 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.dto.GetStationMixin;
+import com.iheartmedia.dto.StationCatalogVersion;
+import com.iheartmedia.dto.StationDeletion;
+import com.iheartmedia.dto.StationDeletionRequest;
+import com.iheartmedia.dto.StationDelta;
+import com.iheartmedia.dto.StationLookup;
+import com.iheartmedia.dto.StationLookupRequest;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
+import com.iheartmedia.model.ErrorCodes;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.utils.ContinuationTokens;
+import com.iheartmedia.utils.ReadOnlyReplicaException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.MessageSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Read only implementation of {@link IStationService} for the replicas, which serves the stations
+ * from a {@link MappedStationSnapshot} rather than from the database.
+ *
+ * <p>The snapshot is published to {@code iheartmedia.replica.snapshot.path} by the
+ * {@link ReplicaSnapshotPublisher} of the primary. It is mapped at startup, and is swapped for the
+ * published one every {@code iheartmedia.replica.snapshot.reload-millis} once the file has been
+ * replaced. A request is served entirely from the snapshot that was current when it started.
+ *
+ * <p>The stations can be fetched by station id and by station name, looked up and listed. The
+ * mutations, the searches and the syncs are only served by the primary, and are rejected with a
+ * {@link ReadOnlyReplicaException}, which tells the mutations apart from the reads that are not
+ * supported. The number of stations in the snapshot is published as the
+ * {@code station.replica.snapshot.size} gauge.
+ */
+@Service
+@ConditionalOnProperty(name = "iheartmedia.replica.enabled", havingValue = "true")
+public class ReplicaStationService implements IStationService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicaStationService.class);
+
+  @Autowired
+  private MessageSource messageSource;
+
+  @Value("${iheartmedia.stations.page.default-limit:100}")
+  private int defaultPageLimit;
+
+  @Value("${iheartmedia.stations.page.max-limit:1000}")
+  private int maxPageLimit;
+
+  @Value("${iheartmedia.stations.lookup.max-keys:100}")
+  private int maxLookupKeys;
+
+  private final Path snapshotPath;
+
+  private volatile MappedStationSnapshot snapshot = MappedStationSnapshot.empty();
+
+  // Identity and modification time of the file that the snapshot was mapped from.
+  private Object snapshotFileKey;
+
+  private long snapshotModifiedMillis = Long.MIN_VALUE;
+
+  @Autowired
+  public ReplicaStationService(
+      @Value("${iheartmedia.replica.snapshot.path:./data/stations.snapshot}") String snapshotPath,
+      MeterRegistry meterRegistry) {
+    this.snapshotPath = Paths.get(snapshotPath);
+    meterRegistry.gauge("station.replica.snapshot.size", this,
+        service -> service.snapshot.size());
+    reload();
+  }
+
+  /**
+   * Maps the published snapshot if the file has been replaced since it was last mapped.
+   *
+   * <p>The current snapshot is kept if the file is missing or can not be mapped.
+   */
+  @Scheduled(fixedDelayString = "${iheartmedia.replica.snapshot.reload-millis:10000}")
+  public synchronized void reload() {
+    try {
+      BasicFileAttributes attributes =
+          Files.readAttributes(this.snapshotPath, BasicFileAttributes.class);
+      long modifiedMillis = attributes.lastModifiedTime().toMillis();
+      if (Objects.equals(attributes.fileKey(), this.snapshotFileKey)
+          && modifiedMillis == this.snapshotModifiedMillis) {
+        return;
+      }
+      MappedStationSnapshot snapshot = MappedStationSnapshot.open(this.snapshotPath);
+      this.snapshot = snapshot;
+      this.snapshotFileKey = attributes.fileKey();
+      this.snapshotModifiedMillis = modifiedMillis;
+      LOG.info("Mapped snapshot of {} stations", snapshot.size());
+    } catch (NoSuchFileException e) {
+      LOG.warn("Snapshot {} has not been published yet", this.snapshotPath);
+    } catch (IOException e) {
+      LOG.warn("Unable to map snapshot {}", this.snapshotPath, e);
+    }
+  }
+
+  @Override
+  public StationMixin createStation(Station valueObject) {
+    throw new ReadOnlyReplicaException("createStation", true);
+  }
+
+  @Override
+  public List<StationMixin> createStations(List<Station> valueObjects) {
+    throw new ReadOnlyReplicaException("createStations", true);
+  }
+
+  @Override
+  public List<Station> retrieveAllStations() {
+    MappedStationSnapshot snapshot = this.snapshot;
+    List<Station> stations = new ArrayList<>(snapshot.size());
+    snapshot.forEach(stations::add);
+    return stations;
+  }
+
+  @Override
+  public void streamAllStations(Consumer<Station> consumer) {
+    this.snapshot.forEach(consumer);
+  }
+
+  @Override
+  public StationCatalogVersion retrieveCatalogVersion() {
+    return this.snapshot.getCatalogVersion();
+  }
+
+  @Override
+  public StationPage retrieveStationPage(String continuationToken, Integer limit,
+      Locale locale) {
+    StationPage page = new StationPage();
+    Integer pageSize = resolvePageSize(page, limit, locale);
+    if (pageSize == null) {
+      return page;
+    }
+    Long lastId = Long.MIN_VALUE;
+    if (continuationToken != null) {
+      lastId = decodeStationPageToken(continuationToken);
+      if (lastId == null) {
+        addInvalidTokenError(page, continuationToken, locale);
+        return page;
+      }
+    }
+    // Fetch one more station than required to find out if there is a next page.
+    List<Station> stations = this.snapshot.pageById(lastId, pageSize + 1);
+    if (stations.size() > pageSize) {
+      stations = stations.subList(0, pageSize);
+      page.setContinuationToken(
+          ContinuationTokens.encode(stations.get(pageSize - 1).getId()));
+    }
+    page.setStations(stations);
+    return page;
+  }
+
+  @Override
+  public StationPage retrieveHdStationPage(String continuationToken, Integer limit,
+      Locale locale) {
+    StationPage page = new StationPage();
+    Integer pageSize = resolvePageSize(page, limit, locale);
+    if (pageSize == null) {
+      return page;
+    }
+    String lastStationId = null;
+    if (continuationToken != null) {
+      String[] values = ContinuationTokens.decode(continuationToken, 1);
+      if (values == null) {
+        addInvalidTokenError(page, continuationToken, locale);
+        return page;
+      }
+      lastStationId = values[0];
+    }
+    // Fetch one more station than required to find out if there is a next page.
+    List<Station> stations = this.snapshot.pageHdByStationId(lastStationId, pageSize + 1);
+    if (stations.size() > pageSize) {
+      stations = stations.subList(0, pageSize);
+      page.setContinuationToken(
+          ContinuationTokens.encode(stations.get(pageSize - 1).getStationId()));
+    }
+    page.setStations(stations);
+    return page;
+  }
+
+  @Override
+  public StationPage searchStations(String query, String continuationToken, Integer limit,
+      Locale locale) {
+    throw new ReadOnlyReplicaException("searchStations", false);
+  }
+
+  @Override
+  public StationDelta retrieveStationChanges(String since, Integer limit, Locale locale) {
+    throw new ReadOnlyReplicaException("retrieveStationChanges", false);
+  }
+
+  @Override
+  public StationMixin updateStation(String stationId, StationMixin stationMixin,
+      Locale locale) {
+    throw new ReadOnlyReplicaException("updateStation", true);
+  }
+
+  @Override
+  public StationMixin updateStation(String stationId, StationMixin stationMixin, String ifMatch,
+      Locale locale) {
+    throw new ReadOnlyReplicaException("updateStation", true);
+  }
+
+  @Override
+  public StationMixin retrieveStationByStationId(String stationId, Locale locale) {
+    return transformStationToMixin(this.snapshot.findByStationId(stationId), locale,
+        "station.not.found.station.id", stationId);
+  }
+
+  @Override
+  public StationMixin retrieveStationByStationName(String stationName, Locale locale) {
+    return transformStationToMixin(this.snapshot.findByStationName(stationName), locale,
+        "station.not.found.station.name", stationName);
+  }
+
+  @Override
+  public StationLookup lookupStations(StationLookupRequest lookupRequest, Locale locale) {
+    StationLookup lookup = new StationLookup();
+    Set<String> stationIds = distinctKeys(lookupRequest.getStationIds());
+    Set<String> stationNames = distinctKeys(lookupRequest.getStationNames());
+    int keys = stationIds.size() + stationNames.size();
+    if (keys > this.maxLookupKeys) {
+      lookup.addError(ErrorCodes.BAD_REQUEST,
+          this.messageSource.getMessage("station.lookup.limit.exceeded",
+              new Object[] {keys, this.maxLookupKeys}, locale));
+      return lookup;
+    }
+    MappedStationSnapshot snapshot = this.snapshot;
+    for (String stationId : stationIds) {
+      lookup.getStationIds().put(stationId, transformStationToMixin(
+          snapshot.findByStationId(stationId), locale, "station.not.found.station.id",
+          stationId));
+    }
+    for (String stationName : stationNames) {
+      lookup.getStationNames().put(stationName, transformStationToMixin(
+          snapshot.findByStationName(stationName), locale, "station.not.found.station.name",
+          stationName));
+    }
+    return lookup;
+  }
+
+  @Override
+  public List<Station> retrieveHdEnabledStations() {
+    return this.snapshot.pageHdByStationId(null, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public StationMixin deleteStationByStationId(String stationId, Locale locale) {
+    throw new ReadOnlyReplicaException("deleteStationByStationId", true);
+  }
+
+  @Override
+  public StationMixin deleteStationByStationId(String stationId, String ifMatch, Locale locale) {
+    throw new ReadOnlyReplicaException("deleteStationByStationId", true);
+  }
+
+  @Override
+  public StationDeletion deleteStations(StationDeletionRequest deletionRequest, Locale locale) {
+    throw new ReadOnlyReplicaException("deleteStations", true);
+  }
+
+  private Integer resolvePageSize(StationPage page, Integer limit, Locale locale) {
+    if (limit == null) {
+      limit = this.defaultPageLimit;
+    }
+    if (limit < 1) {
+      page.addError(ErrorCodes.BAD_REQUEST,
+          this.messageSource.getMessage("station.page.limit.invalid", new Object[] {limit},
+              locale));
+      return null;
+    }
+    return Math.min(limit, this.maxPageLimit);
+  }
+
+  private void addInvalidTokenError(StationPage page, String continuationToken, Locale locale) {
+    page.addError(ErrorCodes.BAD_REQUEST,
+        this.messageSource.getMessage("continuation.token.invalid",
+            new Object[] {continuationToken}, locale));
+  }
+
+  private static Long decodeStationPageToken(String continuationToken) {
+    String[] values = ContinuationTokens.decode(continuationToken, 1);
+    if (values == null) {
+      return null;
+    }
+    try {
+      return Long.valueOf(values[0]);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private StationMixin transformStationToMixin(Station station, Locale locale,
+      String errorMessageKey, Object ... errorArgs) {
+    StationMixin mixin = new GetStationMixin();
+    if (station == null) {
+      mixin.addError(ErrorCodes.NOT_FOUND,
+          this.messageSource.getMessage(errorMessageKey, errorArgs, locale));
+      return mixin;
+    }
+    mixin.buildMixin(station);
+    return mixin;
+  }
+
+  private static Set<String> distinctKeys(List<String> keys) {
+    Set<String> distinctKeys = new LinkedHashSet<>();
+    if (keys != null) {
+      for (String key : keys) {
+        if (key != null && !key.isEmpty()) {
+          distinctKeys.add(key);
+        }
+      }
+    }
+    return distinctKeys;
+  }
+}
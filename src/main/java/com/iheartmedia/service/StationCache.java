@@ -0,0 +1,259 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.iheartmedia.model.Station;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read through cache of stations keyed by both station id and station name.
+ *
+ * <p>The cache is bounded in size, and evicts stations using the W-TinyLFU policy. Stations that
+ * were not found are cached as well, albeit for a shorter duration. Once a mutation has been
+ * committed, the cache is refreshed with the current state of the station, and the keys that the
+ * station no longer goes by are invalidated, so that the cache never serves a renamed station
+ * under its old name. The keys of a mutated station are stamped with a generation as well, so that
+ * a batched load that read the station before the mutation was committed does not cache it again.
+ * The hit, miss and eviction counts are published as the {@code cache.*} metrics.
+ */
+@Component
+public class StationCache {
+
+  // A batched load that takes longer than the stamps are kept for is not cached.
+  private static final long STAMP_RETENTION_NANOS = TimeUnit.MINUTES.toNanos(1L);
+
+  private final Cache<String, Optional<Station>> stationsById;
+
+  private final Cache<String, Optional<Station>> stationsByName;
+
+  private final AtomicLong generation = new AtomicLong();
+
+  // Generation of the last mutation of the station that goes, or went, by the key.
+  private final Cache<String, Long> stationIdStamps = newStampCache();
+
+  private final Cache<String, Long> stationNameStamps = newStampCache();
+
+  @Autowired
+  public StationCache(
+      @Value("${iheartmedia.cache.stations.maximum-size:10000}") long maximumSize,
+      @Value("${iheartmedia.cache.stations.expire-after-write-seconds:300}") long ttlSeconds,
+      @Value("${iheartmedia.cache.stations.not-found-expire-after-write-seconds:30}")
+          long notFoundTtlSeconds,
+      MeterRegistry meterRegistry) {
+    this.stationsById = newCache(maximumSize, ttlSeconds, notFoundTtlSeconds);
+    this.stationsByName = newCache(maximumSize, ttlSeconds, notFoundTtlSeconds);
+    CaffeineCacheMetrics.monitor(meterRegistry, this.stationsById, "stations.byStationId");
+    CaffeineCacheMetrics.monitor(meterRegistry, this.stationsByName, "stations.byStationName");
+  }
+
+  private static Cache<String, Optional<Station>> newCache(
+      long maximumSize, long ttlSeconds, long notFoundTtlSeconds) {
+    long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    long notFoundTtlNanos = TimeUnit.SECONDS.toNanos(notFoundTtlSeconds);
+    return Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new Expiry<String, Optional<Station>>() {
+          @Override
+          public long expireAfterCreate(String key, Optional<Station> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : notFoundTtlNanos;
+          }
+
+          @Override
+          public long expireAfterUpdate(String key, Optional<Station> value, long currentTime,
+              long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+          }
+
+          @Override
+          public long expireAfterRead(String key, Optional<Station> value, long currentTime,
+              long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .recordStats()
+        .build();
+  }
+
+  private static Cache<String, Long> newStampCache() {
+    return Caffeine.newBuilder()
+        .expireAfterWrite(STAMP_RETENTION_NANOS, TimeUnit.NANOSECONDS)
+        .build();
+  }
+
+  /**
+   * Returns the station by station id, loading it if the station has not been cached.
+   *
+   * @param stationId station id
+   * @param loader function to load the station from the repository
+   * @return station, or {@code null} if no such station exists
+   */
+  public Station getByStationId(String stationId, Function<String, Station> loader) {
+    return get(this.stationsById, stationId, loader);
+  }
+
+  /**
+   * Returns the station by station name, loading it if the station has not been cached.
+   *
+   * @param stationName station name
+   * @param loader function to load the station from the repository
+   * @return station, or {@code null} if no such station exists
+   */
+  public Station getByStationName(String stationName, Function<String, Station> loader) {
+    return get(this.stationsByName, stationName, loader);
+  }
+
+  /**
+   * Returns the stations by station ids, loading the stations that have not been cached in a
+   * single invocation of the loader.
+   *
+   * @param stationIds station ids
+   * @param loader function to load the stations from the repository
+   * @return stations keyed by station id, excluding the station ids of which no station exists
+   */
+  public Map<String, Station> getAllByStationId(Collection<String> stationIds,
+      Function<Set<String>, List<Station>> loader) {
+    return getAll(this.stationsById, this.stationIdStamps, stationIds, loader,
+        Station::getStationId);
+  }
+
+  /**
+   * Returns the stations by station names, loading the stations that have not been cached in a
+   * single invocation of the loader.
+   *
+   * @param stationNames station names
+   * @param loader function to load the stations from the repository
+   * @return stations keyed by station name, excluding the station names of which no station exists
+   */
+  public Map<String, Station> getAllByStationName(Collection<String> stationNames,
+      Function<Set<String>, List<Station>> loader) {
+    return getAll(this.stationsByName, this.stationNameStamps, stationNames, loader,
+        Station::getStationName);
+  }
+
+  private Map<String, Station> getAll(Cache<String, Optional<Station>> cache,
+      Cache<String, Long> stamps, Collection<String> keys,
+      Function<Set<String>, List<Station>> loader, Function<Station, String> keyFunction) {
+    Map<String, Optional<Station>> cached = cache.getAllPresent(keys);
+    Set<String> missingKeys = new LinkedHashSet<>(keys);
+    missingKeys.removeAll(cached.keySet());
+    Map<String, Station> stations = new HashMap<>();
+    cached.forEach((key, station) -> station.ifPresent(s -> stations.put(key, s.copy())));
+    if (missingKeys.isEmpty()) {
+      return stations;
+    }
+    long loadGeneration = this.generation.get();
+    long loadStartNanos = System.nanoTime();
+    Map<String, Optional<Station>> loaded = new HashMap<>();
+    for (String key : missingKeys) {
+      loaded.put(key, Optional.empty());
+    }
+    for (Station station : loader.apply(missingKeys)) {
+      loaded.put(keyFunction.apply(station), Optional.of(station.copy()));
+    }
+    boolean stampsRetained = System.nanoTime() - loadStartNanos < STAMP_RETENTION_NANOS;
+    loaded.forEach((key, station) -> {
+      Optional<Station> current = cache.asMap().compute(key, (k, present) -> {
+        // A station refreshed by a mutation in the meantime is more recent than the loaded one.
+        if (present != null) {
+          return present;
+        }
+        // The station was mutated after it may have been read, so the loaded state may be stale.
+        Long stamp = stamps.getIfPresent(k);
+        if (!stampsRetained || (stamp != null && stamp > loadGeneration)) {
+          return null;
+        }
+        return station;
+      });
+      (current == null ? station : current).ifPresent(s -> stations.put(key, s.copy()));
+    });
+    return stations;
+  }
+
+  /**
+   * Returns the cached station by station id without loading it.
+   *
+   * @param stationId station id
+   * @return copy of the cached station, or {@code null} if the station has not been cached or
+   *     was not found
+   */
+  public Station peekByStationId(String stationId) {
+    Optional<Station> station = this.stationsById.getIfPresent(stationId);
+    return station == null ? null : station.map(Station::copy).orElse(null);
+  }
+
+  private static Station get(Cache<String, Optional<Station>> cache, String key,
+      Function<String, Station> loader) {
+    // The loaded station may be managed by the caller's persistence context, hence the copy.
+    return cache.get(key, k -> Optional.ofNullable(loader.apply(k)).map(Station::copy))
+        .orElse(null);
+  }
+
+  /**
+   * Refreshes the cached states of the mutated station once the mutation has been committed.
+   *
+   * <p>The keys of the previous state are invalidated unless the station still goes by them, so
+   * that neither a renamed station is served under its old name nor a deleted station is served
+   * at all. The current state is cached under its keys unless a more recent version of the station
+   * has already been cached, as the events of concurrent mutations may be delivered out of order.
+   *
+   * @param event mutation event
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onStationMutation(StationMutationEvent event) {
+    Station previous = event.getPrevious();
+    Station current = event.getCurrent();
+    // Stamped before the keys are invalidated, so that a batched load in flight sees the stamps.
+    long stamp = this.generation.incrementAndGet();
+    for (Station station : new Station[] {previous, current}) {
+      if (station != null) {
+        this.stationIdStamps.put(station.getStationId(), stamp);
+        this.stationNameStamps.put(station.getStationName(), stamp);
+      }
+    }
+    if (previous != null) {
+      if (current == null || !previous.getStationId().equals(current.getStationId())) {
+        this.stationsById.invalidate(previous.getStationId());
+      }
+      if (current == null || !previous.getStationName().equals(current.getStationName())) {
+        this.stationsByName.invalidate(previous.getStationName());
+      }
+    }
+    if (current != null) {
+      refresh(this.stationsById, current.getStationId(), current);
+      refresh(this.stationsByName, current.getStationName(), current);
+    }
+  }
+
+  private static void refresh(Cache<String, Optional<Station>> cache, String key,
+      Station station) {
+    cache.asMap().compute(key, (k, cached) -> {
+      if (cached != null && cached.isPresent() && station.getVersion() != null
+          && cached.get().getVersion() != null
+          && cached.get().getId().equals(station.getId())
+          && cached.get().getVersion() > station.getVersion()) {
+        return cached;
+      }
+      return Optional.of(station.copy());
+    });
+  }
+}
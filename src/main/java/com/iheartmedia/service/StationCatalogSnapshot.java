@@ -0,0 +1,260 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.iheartmedia.dto.StationCatalogVersion;
+import com.iheartmedia.model.Station;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Snapshot of the entire catalogue of stations, serialised as JSON and precompressed with gzip.
+ *
+ * <p>The snapshot is regenerated every {@code iheartmedia.stations.snapshot.refresh-millis} if the
+ * catalogue has changed since. It is written to files in
+ * {@code iheartmedia.stations.snapshot.directory}, or in a temporary directory by default, so that
+ * it can be sent to the clients by the servlet container without being copied through the heap.
+ * The snapshot is only served while the catalogue is still at the version that it was generated
+ * from, so it is never stale.
+ *
+ * <p>The files of the previous snapshot are kept until the next one is generated, as they may
+ * still be in the middle of being sent.
+ */
+@Component
+public class StationCatalogSnapshot {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StationCatalogSnapshot.class);
+
+  private final IStationService stationService;
+
+  private final ObjectWriter stationWriter;
+
+  private final boolean enabled;
+
+  private final Path directory;
+
+  private final boolean temporaryDirectory;
+
+  private volatile Snapshot current;
+
+  private Snapshot previous;
+
+  private long generation;
+
+  @Autowired
+  public StationCatalogSnapshot(IStationService stationService, ObjectMapper objectMapper,
+      @Value("${iheartmedia.stations.snapshot.enabled:true}") boolean enabled,
+      @Value("${iheartmedia.stations.snapshot.directory:}") String directory)
+      throws IOException {
+    this.stationService = stationService;
+    this.stationWriter = objectMapper.writerFor(Station.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.enabled = enabled;
+    this.temporaryDirectory = directory.isEmpty();
+    this.directory = this.temporaryDirectory
+        ? Files.createTempDirectory("station-snapshots")
+        : Files.createDirectories(Paths.get(directory));
+  }
+
+  /**
+   * Returns the snapshot if it was generated from the given version of the catalogue.
+   *
+   * @param catalogVersion current version of the catalogue
+   * @return snapshot, or {@code null} if there is no snapshot of the version
+   */
+  public Snapshot get(StationCatalogVersion catalogVersion) {
+    Snapshot snapshot = this.current;
+    return snapshot != null && snapshot.catalogVersion.equals(catalogVersion) ? snapshot : null;
+  }
+
+  /**
+   * Regenerates the snapshot if the catalogue has changed since the snapshot was generated.
+   *
+   * <p>The version of the catalogue is read before the stations are, so that a snapshot that
+   * includes changes made while it was being generated is labelled with an outdated version, and
+   * is not served. The first snapshot is generated one period after startup, and a failure to
+   * generate a snapshot leaves the previous one in place.
+   */
+  @Scheduled(fixedDelayString = "${iheartmedia.stations.snapshot.refresh-millis:60000}",
+      initialDelayString = "${iheartmedia.stations.snapshot.refresh-millis:60000}")
+  public synchronized void refresh() {
+    if (!this.enabled) {
+      return;
+    }
+    StationCatalogVersion catalogVersion;
+    try {
+      catalogVersion = this.stationService.retrieveCatalogVersion();
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to check whether the stations have changed", e);
+      return;
+    }
+    if (this.current != null && this.current.catalogVersion.equals(catalogVersion)) {
+      return;
+    }
+    long generation = ++this.generation;
+    Path jsonFile = this.directory.resolve("stations-" + generation + ".json");
+    Path gzipFile = this.directory.resolve("stations-" + generation + ".json.gz");
+    try {
+      try (OutputStream json = Files.newOutputStream(jsonFile);
+          GZIPOutputStream gzip = new GZIPOutputStream(Files.newOutputStream(gzipFile), 65536);
+          SequenceWriter sequenceWriter =
+              this.stationWriter.writeValuesAsArray(new TeeOutputStream(json, gzip))) {
+        this.stationService.streamAllStations(station -> {
+          try {
+            sequenceWriter.write(station);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+      Snapshot snapshot = new Snapshot(catalogVersion, jsonFile, Files.size(jsonFile), gzipFile,
+          Files.size(gzipFile));
+      delete(this.previous);
+      this.previous = this.current;
+      this.current = snapshot;
+      LOG.debug("Generated snapshot {} of {} stations: {} bytes, {} bytes compressed",
+          generation, catalogVersion.getCount(), snapshot.jsonLength, snapshot.gzipLength);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Unable to generate snapshot {} of the stations", generation, e);
+      delete(jsonFile);
+      delete(gzipFile);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
+    delete(this.previous);
+    delete(this.current);
+    if (this.temporaryDirectory) {
+      delete(this.directory);
+    }
+  }
+
+  private static void delete(Snapshot snapshot) {
+    if (snapshot != null) {
+      delete(snapshot.jsonFile);
+      delete(snapshot.gzipFile);
+    }
+  }
+
+  private static void delete(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOG.debug("Unable to delete {}", path, e);
+    }
+  }
+
+  /**
+   * Files of a snapshot of the catalogue.
+   */
+  public static final class Snapshot {
+
+    private final StationCatalogVersion catalogVersion;
+
+    private final Path jsonFile;
+
+    private final long jsonLength;
+
+    private final Path gzipFile;
+
+    private final long gzipLength;
+
+    private Snapshot(StationCatalogVersion catalogVersion, Path jsonFile, long jsonLength,
+        Path gzipFile, long gzipLength) {
+      this.catalogVersion = catalogVersion;
+      this.jsonFile = jsonFile;
+      this.jsonLength = jsonLength;
+      this.gzipFile = gzipFile;
+      this.gzipLength = gzipLength;
+    }
+
+    /**
+     * Returns the file of the stations as JSON.
+     */
+    public Path getJsonFile() {
+      return this.jsonFile;
+    }
+
+    /**
+     * Returns the length of the file of the stations as JSON.
+     */
+    public long getJsonLength() {
+      return this.jsonLength;
+    }
+
+    /**
+     * Returns the file of the stations as gzip encoded JSON.
+     */
+    public Path getGzipFile() {
+      return this.gzipFile;
+    }
+
+    /**
+     * Returns the length of the file of the stations as gzip encoded JSON.
+     */
+    public long getGzipLength() {
+      return this.gzipLength;
+    }
+  }
+
+  /**
+   * Writes the same bytes to two output streams.
+   */
+  private static final class TeeOutputStream extends OutputStream {
+
+    private final OutputStream first;
+
+    private final OutputStream second;
+
+    private TeeOutputStream(OutputStream first, OutputStream second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      this.first.write(b);
+      this.second.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      this.first.write(b, off, len);
+      this.second.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      this.first.flush();
+      this.second.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        this.first.close();
+      } finally {
+        this.second.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,525 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.dto.StationChange;
+import com.iheartmedia.dto.StationChangePage;
+import com.iheartmedia.model.ErrorCodes;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.utils.ServiceSaturatedException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Feed of the committed mutations of stations, so that the clients can follow the changes to the
+ * catalogue instead of fetching the entire catalogue again.
+ *
+ * <p>Each {@link StationMutationEvent} published by the service layer is appended to a ring buffer
+ * of fixed capacity once the mutation has been committed, under a sequence number one higher than
+ * that of the previous change. The clients read the changes that follow the last sequence they
+ * have seen, either by long polling, or by subscribing to a stream of server sent events. A client
+ * that has fallen so far behind that the changes it has not seen have been overwritten is told to
+ * fetch the stations again.
+ *
+ * <p>The ring buffer is the only buffer shared by the clients. A subscriber that falls more than
+ * {@code iheartmedia.stations.feed.max-lag} changes behind is disconnected, rather than the changes
+ * being buffered on its behalf, and may resume from the last event it received. The number of
+ * clients waiting on the feed at once is limited by
+ * {@code iheartmedia.stations.feed.max-consumers}.
+ *
+ * <p>The events are sent by a dispatcher of {@code iheartmedia.stations.feed.dispatcher-threads}
+ * threads, and a subscriber whose event has not been written within
+ * {@code iheartmedia.stations.feed.send-timeout-seconds} is disconnected, so that a few stalled
+ * subscribers cannot hold up the others. The polls are completed, and the timeouts enforced, by a
+ * scheduler of their own, which never waits on a subscriber.
+ *
+ * <p>The sequence numbers are not persisted, so a client resuming from a sequence greater than the
+ * last sequence, e.g. after a restart, is told to fetch the stations again as well.
+ *
+ * <p>The last sequence is published as the {@code station.feed.sequence} gauge, the number of
+ * subscribers as the {@code station.feed.subscribers} gauge, and the subscribers disconnected by
+ * the feed as the {@code station.feed.disconnects} counter tagged by the reason.
+ */
+@Component
+public class StationChangeFeed {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StationChangeFeed.class);
+
+  private static final String RESET_EVENT = "reset";
+
+  private final StationChange[] changes;
+
+  private final int defaultLimit;
+
+  private final int maxLimit;
+
+  private final long pollTimeoutMillis;
+
+  private final long streamTimeoutMillis;
+
+  private final int maxConsumers;
+
+  private final long maxLag;
+
+  private final long sendTimeoutMillis;
+
+  private final MessageSource messageSource;
+
+  private final MeterRegistry meterRegistry;
+
+  private final ExecutorService dispatcher;
+
+  private final ScheduledThreadPoolExecutor scheduler;
+
+  private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+  // Guarded by this.
+  private final List<Poll> polls = new ArrayList<>();
+
+  // Guarded by this.
+  private long lastSequence;
+
+  @Autowired
+  public StationChangeFeed(
+      @Value("${iheartmedia.stations.feed.capacity:10000}") int capacity,
+      @Value("${iheartmedia.stations.feed.default-limit:100}") int defaultLimit,
+      @Value("${iheartmedia.stations.feed.max-limit:1000}") int maxLimit,
+      @Value("${iheartmedia.stations.feed.poll-timeout-seconds:20}") long pollTimeoutSeconds,
+      @Value("${iheartmedia.stations.feed.stream-timeout-seconds:300}") long streamTimeoutSeconds,
+      @Value("${iheartmedia.stations.feed.max-consumers:100}") int maxConsumers,
+      @Value("${iheartmedia.stations.feed.max-lag:1000}") long maxLag,
+      @Value("${iheartmedia.stations.feed.dispatcher-threads:2}") int dispatcherThreads,
+      @Value("${iheartmedia.stations.feed.send-timeout-seconds:10}") long sendTimeoutSeconds,
+      MessageSource messageSource,
+      MeterRegistry meterRegistry) {
+    this.changes = new StationChange[capacity];
+    this.defaultLimit = defaultLimit;
+    this.maxLimit = maxLimit;
+    this.pollTimeoutMillis = TimeUnit.SECONDS.toMillis(pollTimeoutSeconds);
+    this.streamTimeoutMillis = TimeUnit.SECONDS.toMillis(streamTimeoutSeconds);
+    this.maxConsumers = maxConsumers;
+    this.maxLag = maxLag;
+    this.sendTimeoutMillis = TimeUnit.SECONDS.toMillis(sendTimeoutSeconds);
+    this.messageSource = messageSource;
+    this.meterRegistry = meterRegistry;
+    this.dispatcher = Executors.newFixedThreadPool(
+        dispatcherThreads, new CustomizableThreadFactory("station-feed-"));
+    this.scheduler = new ScheduledThreadPoolExecutor(
+        1, new CustomizableThreadFactory("station-feed-poll-"));
+    this.scheduler.setRemoveOnCancelPolicy(true);
+    meterRegistry.gauge("station.feed.sequence", this, StationChangeFeed::getLastSequence);
+    meterRegistry.gauge("station.feed.subscribers", this.subscriptions, Set::size);
+  }
+
+  /**
+   * Returns the sequence of the last change, or 0 if no station has changed yet.
+   */
+  public synchronized long getLastSequence() {
+    return this.lastSequence;
+  }
+
+  /**
+   * Returns the changes that follow the sequence, without waiting for any.
+   *
+   * @param since sequence after which the changes are returned, or {@code null} to start from the
+   *     last change
+   * @param limit maximum number of changes to be returned, absent for the default limit
+   * @param locale locale
+   * @return page of changes
+   */
+  public StationChangePage read(Long since, Integer limit, Locale locale) {
+    StationChangePage page = new StationChangePage();
+    Integer pageSize = resolvePageSize(page, since, limit, locale);
+    if (pageSize != null) {
+      synchronized (this) {
+        fill(page, since, pageSize, locale);
+      }
+    }
+    return page;
+  }
+
+  /**
+   * Returns the changes that follow the sequence, waiting for up to the poll timeout if there are
+   * none yet.
+   *
+   * <p>Without a sequence, the last sequence is returned straight away, so that a client can find
+   * out where to follow the feed from before fetching the stations.
+   *
+   * @param since sequence after which the changes are returned, or {@code null} to return the last
+   *     sequence
+   * @param limit maximum number of changes to be returned, absent for the default limit
+   * @param locale locale
+   * @return future completed by the page of changes, which is empty if the poll timed out
+   * @throws ServiceSaturatedException if too many clients are already waiting on the feed
+   */
+  public CompletableFuture<StationChangePage> poll(Long since, Integer limit, Locale locale) {
+    StationChangePage page = new StationChangePage();
+    Integer pageSize = resolvePageSize(page, since, limit, locale);
+    if (pageSize == null) {
+      return CompletableFuture.completedFuture(page);
+    }
+    Poll poll;
+    synchronized (this) {
+      fill(page, since, pageSize, locale);
+      if (since == null || page.hasErrors() || !page.getChanges().isEmpty()) {
+        return CompletableFuture.completedFuture(page);
+      }
+      if (this.polls.size() + this.subscriptions.size() >= this.maxConsumers) {
+        throw reject("pollChanges");
+      }
+      poll = new Poll(page.getLastSequence(), pageSize, locale);
+      this.polls.add(poll);
+    }
+    poll.timeout = schedule(() -> expire(poll), this.pollTimeoutMillis);
+    return poll.future;
+  }
+
+  /**
+   * Subscribes to the changes that follow the sequence.
+   *
+   * <p>Each change is sent as an event whose id is the sequence of the change. If the changes
+   * following the sequence are no longer available, a {@code reset} event carrying the last
+   * sequence is sent instead, and the stream is completed.
+   *
+   * @param since sequence after which the changes are sent, or {@code null} to start from the last
+   *     change
+   * @return stream of events
+   * @throws ServiceSaturatedException if too many clients are already waiting on the feed
+   */
+  public SseEmitter subscribe(Long since) {
+    SseEmitter emitter = new SseEmitter(this.streamTimeoutMillis);
+    Subscription subscription;
+    synchronized (this) {
+      if (this.polls.size() + this.subscriptions.size() >= this.maxConsumers) {
+        throw reject("streamChanges");
+      }
+      subscription = new Subscription(emitter, since == null ? this.lastSequence : since);
+      this.subscriptions.add(subscription);
+    }
+    emitter.onCompletion(() -> subscription.close(null));
+    emitter.onTimeout(() -> subscription.close(null));
+    subscription.dispatch();
+    return emitter;
+  }
+
+  /**
+   * Appends the committed mutation to the feed, and wakes up the clients waiting on the feed.
+   *
+   * @param event mutation event
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onStationMutation(StationMutationEvent event) {
+    Station station = event.getCurrent() != null ? event.getCurrent() : event.getPrevious();
+    long sequence;
+    List<Poll> readyPolls = Collections.emptyList();
+    synchronized (this) {
+      sequence = ++this.lastSequence;
+      this.changes[index(sequence)] =
+          new StationChange(sequence, event.getType(), station, System.currentTimeMillis());
+      if (!this.polls.isEmpty()) {
+        readyPolls = new ArrayList<>(this.polls);
+        this.polls.clear();
+      }
+    }
+    // The waiting clients are completed off the thread that committed the mutation, and off the
+    // dispatcher, whose threads may be blocked sending events to slow subscribers.
+    if (!readyPolls.isEmpty()) {
+      List<Poll> polls = readyPolls;
+      execute(this.scheduler, () -> polls.forEach(Poll::complete));
+    }
+    for (Subscription subscription : this.subscriptions) {
+      subscription.signal(sequence);
+    }
+  }
+
+  /**
+   * Returns the page size for the requested limit, or {@code null} if either the sequence or the
+   * limit is not valid, in which case the error is added to the page.
+   */
+  private Integer resolvePageSize(StationChangePage page, Long since, Integer limit,
+      Locale locale) {
+    if (since != null && since < 0) {
+      page.addError(ErrorCodes.BAD_REQUEST, this.messageSource.getMessage(
+          "station.feed.sequence.invalid", new Object[] {String.valueOf(since)}, locale));
+      return null;
+    }
+    if (limit == null) {
+      limit = this.defaultLimit;
+    }
+    if (limit < 1) {
+      page.addError(ErrorCodes.BAD_REQUEST, this.messageSource.getMessage(
+          "station.page.limit.invalid", new Object[] {limit}, locale));
+      return null;
+    }
+    return Math.min(limit, this.maxLimit);
+  }
+
+  // Must be invoked while holding the lock on this.
+  private void fill(StationChangePage page, Long since, int limit, Locale locale) {
+    long from = since == null ? this.lastSequence : since;
+    if (!isRetained(from)) {
+      page.addError(ErrorCodes.GONE, this.messageSource.getMessage(
+          "station.feed.sequence.expired",
+          new Object[] {String.valueOf(from), String.valueOf(this.lastSequence)}, locale));
+      return;
+    }
+    for (long sequence = from + 1;
+        sequence <= this.lastSequence && page.getChanges().size() < limit; sequence++) {
+      page.getChanges().add(this.changes[index(sequence)]);
+    }
+    page.setLastSequence(from + page.getChanges().size());
+  }
+
+  /**
+   * Returns the changes following the sequence, or {@code null} if they are no longer available.
+   */
+  private synchronized List<StationChange> changesAfter(long since, int limit) {
+    if (!isRetained(since)) {
+      return null;
+    }
+    List<StationChange> batch = new ArrayList<>();
+    for (long sequence = since + 1;
+        sequence <= this.lastSequence && batch.size() < limit; sequence++) {
+      batch.add(this.changes[index(sequence)]);
+    }
+    return batch;
+  }
+
+  // Must be invoked while holding the lock on this.
+  private boolean isRetained(long since) {
+    return since <= this.lastSequence && since >= this.lastSequence - this.changes.length;
+  }
+
+  private int index(long sequence) {
+    return (int) (sequence % this.changes.length);
+  }
+
+  private void expire(Poll poll) {
+    synchronized (this) {
+      if (!this.polls.remove(poll)) {
+        return;
+      }
+    }
+    StationChangePage page = new StationChangePage();
+    page.setLastSequence(poll.since);
+    poll.future.complete(page);
+  }
+
+  private void execute(Executor executor, Runnable task) {
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      LOG.debug("Change feed has been shut down", e);
+    }
+  }
+
+  /**
+   * Schedules the task on the scheduler, returning {@code null} if the feed has been shut down.
+   */
+  private ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+    try {
+      return this.scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      LOG.debug("Change feed has been shut down", e);
+      return null;
+    }
+  }
+
+  private ServiceSaturatedException reject(String endpoint) {
+    LOG.debug("Rejecting a client of the change feed on behalf of {}", endpoint);
+    return new ServiceSaturatedException(endpoint, 1L);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    this.dispatcher.shutdownNow();
+    this.scheduler.shutdownNow();
+    for (Subscription subscription : this.subscriptions) {
+      subscription.close(null);
+    }
+  }
+
+  /**
+   * Client waiting for the changes following a sequence.
+   */
+  private final class Poll {
+
+    private final long since;
+
+    private final int limit;
+
+    private final Locale locale;
+
+    private final CompletableFuture<StationChangePage> future = new CompletableFuture<>();
+
+    private volatile ScheduledFuture<?> timeout;
+
+    private Poll(long since, int limit, Locale locale) {
+      this.since = since;
+      this.limit = limit;
+      this.locale = locale;
+    }
+
+    private void complete() {
+      ScheduledFuture<?> timeout = this.timeout;
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+      this.future.complete(read(this.since, this.limit, this.locale));
+    }
+  }
+
+  /**
+   * Subscriber to which the changes are sent as server sent events.
+   *
+   * <p>The changes are sent by the dispatcher, one subscriber per thread at a time, so that a
+   * subscriber which is slow to read the events does not hold up the thread committing the
+   * mutations. A subscriber whose event has not been written within the send timeout is
+   * disconnected and no longer scheduled, and its stream is completed as soon as the write
+   * returns, which the container fails once its own write timeout has elapsed.
+   */
+  private final class Subscription implements Runnable {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final SseEmitter emitter;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile long cursor;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private volatile boolean sending;
+
+    private Subscription(SseEmitter emitter, long cursor) {
+      this.emitter = emitter;
+      this.cursor = cursor;
+    }
+
+    private void signal(long sequence) {
+      if (sequence - this.cursor > maxLag) {
+        close("slow");
+      }
+      dispatch();
+    }
+
+    private void dispatch() {
+      if (this.scheduled.compareAndSet(false, true)) {
+        execute(dispatcher, this);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!this.closed.get()) {
+          List<StationChange> batch = changesAfter(this.cursor, BATCH_SIZE);
+          if (batch == null) {
+            send(SseEmitter.event().name(RESET_EVENT).data(getLastSequence()));
+            close("expired");
+            break;
+          }
+          if (batch.isEmpty()) {
+            this.scheduled.set(false);
+            // A change appended after the batch was read may have found the subscriber scheduled.
+            if ((this.cursor < getLastSequence() || this.closed.get())
+                && this.scheduled.compareAndSet(false, true)) {
+              continue;
+            }
+            return;
+          }
+          for (StationChange change : batch) {
+            send(SseEmitter.event()
+                .id(String.valueOf(change.getSequence()))
+                .data(change, MediaType.APPLICATION_JSON));
+            this.cursor = change.getSequence();
+          }
+        }
+      } catch (IOException | IllegalStateException e) {
+        // The client has gone away, or the stream has been completed.
+        LOG.debug("Unable to send the changes to a subscriber", e);
+        close(null);
+      }
+      if (this.closed.get()) {
+        // The subscription may have been closed while an event was being sent.
+        complete();
+      }
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) throws IOException {
+      this.sending = true;
+      ScheduledFuture<?> timeout = null;
+      try {
+        if (this.closed.get()) {
+          return;
+        }
+        timeout = schedule(() -> close("stalled"), sendTimeoutMillis);
+        this.emitter.send(event);
+      } finally {
+        this.sending = false;
+        if (timeout != null) {
+          timeout.cancel(false);
+        }
+      }
+    }
+
+    /**
+     * Closes the subscription and completes its stream, counting it as disconnected by the feed if
+     * a reason is given.
+     */
+    private void close(String reason) {
+      if (!this.closed.compareAndSet(false, true)) {
+        return;
+      }
+      subscriptions.remove(this);
+      if (reason != null) {
+        LOG.debug("Disconnecting a subscriber at sequence {}: {}", this.cursor, reason);
+        meterRegistry.counter("station.feed.disconnects", "reason", reason).increment();
+      }
+      // The emitter is locked while an event is being sent, in which case the stream is completed
+      // by the dispatcher once the send returns, rather than blocking the caller.
+      if (!this.sending) {
+        complete();
+      }
+    }
+
+    private void complete() {
+      try {
+        this.emitter.complete();
+      } catch (IllegalStateException e) {
+        // The stream has already been completed by the container.
+        LOG.debug("Unable to complete the stream of a subscriber", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.iheartmedia.dto.CreateStationMixin;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.model.ErrorCodes;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.utils.StationConstraints;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+/**
+ * Imports stations in bulk.
+ *
+ * <p>The stations are read one at a time from either a JSON array or a newline delimited stream
+ * of JSON objects, validated against the bean validation constraints on {@link Station}, and
+ * persisted in chunks. Each chunk is inserted in a single transaction, so that the inserts can be
+ * batched. If a chunk can not be persisted, the stations in the chunk are persisted one at a time
+ * to find out which of the stations could not be persisted.
+ */
+@Component
+public class StationImporter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StationImporter.class);
+
+  private final IStationService stationService;
+
+  private final ObjectReader stationReader;
+
+  @Autowired
+  private Validator validator;
+
+  @Autowired
+  private MessageSource messageSource;
+
+  @Value("${iheartmedia.stations.import.chunk-size:500}")
+  private int chunkSize;
+
+  @Autowired
+  public StationImporter(IStationService stationService, ObjectMapper objectMapper) {
+    this.stationService = stationService;
+    this.stationReader = objectMapper.readerFor(Station.class);
+  }
+
+  /**
+   * Imports the stations read from the input stream.
+   *
+   * @param inputStream stream of stations, either as a JSON array or as newline delimited JSON
+   * @param locale locale
+   * @return mixin objects representing the outcome of each station, in the order in which the
+   *     stations were read
+   */
+  public List<StationMixin> importStations(InputStream inputStream, Locale locale)
+      throws IOException {
+    List<StationMixin> results = new ArrayList<>();
+    List<Station> chunk = new ArrayList<>(this.chunkSize);
+    List<Integer> chunkPositions = new ArrayList<>(this.chunkSize);
+    try (MappingIterator<Station> stations = this.stationReader.readValues(inputStream)) {
+      Station station;
+      while ((station = readNext(stations, results, locale)) != null) {
+        int position = results.size();
+        results.add(null);
+        // Bean validation only runs to report the violations of a station that fails the checks.
+        if (!StationConstraints.isValid(station)) {
+          Set<ConstraintViolation<Station>> violations = this.validator.validate(station);
+          StationMixin mixin = new CreateStationMixin();
+          for (ConstraintViolation<Station> violation : violations) {
+            mixin.addError(ErrorCodes.BAD_REQUEST, violation.getMessage());
+          }
+          results.set(position, mixin);
+          continue;
+        }
+        chunk.add(station);
+        chunkPositions.add(position);
+        if (chunk.size() == this.chunkSize) {
+          persist(chunk, chunkPositions, results, locale);
+        }
+      }
+    }
+    persist(chunk, chunkPositions, results, locale);
+    return results;
+  }
+
+  /**
+   * Returns the next station, or {@code null} if there are no more stations to be read.
+   *
+   * <p>A malformed station is reported against its position, and ends the import as the rest of
+   * the stream can not be reliably read.
+   */
+  private Station readNext(MappingIterator<Station> stations, List<StationMixin> results,
+      Locale locale) {
+    try {
+      return stations.hasNextValue() ? stations.nextValue() : null;
+    } catch (IOException e) {
+      StationMixin mixin = new CreateStationMixin();
+      mixin.addError(ErrorCodes.BAD_REQUEST, this.messageSource.getMessage(
+          "station.import.malformed", new Object[] {results.size() + 1}, locale));
+      results.add(mixin);
+      return null;
+    }
+  }
+
+  private void persist(List<Station> chunk, List<Integer> chunkPositions,
+      List<StationMixin> results, Locale locale) {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    // The entities are modified when persisted, so a failed chunk is retried with the copies.
+    Station[] copies = new Station[chunk.size()];
+    for (int i = 0; i < copies.length; i++) {
+      copies[i] = chunk.get(i).copy();
+    }
+    try {
+      List<StationMixin> mixins = this.stationService.createStations(chunk);
+      for (int i = 0; i < mixins.size(); i++) {
+        results.set(chunkPositions.get(i), mixins.get(i));
+      }
+    } catch (DataIntegrityViolationException e) {
+      LOG.warn("Unable to persist a chunk of {} stations. Persisting the stations one at a time.",
+          chunk.size());
+      persistIndividually(Arrays.asList(copies), chunkPositions, results, locale);
+    }
+    chunk.clear();
+    chunkPositions.clear();
+  }
+
+  private void persistIndividually(List<Station> stations, List<Integer> positions,
+      List<StationMixin> results, Locale locale) {
+    for (int i = 0; i < stations.size(); i++) {
+      StationMixin mixin;
+      try {
+        mixin = this.stationService.createStation(stations.get(i));
+      } catch (DataIntegrityViolationException e) {
+        mixin = new CreateStationMixin();
+        mixin.addError(ErrorCodes.CONFLICT,
+            this.messageSource.getMessage("station.save.error", null, locale));
+      }
+      results.set(positions.get(i), mixin);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.model.Station;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * An instance of this class is published by the service layer whenever a station is created,
+ * updated or deleted.
+ *
+ * <p>Both the states are detached copies of the entity. The previous state is {@code null} for a
+ * newly created station, and the current state is {@code null} for a deleted station.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class StationMutationEvent {
+
+  /**
+   * Enum of supported mutations.
+   */
+  public enum Type {
+    CREATED,
+    UPDATED,
+    DELETED
+  }
+
+  private final Type type;
+
+  private final Station previous;
+
+  private final Station current;
+
+  private StationMutationEvent(Type type, Station previous, Station current) {
+    this.type = type;
+    this.previous = previous;
+    this.current = current;
+  }
+
+  public static StationMutationEvent created(Station current) {
+    return new StationMutationEvent(Type.CREATED, null, current);
+  }
+
+  public static StationMutationEvent updated(Station previous, Station current) {
+    return new StationMutationEvent(Type.UPDATED, previous, current);
+  }
+
+  public static StationMutationEvent deleted(Station previous) {
+    return new StationMutationEvent(Type.DELETED, previous, null);
+  }
+}
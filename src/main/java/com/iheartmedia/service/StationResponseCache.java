@@ -0,0 +1,195 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.model.Station;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache of the serialised responses of the stations fetched by station id.
+ *
+ * <p>Each response is held as the UTF-8 encoded JSON of the station, together with its gzip
+ * encoding if that turns out smaller, so that a cached response is written out without building
+ * or serialising a mixin object. A response is cached by station id along with the version of the
+ * station that it was serialised from.
+ *
+ * <p>Once a mutation has been committed, the response of the station is replaced by a marker that
+ * only admits a response serialised from the current version onwards, so that a response
+ * serialised from a stale state by a concurrent request can not overwrite it. The hit, miss and
+ * eviction counts are published as the {@code cache.*} metrics.
+ */
+@Component
+public class StationResponseCache {
+
+  private final boolean enabled;
+
+  private final ObjectWriter mixinWriter;
+
+  private final Cache<String, CachedResponse> responses;
+
+  @Autowired
+  public StationResponseCache(
+      @Value("${iheartmedia.cache.responses.enabled:true}") boolean enabled,
+      @Value("${iheartmedia.cache.responses.maximum-size:10000}") long maximumSize,
+      @Value("${iheartmedia.cache.responses.expire-after-write-seconds:300}") long ttlSeconds,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.mixinWriter = objectMapper.writer();
+    this.responses = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, this.responses, "stations.responses");
+  }
+
+  /**
+   * Returns the cached response of the station.
+   *
+   * @param stationId station id
+   * @return cached response, or {@code null} if the response has not been cached
+   */
+  public CachedResponse get(String stationId) {
+    if (!this.enabled) {
+      return null;
+    }
+    CachedResponse response = this.responses.getIfPresent(stationId);
+    return response == null || response.json == null ? null : response;
+  }
+
+  /**
+   * Caches the response of the station, unless a response of a more recent version of the
+   * station has been cached, or the station has been mutated since the mixin was built.
+   *
+   * @param mixin mixin object built from the station, without errors
+   */
+  public void put(StationMixin mixin) {
+    if (!this.enabled || mixin.getId() == null || mixin.getVersion() == null) {
+      return;
+    }
+    CachedResponse response = serialise(mixin);
+    this.responses.asMap().compute(mixin.getStationId(), (key, cached) ->
+        cached == null || !cached.id.equals(response.id) || response.version > cached.version
+            || (cached.json == null && response.version.equals(cached.version))
+            ? response : cached);
+  }
+
+  private CachedResponse serialise(StationMixin mixin) {
+    byte[] json;
+    try {
+      json = this.mixinWriter.writeValueAsBytes(mixin);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+    byte[] gzip = gzip(json);
+    return new CachedResponse(mixin.getId(), mixin.getVersion(), mixin.getETag(), json,
+        gzip.length < json.length ? gzip : null);
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  /**
+   * Invalidates the cached response of the mutated station once the mutation has been committed.
+   *
+   * <p>The response of an updated station is replaced by a marker of its current version, and the
+   * response of a deleted station by a marker past its last version. Created stations are ignored,
+   * as there can not be a response of the station to be invalidated.
+   *
+   * @param event mutation event
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onStationMutation(StationMutationEvent event) {
+    Station previous = event.getPrevious();
+    Station current = event.getCurrent();
+    if (previous == null) {
+      return;
+    }
+    if (current == null) {
+      invalidate(previous.getStationId(), previous.getId(), previous.getVersion() + 1);
+    } else {
+      if (!previous.getStationId().equals(current.getStationId())) {
+        invalidate(previous.getStationId(), previous.getId(), previous.getVersion() + 1);
+      }
+      invalidate(current.getStationId(), current.getId(), current.getVersion());
+    }
+  }
+
+  private void invalidate(String stationId, Long id, Integer version) {
+    CachedResponse marker = new CachedResponse(id, version, null, null, null);
+    this.responses.asMap().compute(stationId, (key, cached) ->
+        cached != null && cached.id.equals(id) && cached.version > version ? cached : marker);
+  }
+
+  /**
+   * Serialised response of a station.
+   */
+  public static final class CachedResponse {
+
+    private final Long id;
+
+    private final Integer version;
+
+    private final String eTag;
+
+    private final byte[] json;
+
+    private final byte[] gzip;
+
+    private CachedResponse(Long id, Integer version, String eTag, byte[] json, byte[] gzip) {
+      this.id = id;
+      this.version = version;
+      this.eTag = eTag;
+      this.json = json;
+      this.gzip = gzip;
+    }
+
+    /**
+     * Returns the entity tag of the station.
+     */
+    public String getETag() {
+      return this.eTag;
+    }
+
+    /**
+     * Returns the UTF-8 encoded JSON of the station.
+     */
+    public byte[] getJson() {
+      return this.json;
+    }
+
+    /**
+     * Returns the gzip encoded JSON of the station, or {@code null} if the encoding is not any
+     * smaller.
+     */
+    public byte[] getGzip() {
+      return this.gzip;
+    }
+  }
+}
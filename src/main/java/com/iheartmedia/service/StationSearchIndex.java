@@ -0,0 +1,566 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.model.Station;
+import com.iheartmedia.repository.IStationRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory search index over the names and call signs of the stations.
+ *
+ * <p>The names and call signs are folded to lower case letters and digits, without accents, and
+ * split into terms. The call sign, and the name with its words run together, are the <i>keys</i> of
+ * a station, and the words of the name other than the first are its <i>words</i>. The keys and the
+ * words are held in two sorted dictionaries, each of which maps a term to the station ids of the
+ * stations that have the term.
+ *
+ * <p>A station matches a query in one of the following ways, from the best to the worst:
+ *
+ * <ol>
+ *   <li>a key starts with the query
+ *   <li>a word starts with the query
+ *   <li>a key starts with a term within a few edits of the query
+ *   <li>a word starts with a term within a few edits of the query
+ * </ol>
+ *
+ * <p>The hits are ranked by the way in which they match, then by the matching term and then by
+ * station id, so that they can be paged through by keyset. Every station is only returned once, at
+ * its best rank. The prefix matches are read off a range of the dictionary, and the fuzzy matches
+ * by walking the dictionary as a trie, pruning the prefixes that are already too many edits away
+ * from the query. As the hits are produced in the order of their rank, a page only visits the hits
+ * that precede it.
+ *
+ * <p>Like the {@link HdStationIndex}, the index is loaded from the repository once the application
+ * is ready, and is then maintained from the committed {@link StationMutationEvent}s. Reads never
+ * block writers. The number of stations indexed is published as the
+ * {@code station.search.index.size} gauge.
+ */
+@Component
+@ConditionalOnProperty(name = "iheartmedia.replica.enabled", havingValue = "false",
+    matchIfMissing = true)
+public class StationSearchIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StationSearchIndex.class);
+
+  /**
+   * Rank of the stations whose key starts with the query.
+   */
+  public static final int KEY_PREFIX = 0;
+
+  /**
+   * Rank of the stations whose word starts with the query.
+   */
+  public static final int WORD_PREFIX = 1;
+
+  /**
+   * Rank of the stations whose key starts with a term within a few edits of the query.
+   */
+  public static final int FUZZY_KEY_PREFIX = 2;
+
+  /**
+   * Rank of the stations whose word starts with a term within a few edits of the query.
+   */
+  public static final int FUZZY_WORD_PREFIX = 3;
+
+  // Sorts after every character that a term may contain.
+  private static final char MAX_CHAR = Character.MAX_VALUE;
+
+  private final IStationRepository stationRepository;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final int fuzzyMinLength;
+
+  private final int fuzzyTwoEditsMinLength;
+
+  private final ConcurrentHashMap<String, Entry> stations = new ConcurrentHashMap<>();
+
+  private final StationVersions versions = new StationVersions();
+
+  private final ConcurrentSkipListMap<String, NavigableSet<String>> keys =
+      new ConcurrentSkipListMap<>();
+
+  private final ConcurrentSkipListMap<String, NavigableSet<String>> words =
+      new ConcurrentSkipListMap<>();
+
+  @Autowired
+  public StationSearchIndex(IStationRepository stationRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${iheartmedia.stations.search.fuzzy-min-length:3}") int fuzzyMinLength,
+      @Value("${iheartmedia.stations.search.fuzzy-two-edits-min-length:6}")
+          int fuzzyTwoEditsMinLength,
+      MeterRegistry meterRegistry) {
+    this.stationRepository = stationRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.fuzzyMinLength = fuzzyMinLength;
+    this.fuzzyTwoEditsMinLength = fuzzyTwoEditsMinLength;
+    meterRegistry.gauge("station.search.index.size", this.stations, ConcurrentHashMap::size);
+  }
+
+  /**
+   * Reloads the index from the repository.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void rebuild() {
+    this.stations.clear();
+    this.keys.clear();
+    this.words.clear();
+    this.transactionTemplate.execute(status -> {
+      try (Stream<Station> stations = this.stationRepository.streamAllStations()) {
+        stations.forEach(station -> index(station.copy()));
+      }
+      return null;
+    });
+    LOG.info("Indexed {} stations for search", this.stations.size());
+  }
+
+  /**
+   * Returns {@code true} if the query contains any letters or digits to search for.
+   *
+   * @param query query
+   */
+  public static boolean isSearchable(String query) {
+    return query != null && !fold(query).isEmpty();
+  }
+
+  /**
+   * Returns the stations that match the query, in the order of their rank.
+   *
+   * <p>The stations are shared snapshots, and must not be modified.
+   *
+   * @param query query, which must be {@link #isSearchable(String) searchable}
+   * @param after last hit returned, or {@code null} to return the hits from the beginning
+   * @param limit maximum number of hits to be returned
+   * @return hits
+   */
+  public List<Hit> search(String query, Hit after, int limit) {
+    String term = String.join("", fold(query));
+    int maxEdits = term.length() >= this.fuzzyTwoEditsMinLength ? 2
+        : term.length() >= this.fuzzyMinLength ? 1 : 0;
+    List<Hit> hits = new ArrayList<>(Math.min(limit, 64));
+    for (int rank = after == null ? KEY_PREFIX : after.rank; rank <= FUZZY_WORD_PREFIX; rank++) {
+      if (rank >= FUZZY_KEY_PREFIX && maxEdits == 0) {
+        break;
+      }
+      Hit from = after != null && after.rank == rank ? after : null;
+      Collector collector = new Collector(term, maxEdits, rank, from, limit, hits);
+      ConcurrentSkipListMap<String, NavigableSet<String>> dictionary =
+          rank == KEY_PREFIX || rank == FUZZY_KEY_PREFIX ? this.keys : this.words;
+      boolean more = rank < FUZZY_KEY_PREFIX
+          ? visitTerms(dictionary, term, term + MAX_CHAR, from, collector)
+          : visitFuzzyTerms(dictionary, term, maxEdits, from, collector);
+      if (!more) {
+        break;
+      }
+    }
+    return hits;
+  }
+
+  /**
+   * Visits the terms of the dictionary within the range in order, from the term of the last hit.
+   *
+   * @return {@code false} if the visitor asked to stop
+   */
+  private static boolean visitTerms(ConcurrentSkipListMap<String, NavigableSet<String>> dictionary,
+      String from, String to, Hit after, Predicate<String> visitor) {
+    if (after != null && after.term.compareTo(from) > 0) {
+      from = after.term;
+    }
+    if (from.compareTo(to) >= 0) {
+      return true;
+    }
+    for (String term : dictionary.subMap(from, true, to, false).keySet()) {
+      if (!visitor.test(term)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Visits the terms of the dictionary that start with a term within the given number of edits of
+   * the query, but not with the query itself, in order.
+   *
+   * <p>The dictionary is walked as a trie, one character at a time, while keeping the row of the
+   * edit distances between the prefix walked so far and each prefix of the query. Once the prefix
+   * is within the given number of edits of the whole query, every term that starts with the prefix
+   * matches. Once it is too many edits away from every prefix of the query, none does.
+   *
+   * @return {@code false} if the visitor asked to stop
+   */
+  private static boolean visitFuzzyTerms(
+      ConcurrentSkipListMap<String, NavigableSet<String>> dictionary, String query, int maxEdits,
+      Hit after, Predicate<String> visitor) {
+    int[] row = new int[query.length() + 1];
+    for (int i = 0; i < row.length; i++) {
+      row[i] = i;
+    }
+    return walk(dictionary, query, maxEdits, "", row, after, visitor);
+  }
+
+  private static boolean walk(ConcurrentSkipListMap<String, NavigableSet<String>> dictionary,
+      String query, int maxEdits, String prefix, int[] row, Hit after, Predicate<String> visitor) {
+    if (row[query.length()] <= maxEdits) {
+      if (prefix.equals(query)) {
+        return true;
+      }
+      if (query.startsWith(prefix)) {
+        // The terms starting with the query are prefix matches rather than fuzzy matches.
+        return visitTerms(dictionary, prefix, query, after, visitor)
+            && visitTerms(dictionary, query + MAX_CHAR, prefix + MAX_CHAR, after, visitor);
+      }
+      return visitTerms(dictionary, prefix, prefix + MAX_CHAR, after, visitor);
+    }
+    if (after != null && after.term.compareTo(prefix + MAX_CHAR) >= 0) {
+      return true;
+    }
+    String next = dictionary.ceilingKey(prefix);
+    while (next != null && next.startsWith(prefix)) {
+      if (next.length() == prefix.length()) {
+        next = dictionary.higherKey(next);
+        continue;
+      }
+      char c = next.charAt(prefix.length());
+      int[] childRow = new int[row.length];
+      childRow[0] = row[0] + 1;
+      int minEdits = childRow[0];
+      for (int i = 1; i < row.length; i++) {
+        int substitution = row[i - 1] + (query.charAt(i - 1) == c ? 0 : 1);
+        childRow[i] = Math.min(substitution, Math.min(row[i], childRow[i - 1]) + 1);
+        minEdits = Math.min(minEdits, childRow[i]);
+      }
+      String child = prefix + c;
+      if (minEdits <= maxEdits
+          && !walk(dictionary, query, maxEdits, child, childRow, after, visitor)) {
+        return false;
+      }
+      next = dictionary.ceilingKey(child + MAX_CHAR);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of edits between the query and the prefix of the term that is closest to
+   * it, or a number greater than the given number of edits if none is within it.
+   */
+  static int prefixEdits(String term, String query, int maxEdits) {
+    int[] row = new int[query.length() + 1];
+    for (int i = 0; i < row.length; i++) {
+      row[i] = i;
+    }
+    int best = row[query.length()];
+    for (int j = 0; j < term.length() && best > 0; j++) {
+      int[] next = new int[row.length];
+      next[0] = row[0] + 1;
+      int minEdits = next[0];
+      for (int i = 1; i < row.length; i++) {
+        int substitution = row[i - 1] + (query.charAt(i - 1) == term.charAt(j) ? 0 : 1);
+        next[i] = Math.min(substitution, Math.min(row[i], next[i - 1]) + 1);
+        minEdits = Math.min(minEdits, next[i]);
+      }
+      best = Math.min(best, next[query.length()]);
+      if (minEdits > maxEdits) {
+        break;
+      }
+      row = next;
+    }
+    return best;
+  }
+
+  /**
+   * Applies the committed mutation to the index.
+   *
+   * <p>The new terms of a station are indexed before its stale terms are removed, so that a
+   * concurrent search does not miss the station while it is being updated. The event of a
+   * mutation that is delivered after the event of a later mutation of the same station, or that is
+   * older than the indexed entry of the station, is discarded.
+   *
+   * @param event mutation event
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onStationMutation(StationMutationEvent event) {
+    Station previous = event.getPrevious();
+    Station current = event.getCurrent();
+    if (!this.versions.advance(event) || isStale(current)) {
+      return;
+    }
+    Entry stale = null;
+    if (previous != null) {
+      stale = this.stations.get(previous.getStationId());
+    }
+    if (current != null) {
+      Entry entry = index(current.copy());
+      if (stale != null && stale.stationId.equals(entry.stationId)) {
+        unindex(stale, entry);
+        return;
+      }
+    }
+    if (stale != null) {
+      this.stations.remove(stale.stationId, stale);
+      unindex(stale, null);
+    }
+  }
+
+  private boolean isStale(Station current) {
+    if (current == null || current.getVersion() == null) {
+      return false;
+    }
+    Entry entry = this.stations.get(current.getStationId());
+    return entry != null && entry.version != null
+        && Objects.equals(entry.station.getId(), current.getId())
+        && entry.version > current.getVersion();
+  }
+
+  private Entry index(Station station) {
+    Entry entry = new Entry(station);
+    for (String key : entry.keys) {
+      this.keys.computeIfAbsent(key, term -> new ConcurrentSkipListSet<>()).add(entry.stationId);
+    }
+    for (String word : entry.words) {
+      this.words.computeIfAbsent(word, term -> new ConcurrentSkipListSet<>()).add(entry.stationId);
+    }
+    this.stations.put(entry.stationId, entry);
+    return entry;
+  }
+
+  /**
+   * Removes the terms of the stale entry that the current entry of the station no longer has.
+   */
+  private void unindex(Entry stale, Entry current) {
+    for (String key : stale.keys) {
+      if (current == null || !Arrays.asList(current.keys).contains(key)) {
+        remove(this.keys, key, stale.stationId);
+      }
+    }
+    for (String word : stale.words) {
+      if (current == null || !Arrays.asList(current.words).contains(word)) {
+        remove(this.words, word, stale.stationId);
+      }
+    }
+  }
+
+  private static void remove(ConcurrentSkipListMap<String, NavigableSet<String>> dictionary,
+      String term, String stationId) {
+    dictionary.computeIfPresent(term, (key, stationIds) -> {
+      stationIds.remove(stationId);
+      return stationIds.isEmpty() ? null : stationIds;
+    });
+  }
+
+  /**
+   * Folds the text into its terms of lower case letters and digits, without accents.
+   */
+  static List<String> fold(String text) {
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    List<String> terms = new ArrayList<>();
+    StringBuilder term = new StringBuilder();
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = decomposed.charAt(i);
+      if (Character.isLetterOrDigit(c)) {
+        term.append(Character.toLowerCase(c));
+      } else if (Character.getType(c) != Character.NON_SPACING_MARK && term.length() > 0) {
+        terms.add(term.toString());
+        term.setLength(0);
+      }
+    }
+    if (term.length() > 0) {
+      terms.add(term.toString());
+    }
+    return terms;
+  }
+
+  /**
+   * Collects the stations of each visited term whose best match against the query is the term at
+   * the rank being visited.
+   */
+  private final class Collector implements Predicate<String> {
+
+    private final String query;
+
+    private final int maxEdits;
+
+    private final int rank;
+
+    private final Hit after;
+
+    private final int limit;
+
+    private final List<Hit> hits;
+
+    private Collector(String query, int maxEdits, int rank, Hit after, int limit,
+        List<Hit> hits) {
+      this.query = query;
+      this.maxEdits = maxEdits;
+      this.rank = rank;
+      this.after = after;
+      this.limit = limit;
+      this.hits = hits;
+    }
+
+    @Override
+    public boolean test(String term) {
+      NavigableSet<String> stationIds = (this.rank == KEY_PREFIX || this.rank == FUZZY_KEY_PREFIX
+          ? StationSearchIndex.this.keys : StationSearchIndex.this.words).get(term);
+      if (stationIds == null) {
+        return true;
+      }
+      if (this.after != null && this.after.term.equals(term)) {
+        stationIds = stationIds.tailSet(this.after.station.getStationId(), false);
+      }
+      for (String stationId : stationIds) {
+        Entry entry = StationSearchIndex.this.stations.get(stationId);
+        if (entry == null) {
+          continue;
+        }
+        Hit hit = entry.bestMatch(this.query, this.maxEdits);
+        if (hit != null && hit.rank == this.rank && hit.term.equals(term)) {
+          if (this.hits.size() == this.limit) {
+            return false;
+          }
+          this.hits.add(hit);
+        }
+      }
+      return this.hits.size() < this.limit;
+    }
+  }
+
+  /**
+   * Indexed state of a station.
+   */
+  private static final class Entry {
+
+    private final String stationId;
+
+    private final Station station;
+
+    private final Integer version;
+
+    private final String[] keys;
+
+    private final String[] words;
+
+    private Entry(Station station) {
+      this.stationId = station.getStationId();
+      this.station = station;
+      this.version = station.getVersion();
+      Set<String> keys = new LinkedHashSet<>();
+      Set<String> words = new LinkedHashSet<>();
+      if (station.getCallSign() != null) {
+        keys.add(String.join("", fold(station.getCallSign())));
+      }
+      if (station.getStationName() != null) {
+        List<String> nameWords = fold(station.getStationName());
+        keys.add(String.join("", nameWords));
+        words.addAll(nameWords.subList(Math.min(1, nameWords.size()), nameWords.size()));
+      }
+      keys.remove("");
+      this.keys = keys.toArray(new String[0]);
+      this.words = words.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the best match of the station against the query, or {@code null} if it does not
+     * match.
+     */
+    private Hit bestMatch(String query, int maxEdits) {
+      String best = bestTerm(this.keys, query, 0);
+      if (best != null) {
+        return new Hit(this.station, KEY_PREFIX, best);
+      }
+      best = bestTerm(this.words, query, 0);
+      if (best != null) {
+        return new Hit(this.station, WORD_PREFIX, best);
+      }
+      if (maxEdits == 0) {
+        return null;
+      }
+      best = bestTerm(this.keys, query, maxEdits);
+      if (best != null) {
+        return new Hit(this.station, FUZZY_KEY_PREFIX, best);
+      }
+      best = bestTerm(this.words, query, maxEdits);
+      return best == null ? null : new Hit(this.station, FUZZY_WORD_PREFIX, best);
+    }
+
+    private static String bestTerm(String[] terms, String query, int maxEdits) {
+      String best = null;
+      for (String term : terms) {
+        boolean matches = maxEdits == 0
+            ? term.startsWith(query)
+            : prefixEdits(term, query, maxEdits) <= maxEdits;
+        if (matches && (best == null || term.compareTo(best) < 0)) {
+          best = term;
+        }
+      }
+      return best;
+    }
+  }
+
+  /**
+   * A station that matches a query, with the rank and the term by which it matches.
+   */
+  public static final class Hit {
+
+    private final Station station;
+
+    private final int rank;
+
+    private final String term;
+
+    /**
+     * Constructs a hit.
+     *
+     * <p>A hit can be reconstructed from its rank, term and station id to resume a search after
+     * it, in which case the station only needs to carry the station id.
+     *
+     * @param station station
+     * @param rank rank by which the station matches
+     * @param term term by which the station matches
+     */
+    public Hit(Station station, int rank, String term) {
+      this.station = station;
+      this.rank = rank;
+      this.term = term;
+    }
+
+    public Station getStation() {
+      return this.station;
+    }
+
+    public int getRank() {
+      return this.rank;
+    }
+
+    public String getTerm() {
+      return this.term;
+    }
+  }
+}
@@ -4,23 +4,61 @@ package com.iheartmedia.service;
 import com.iheartmedia.dto.CreateStationMixin;
 import com.iheartmedia.dto.DeleteStationMixin;
 import com.iheartmedia.dto.GetStationMixin;
+import com.iheartmedia.dto.StationCatalogVersion;
+import com.iheartmedia.dto.StationDeletion;
+import com.iheartmedia.dto.StationDeletionRequest;
+import com.iheartmedia.dto.StationDelta;
+import com.iheartmedia.dto.StationLookup;
+import com.iheartmedia.dto.StationLookupRequest;
 import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
 import com.iheartmedia.dto.UpdateStationMixin;
 import com.iheartmedia.model.ErrorCodes;
+import com.iheartmedia.model.IError;
 import com.iheartmedia.model.Station;
+import com.iheartmedia.model.StationTombstone;
 import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.repository.IStationTombstoneRepository;
+import com.iheartmedia.utils.ContinuationTokens;
+import com.iheartmedia.utils.EntityTags;
+import com.iheartmedia.utils.RetryOnTransientFailure;
+import com.iheartmedia.utils.StationConstraints;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.MessageSource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
 
 /**
@@ -28,18 +66,69 @@ import javax.transaction.Transactional;
  * layer.
  */
 @Service
+@ConditionalOnProperty(name = "iheartmedia.replica.enabled", havingValue = "false",
+    matchIfMissing = true)
 public class StationService implements IStationService {
 
-  private static final Log LOG = LogFactory.getLog(StationService.class);
+  private static final Logger LOG = LoggerFactory.getLogger(StationService.class);
 
   private final IStationRepository stationRepository;
 
   @Autowired
   private MessageSource messageSource;
 
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private StationCache stationCache;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private HdStationIndex hdStationIndex;
+
   @Autowired
-  public StationService(IStationRepository stationRepository) {
+  private StationSearchIndex searchIndex;
+
+  @Autowired
+  private IStationTombstoneRepository tombstoneRepository;
+
+  @Value("${iheartmedia.stations.page.default-limit:100}")
+  private int defaultPageLimit;
+
+  @Value("${iheartmedia.stations.page.max-limit:1000}")
+  private int maxPageLimit;
+
+  @Value("${iheartmedia.stations.lookup.max-keys:100}")
+  private int maxLookupKeys;
+
+  @Value("${iheartmedia.stations.delete.max-keys:1000}")
+  private int maxDeleteKeys;
+
+  @Value("${iheartmedia.stations.changes.settle-millis:1000}")
+  private long changesSettleMillis;
+
+  @Value("${iheartmedia.stations.changes.tombstone-retention-days:30}")
+  private long tombstoneRetentionDays;
+
+  @Value("${iheartmedia.stations.update.single-statement:true}")
+  private boolean singleStatementUpdates;
+
+  @Value("${iheartmedia.stations.update.merge-on-conflict:true}")
+  private boolean mergeOnConflict;
+
+  @Value("${iheartmedia.stations.update.max-merge-attempts:3}")
+  private int maxMergeAttempts;
+
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public StationService(IStationRepository stationRepository,
+      PlatformTransactionManager transactionManager) {
     this.stationRepository = stationRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
   }
 
   /**
@@ -50,21 +139,427 @@ public class StationService implements IStationService {
    */
   @Transactional
   @Override
+  @RetryOnTransientFailure
   public StationMixin createStation(Station valueObject) {
-    LOG.info("Creating the object");
+    LOG.debug("Creating the object");
+    checkConstraints(valueObject);
     StationMixin mixin = new CreateStationMixin();
     Station savedEntity = this.stationRepository.save(valueObject);
     mixin.buildMixin(savedEntity);
-    LOG.info("Object created successfully");
+    this.eventPublisher.publishEvent(StationMutationEvent.created(savedEntity.copy()));
+    LOG.debug("Object created successfully");
     return mixin;
   }
 
+  /**
+   * Persists the entities to the database in a single transaction.
+   *
+   * <p>The entities are flushed together so that the inserts are batched, and are then evicted
+   * from the persistence context to keep the memory footprint flat across chunks.
+   *
+   * @param valueObjects value objects to be inserted
+   * @return mixin objects for the created stations
+   */
   @Transactional
   @Override
+  @RetryOnTransientFailure
+  public List<StationMixin> createStations(List<Station> valueObjects) {
+    LOG.debug("Creating {} objects", valueObjects.size());
+    valueObjects.forEach(StationService::checkConstraints);
+    List<Station> savedEntities = this.stationRepository.saveAll(valueObjects);
+    this.stationRepository.flush();
+    List<StationMixin> mixins = new ArrayList<>(savedEntities.size());
+    for (Station savedEntity : savedEntities) {
+      StationMixin mixin = new CreateStationMixin();
+      mixin.buildMixin(savedEntity);
+      mixins.add(mixin);
+      this.eventPublisher.publishEvent(StationMutationEvent.created(savedEntity.copy()));
+    }
+    this.entityManager.clear();
+    LOG.debug("Objects created successfully");
+    return mixins;
+  }
+
+  /**
+   * Refuses the station if it does not satisfy the constraints declared on its fields, as they are
+   * not checked by the persistence layer.
+   */
+  private static void checkConstraints(Station station) {
+    if (!StationConstraints.isValid(station)) {
+      throw new IllegalArgumentException(
+          "Station " + station.getStationId() + " does not satisfy the constraints of a station");
+    }
+  }
+
+  @Transactional
+  @Override
+  @RetryOnTransientFailure
   public List<Station> retrieveAllStations() {
     return this.stationRepository.findAll();
   }
 
+  /**
+   * Streams all the stations to the consumer.
+   *
+   * <p>Each station is detached from the persistence context once it has been consumed, so that
+   * the memory footprint remains flat irrespective of the number of stations.
+   *
+   * @param consumer consumer to which each station is handed over
+   */
+  @Transactional
+  @Override
+  public void streamAllStations(Consumer<Station> consumer) {
+    try (Stream<Station> stations = this.stationRepository.streamAllStations()) {
+      stations.forEach(station -> {
+        consumer.accept(station);
+        this.entityManager.detach(station);
+      });
+    }
+  }
+
+  @Transactional
+  @Override
+  @RetryOnTransientFailure
+  public StationCatalogVersion retrieveCatalogVersion() {
+    return this.stationRepository.findCatalogVersion();
+  }
+
+  @Transactional
+  @Override
+  @RetryOnTransientFailure
+  public StationPage retrieveStationPage(String continuationToken, Integer limit,
+      Locale locale) {
+    StationPage page = new StationPage();
+    Integer pageSize = resolvePageSize(page, limit, locale);
+    if (pageSize == null) {
+      return page;
+    }
+    Long lastId = Long.MIN_VALUE;
+    if (continuationToken != null) {
+      lastId = decodeStationPageToken(continuationToken);
+      if (lastId == null) {
+        addInvalidTokenError(page, continuationToken, locale);
+        return page;
+      }
+    }
+    // Fetch one more station than required to find out if there is a next page.
+    List<Station> stations = this.stationRepository.findByIdGreaterThanOrderByIdAsc(
+        lastId, PageRequest.of(0, pageSize + 1));
+    if (stations.size() > pageSize) {
+      stations = stations.subList(0, pageSize);
+      page.setContinuationToken(
+          ContinuationTokens.encode(stations.get(pageSize - 1).getId()));
+    }
+    page.setStations(stations);
+    return page;
+  }
+
+  /**
+   * Returns a single page of HD enabled stations from the {@link HdStationIndex}.
+   *
+   * <p>The page is keyed by the last station id rather than by the primary key, as the view is
+   * ordered by station id.
+   */
+  @Override
+  public StationPage retrieveHdStationPage(String continuationToken, Integer limit,
+      Locale locale) {
+    StationPage page = new StationPage();
+    Integer pageSize = resolvePageSize(page, limit, locale);
+    if (pageSize == null) {
+      return page;
+    }
+    String lastStationId = null;
+    if (continuationToken != null) {
+      String[] values = ContinuationTokens.decode(continuationToken, 1);
+      if (values == null) {
+        addInvalidTokenError(page, continuationToken, locale);
+        return page;
+      }
+      lastStationId = values[0];
+    }
+    // Fetch one more station than required to find out if there is a next page.
+    List<Station> stations = this.hdStationIndex.page(lastStationId, pageSize + 1);
+    if (stations.size() > pageSize) {
+      stations = stations.subList(0, pageSize);
+      page.setContinuationToken(
+          ContinuationTokens.encode(stations.get(pageSize - 1).getStationId()));
+    }
+    page.setStations(stations);
+    return page;
+  }
+
+  /**
+   * Returns a single page of the stations matching the query from the {@link StationSearchIndex}.
+   *
+   * <p>The page is keyed by the rank, the matching term and the station id of the last station.
+   */
+  @Override
+  public StationPage searchStations(String query, String continuationToken, Integer limit,
+      Locale locale) {
+    StationPage page = new StationPage();
+    Integer pageSize = resolvePageSize(page, limit, locale);
+    if (pageSize == null) {
+      return page;
+    }
+    if (!StationSearchIndex.isSearchable(query)) {
+      page.addError(ErrorCodes.BAD_REQUEST,
+          this.messageSource.getMessage("station.search.query.invalid", new Object[] {query},
+              locale));
+      return page;
+    }
+    StationSearchIndex.Hit after = null;
+    if (continuationToken != null) {
+      after = decodeSearchToken(continuationToken);
+      if (after == null) {
+        addInvalidTokenError(page, continuationToken, locale);
+        return page;
+      }
+    }
+    // Fetch one more station than required to find out if there is a next page.
+    List<StationSearchIndex.Hit> hits = this.searchIndex.search(query, after, pageSize + 1);
+    if (hits.size() > pageSize) {
+      hits = hits.subList(0, pageSize);
+      StationSearchIndex.Hit last = hits.get(pageSize - 1);
+      page.setContinuationToken(ContinuationTokens.encode(
+          last.getRank(), last.getTerm(), last.getStation().getStationId()));
+    }
+    List<Station> stations = new ArrayList<>(hits.size());
+    for (StationSearchIndex.Hit hit : hits) {
+      stations.add(hit.getStation());
+    }
+    page.setStations(stations);
+    return page;
+  }
+
+  private static StationSearchIndex.Hit decodeSearchToken(String continuationToken) {
+    String[] values = ContinuationTokens.decode(continuationToken, 3);
+    if (values == null) {
+      return null;
+    }
+    int rank;
+    try {
+      rank = Integer.parseInt(values[0]);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (rank < StationSearchIndex.KEY_PREFIX || rank > StationSearchIndex.FUZZY_WORD_PREFIX) {
+      return null;
+    }
+    Station station = new Station();
+    station.setStationId(values[2]);
+    return new StationSearchIndex.Hit(station, rank, values[1]);
+  }
+
+  /**
+   * Returns the stations changed since the given point, by merging a keyset scan of the stations
+   * by modification time with a keyset scan of the tombstones by deletion time.
+   *
+   * <p>The changes made within the last {@code iheartmedia.stations.changes.settle-millis} are
+   * held back, so that a transaction which set the modification time of a station before the scan,
+   * but committed after it, is not skipped by the next sync. A delta from a point older than the
+   * retention period of the tombstones is rejected, as deletions may have been missed.
+   */
+  @Transactional
+  @Override
+  @RetryOnTransientFailure
+  public StationDelta retrieveStationChanges(String since, Integer limit, Locale locale) {
+    StationDelta delta = new StationDelta();
+    Integer pageSize = resolvePageSize(delta, limit, locale);
+    if (pageSize == null) {
+      return delta;
+    }
+    ChangeCursor cursor = since == null ? ChangeCursor.START : ChangeCursor.parse(since);
+    if (cursor == null) {
+      delta.addError(ErrorCodes.BAD_REQUEST,
+          this.messageSource.getMessage("station.changes.since.invalid", new Object[] {since},
+              locale));
+      return delta;
+    }
+    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+    if (since != null && this.tombstoneRetentionDays > 0
+        && cursor.timestamp.isBefore(now.minusDays(this.tombstoneRetentionDays))) {
+      delta.addError(ErrorCodes.GONE,
+          this.messageSource.getMessage("station.changes.since.expired",
+              new Object[] {since, this.tombstoneRetentionDays}, locale));
+      return delta;
+    }
+    LocalDateTime until = now.minus(this.changesSettleMillis, ChronoUnit.MILLIS);
+    // Fetch one more change of each kind than required to find out if there are more changes.
+    PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+    List<Station> stations = this.stationRepository.findModifiedAfter(
+        cursor.timestamp, cursor.stationAfterId(), until, pageRequest);
+    List<StationTombstone> tombstones = this.tombstoneRepository.findDeletedAfter(
+        cursor.timestamp, cursor.tombstoneAfterId(), until, pageRequest);
+    // Only the latest change of each station is kept. The number of changes merged, rather than
+    // kept, is limited so that neither of the scans is read past the changes it fetched.
+    Map<String, Object> changes = new LinkedHashMap<>();
+    int stationIndex = 0;
+    int tombstoneIndex = 0;
+    while (stationIndex + tombstoneIndex < pageSize
+        && (stationIndex < stations.size() || tombstoneIndex < tombstones.size())) {
+      if (tombstoneIndex == tombstones.size() || (stationIndex < stations.size()
+          && !stations.get(stationIndex).getUpdatedTimestamp().isAfter(
+              tombstones.get(tombstoneIndex).getDeletedTimestamp()))) {
+        Station station = stations.get(stationIndex++);
+        changes.remove(station.getStationId());
+        changes.put(station.getStationId(), station);
+        cursor = new ChangeCursor(
+            station.getUpdatedTimestamp(), ChangeCursor.STATION, station.getId());
+      } else {
+        StationTombstone tombstone = tombstones.get(tombstoneIndex++);
+        changes.remove(tombstone.getStationId());
+        changes.put(tombstone.getStationId(), tombstone);
+        cursor = new ChangeCursor(
+            tombstone.getDeletedTimestamp(), ChangeCursor.TOMBSTONE, tombstone.getId());
+      }
+    }
+    for (Object change : changes.values()) {
+      if (change instanceof Station) {
+        delta.getStations().add((Station) change);
+      } else {
+        delta.getDeletedStations().add((StationTombstone) change);
+      }
+    }
+    delta.setHasMore(stationIndex < stations.size() || tombstoneIndex < tombstones.size());
+    delta.setContinuationToken(cursor.encode());
+    return delta;
+  }
+
+  /**
+   * Deletes the tombstones that are older than the retention period.
+   */
+  @Scheduled(fixedDelayString = "${iheartmedia.stations.changes.purge-interval-millis:3600000}")
+  @Transactional
+  public void purgeExpiredTombstones() {
+    if (this.tombstoneRetentionDays <= 0) {
+      return;
+    }
+    int purged = this.tombstoneRepository.deleteDeletedBefore(
+        LocalDateTime.now(ZoneOffset.UTC).minusDays(this.tombstoneRetentionDays));
+    LOG.debug("Purged {} expired tombstones", purged);
+  }
+
+  /**
+   * Position in the changes to the stations, ordered by the time of the change, the kind of the
+   * change, and the primary key.
+   */
+  private static final class ChangeCursor {
+
+    private static final int NONE = 0;
+
+    private static final int STATION = 1;
+
+    private static final int TOMBSTONE = 2;
+
+    private static final ChangeCursor START =
+        new ChangeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), NONE, 0L);
+
+    private final LocalDateTime timestamp;
+
+    private final int kind;
+
+    private final long id;
+
+    private ChangeCursor(LocalDateTime timestamp, int kind, long id) {
+      this.timestamp = timestamp;
+      this.kind = kind;
+      this.id = id;
+    }
+
+    /**
+     * Returns the primary key after which the stations changed at the time of the cursor follow.
+     */
+    private long stationAfterId() {
+      return this.kind == STATION ? this.id : this.kind == NONE ? 0L : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the primary key after which the tombstones created at the time of the cursor follow.
+     */
+    private long tombstoneAfterId() {
+      return this.kind == TOMBSTONE ? this.id : 0L;
+    }
+
+    private String encode() {
+      return ContinuationTokens.encode(this.timestamp, this.kind, this.id);
+    }
+
+    /**
+     * Returns the cursor for either a time or a continuation token, or {@code null} if it is
+     * neither. The cursor for a time follows the changes made at that time, and the cursor for a
+     * number of milliseconds follows all the changes made within that millisecond.
+     */
+    private static ChangeCursor parse(String since) {
+      try {
+        return after(Instant.ofEpochMilli(Long.parseLong(since)).plusMillis(1L).minusNanos(1L));
+      } catch (NumberFormatException e) {
+        // Not a number of milliseconds.
+      } catch (DateTimeException e) {
+        return null;
+      }
+      try {
+        return after(Instant.parse(since));
+      } catch (DateTimeParseException e) {
+        // Not an ISO-8601 instant.
+      } catch (DateTimeException e) {
+        return null;
+      }
+      String[] values = ContinuationTokens.decode(since, 3);
+      if (values == null) {
+        return null;
+      }
+      try {
+        int kind = Integer.parseInt(values[1]);
+        if (kind < NONE || kind > TOMBSTONE) {
+          return null;
+        }
+        return new ChangeCursor(LocalDateTime.parse(values[0]), kind, Long.parseLong(values[2]));
+      } catch (NumberFormatException | DateTimeException e) {
+        return null;
+      }
+    }
+
+    private static ChangeCursor after(Instant instant) {
+      return new ChangeCursor(
+          LocalDateTime.ofInstant(instant, ZoneOffset.UTC), TOMBSTONE, Long.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Returns the page size for the requested limit, or {@code null} if the limit is not valid, in
+   * which case the error is added to the page.
+   */
+  private Integer resolvePageSize(IError page, Integer limit, Locale locale) {
+    if (limit == null) {
+      limit = this.defaultPageLimit;
+    }
+    if (limit < 1) {
+      page.addError(ErrorCodes.BAD_REQUEST,
+          this.messageSource.getMessage("station.page.limit.invalid", new Object[] {limit},
+              locale));
+      return null;
+    }
+    return Math.min(limit, this.maxPageLimit);
+  }
+
+  private void addInvalidTokenError(StationPage page, String continuationToken, Locale locale) {
+    page.addError(ErrorCodes.BAD_REQUEST,
+        this.messageSource.getMessage("continuation.token.invalid",
+            new Object[] {continuationToken}, locale));
+  }
+
+  private static Long decodeStationPageToken(String continuationToken) {
+    String[] values = ContinuationTokens.decode(continuationToken, 1);
+    if (values == null) {
+      return null;
+    }
+    try {
+      return Long.valueOf(values[0]);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
   private void updateState(Station stationObject, StationMixin mixin) {
     if (mixin.getCallSign() != null && !mixin.getCallSign().isEmpty()) {
       stationObject.setCallSign(mixin.getCallSign());
@@ -76,7 +571,8 @@ public class StationService implements IStationService {
         && !mixin.getHdEnabled().equals(stationObject.getHdEnabled())) {
       stationObject.setHdEnabled(mixin.getHdEnabled());
     }
-    stationObject.setUpdatedTimestamp(LocalDateTime.now(ZoneOffset.UTC));
+    // Changed even if no other field is, so that every update is written and bumps the version.
+    stationObject.setUpdatedTimestamp(Station.nextTimestamp(stationObject.getUpdatedTimestamp()));
   }
 
   /**
@@ -100,22 +596,100 @@ public class StationService implements IStationService {
     return mixin;
   }
 
-  @Transactional
+  /**
+   * Returns the station by station id.
+   *
+   * <p>The lookup is served from the station cache, and is deliberately not transactional so that
+   * a cache hit does not acquire a database connection.
+   *
+   * @param stationId station id
+   * @param locale locale object
+   * @return mixin object
+   */
   @Override
+  @RetryOnTransientFailure
   public StationMixin retrieveStationByStationId(String stationId, Locale locale) {
-    Station station =  this.stationRepository.findByStationId(stationId);
+    Station station =
+        this.stationCache.getByStationId(stationId, this.stationRepository::findByStationId);
     return this.transformStationToMixin(
         station, locale, "station.not.found.station.id", stationId);
   }
 
-  @Transactional
+  /**
+   * Returns the station by station name.
+   *
+   * <p>The lookup is served from the station cache, and is deliberately not transactional so that
+   * a cache hit does not acquire a database connection.
+   *
+   * @param stationName station name
+   * @param locale locale object
+   * @return mixin object
+   */
   @Override
+  @RetryOnTransientFailure
   public StationMixin retrieveStationByStationName(String stationName, Locale locale) {
-    Station station = this.stationRepository.findByStationName(stationName);
+    Station station =
+        this.stationCache.getByStationName(stationName, this.stationRepository::findByStationName);
     return this.transformStationToMixin(
         station, locale, "station.not.found.station.name", stationName);
   }
 
+  /**
+   * Returns the stations by station ids and station names.
+   *
+   * <p>As with the lookup of a single station, the stations are served from the station cache,
+   * and the lookup is deliberately not transactional. The stations that have not been cached are
+   * fetched with a single {@code IN} query per kind of key, rather than a query per station.
+   *
+   * @param lookupRequest station ids and station names to be looked up
+   * @param locale locale object
+   * @return outcome of the lookup of each distinct station id and station name
+   */
+  @Override
+  @RetryOnTransientFailure
+  public StationLookup lookupStations(StationLookupRequest lookupRequest, Locale locale) {
+    StationLookup lookup = new StationLookup();
+    Set<String> stationIds = distinctKeys(lookupRequest.getStationIds());
+    Set<String> stationNames = distinctKeys(lookupRequest.getStationNames());
+    int keys = stationIds.size() + stationNames.size();
+    if (keys > this.maxLookupKeys) {
+      lookup.addError(ErrorCodes.BAD_REQUEST,
+          this.messageSource.getMessage("station.lookup.limit.exceeded",
+              new Object[] {keys, this.maxLookupKeys}, locale));
+      return lookup;
+    }
+    LOG.debug("Looking up {} stations", keys);
+    if (!stationIds.isEmpty()) {
+      Map<String, Station> stations = this.stationCache.getAllByStationId(
+          stationIds, this.stationRepository::findByStationIdIn);
+      for (String stationId : stationIds) {
+        lookup.getStationIds().put(stationId, transformStationToMixin(
+            stations.get(stationId), locale, "station.not.found.station.id", stationId));
+      }
+    }
+    if (!stationNames.isEmpty()) {
+      Map<String, Station> stations = this.stationCache.getAllByStationName(
+          stationNames, this.stationRepository::findByStationNameIn);
+      for (String stationName : stationNames) {
+        lookup.getStationNames().put(stationName, transformStationToMixin(
+            stations.get(stationName), locale, "station.not.found.station.name", stationName));
+      }
+    }
+    return lookup;
+  }
+
+  private static Set<String> distinctKeys(List<String> keys) {
+    Set<String> distinctKeys = new LinkedHashSet<>();
+    if (keys != null) {
+      for (String key : keys) {
+        if (key != null && !key.isEmpty()) {
+          distinctKeys.add(key);
+        }
+      }
+    }
+    return distinctKeys;
+  }
+
   /**
    * Validates the fetched entity.
    *
@@ -131,21 +705,25 @@ public class StationService implements IStationService {
    private StationMixin validateStationOrSave(Locale locale,
        Station fetchedStation, StationMixin stateToBeMerged, String messageKey,
        Object ... errorArgs) {
-     LOG.info("Initiating the validation and serving objects");
+     LOG.debug("Initiating the validation and serving objects");
      if (fetchedStation == null) {
        StationMixin mixin = new UpdateStationMixin();
-       LOG.warn("No objects to be updated");
+       LOG.debug("No objects to be updated");
        mixin.addError(
            ErrorCodes.NOT_FOUND,
            this.messageSource.getMessage(messageKey, errorArgs, locale));
        return mixin;
      }
+     Station previousState = fetchedStation.copy();
      updateState(fetchedStation, stateToBeMerged);
-     Station updatedEntity = this.stationRepository.save(fetchedStation);
+     // Flushed so that the version is final, and a concurrent update is detected here.
+     Station updatedEntity = this.stationRepository.saveAndFlush(fetchedStation);
      StationMixin mixin = new UpdateStationMixin();
      mixin.setTimestamp(updatedEntity.getUpdatedTimestamp());
      mixin.buildMixin(updatedEntity);
-     LOG.info("Entity " + fetchedStation.getStationId() + " has been updated.");
+     this.eventPublisher.publishEvent(
+         StationMutationEvent.updated(previousState, updatedEntity.copy()));
+     LOG.debug("Entity {} has been updated.", updatedEntity.getStationId());
      return mixin;
   }
 
@@ -159,40 +737,290 @@ public class StationService implements IStationService {
    * @return mixin object
    */
   @Override
-  @Transactional
+  @RetryOnTransientFailure
   public StationMixin updateStation(
       String stationId, StationMixin stationMixin, Locale locale) {
+    return updateStation(stationId, stationMixin, null, locale);
+  }
+
+  /**
+   * Updates the station entity by station id if the precondition is satisfied.
+   *
+   * <p>If single statement updates are enabled, and the station has been cached, the update is
+   * first attempted in a single statement that only succeeds if the station is still at the cached
+   * version. Otherwise, or if the cached state is stale, the station is read before being updated.
+   *
+   * <p>Each attempt runs in a transaction of its own. If the update loses a race against a
+   * concurrent update, and merging is enabled, the update is attempted again against the current
+   * state of the station as long as none of the fields to be updated have been changed by the
+   * concurrent updates. Otherwise the update is rejected as a failed precondition.
+   *
+   * @param stationId station id associated with the station
+   * @param stationMixin station instance encapsulation the data to be updated
+   * @param ifMatch entity tags of which the station must match one, or {@code null}
+   * @param locale locale instance
+   * @return mixin object
+   */
+  @Override
+  @RetryOnTransientFailure
+  public StationMixin updateStation(
+      String stationId, StationMixin stationMixin, String ifMatch, Locale locale) {
+    LOG.debug("Updating the station by station id: {}", stationId);
+    if (this.singleStatementUpdates) {
+      StationMixin updated = updateCachedStation(stationId, stationMixin, ifMatch);
+      if (updated != null) {
+        return updated;
+      }
+    }
+    // State of the station when it was first fetched, against which concurrent updates are merged.
+    AtomicReference<Station> baseline = new AtomicReference<>();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return this.transactionTemplate.execute(status ->
+            updateStation(stationId, stationMixin, ifMatch, baseline, locale));
+      } catch (OptimisticLockingFailureException e) {
+        if (!this.mergeOnConflict || attempt >= this.maxMergeAttempts) {
+          LOG.debug("Update of station {} lost to a concurrent update", stationId);
+          return preconditionFailed(new UpdateStationMixin(), stationId, locale);
+        }
+        LOG.debug("Merging the update of station {} with a concurrent update", stationId);
+      }
+    }
+  }
+
+  /**
+   * Updates the cached station in a single statement, without reading it first.
+   *
+   * <p>The statement only matches the station if it is still at the cached version, in which case
+   * the cached state is known to be the state that was updated, and the updated state is derived
+   * from it rather than read back. Returns {@code null} if the station has not been cached, if the
+   * precondition is not satisfied by the cached state, or if the cached state turns out to be
+   * stale, in which case the caller falls back to reading the station first.
+   */
+  private StationMixin updateCachedStation(String stationId, StationMixin stationMixin,
+      String ifMatch) {
+    Station cached = this.stationCache.peekByStationId(stationId);
+    if (cached == null
+        || !EntityTags.matches(ifMatch, EntityTags.of(cached.getId(), cached.getVersion()))) {
+      return null;
+    }
+    Station updatedStation = cached.copy();
+    updateState(updatedStation, stationMixin);
+    // Only the fields that the update changes are written.
+    Station changes = new Station();
+    if (!Objects.equals(cached.getCallSign(), updatedStation.getCallSign())) {
+      changes.setCallSign(updatedStation.getCallSign());
+    }
+    if (!Objects.equals(cached.getStationName(), updatedStation.getStationName())) {
+      changes.setStationName(updatedStation.getStationName());
+    }
+    if (!Objects.equals(cached.getHdEnabled(), updatedStation.getHdEnabled())) {
+      changes.setHdEnabled(updatedStation.getHdEnabled());
+    }
+    changes.setUpdatedTimestamp(updatedStation.getUpdatedTimestamp());
+    return this.transactionTemplate.execute(status -> {
+      if (this.stationRepository.updateIfVersionMatches(
+          stationId, cached.getVersion(), changes) == 0) {
+        LOG.debug("Cached state of station {} is stale", stationId);
+        return null;
+      }
+      updatedStation.setVersion(cached.getVersion() + 1);
+      updatedStation.setUpdatedTimestamp(changes.getUpdatedTimestamp());
+      StationMixin mixin = new UpdateStationMixin();
+      mixin.setTimestamp(updatedStation.getUpdatedTimestamp());
+      mixin.buildMixin(updatedStation);
+      this.eventPublisher.publishEvent(
+          StationMutationEvent.updated(cached, updatedStation.copy()));
+      LOG.debug("Entity {} has been updated.", stationId);
+      return mixin;
+    });
+  }
+
+  private StationMixin updateStation(String stationId, StationMixin stationMixin,
+      String ifMatch, AtomicReference<Station> baseline, Locale locale) {
     Station fetchedStation = this.stationRepository.findByStationId(stationId);
-    LOG.info("Updating the station by station id: " + stationId);
-    return validateStationOrSave( locale, fetchedStation, stationMixin,
+    if (fetchedStation != null) {
+      if (baseline.get() == null) {
+        if (!EntityTags.matches(ifMatch,
+            EntityTags.of(fetchedStation.getId(), fetchedStation.getVersion()))) {
+          return preconditionFailed(new UpdateStationMixin(), stationId, locale);
+        }
+        baseline.set(fetchedStation.copy());
+      } else if (conflicts(baseline.get(), fetchedStation, stationMixin)) {
+        return preconditionFailed(new UpdateStationMixin(), stationId, locale);
+      }
+    }
+    return validateStationOrSave(locale, fetchedStation, stationMixin,
         "station.not.found.station.id", stationId);
   }
 
+  /**
+   * Returns {@code true} if any of the fields to be updated by the mixin have been changed since
+   * the baseline state of the station was fetched.
+   */
+  private static boolean conflicts(Station baseline, Station current, StationMixin mixin) {
+    if (!baseline.getId().equals(current.getId())) {
+      return true;
+    }
+    if (mixin.getCallSign() != null && !mixin.getCallSign().isEmpty()
+        && !Objects.equals(baseline.getCallSign(), current.getCallSign())) {
+      return true;
+    }
+    if (mixin.getStationName() != null && !mixin.getStationName().isEmpty()
+        && !Objects.equals(baseline.getStationName(), current.getStationName())) {
+      return true;
+    }
+    return mixin.getHdEnabled() != null
+        && !Objects.equals(baseline.getHdEnabled(), current.getHdEnabled());
+  }
+
+  private StationMixin preconditionFailed(StationMixin mixin, String stationId, Locale locale) {
+    mixin.addError(ErrorCodes.PRECONDITION_FAILED,
+        this.messageSource.getMessage("station.precondition.failed", new Object[] {stationId},
+            locale));
+    return mixin;
+  }
+
   @Override
   @Transactional
+  @RetryOnTransientFailure
   public List<Station> retrieveHdEnabledStations() {
     return this.stationRepository.findHdEnabledStations();
   }
 
   @Override
   @Transactional
+  @RetryOnTransientFailure
   public StationMixin deleteStationByStationId(String stationId, Locale locale) {
-    List<Station> deletedStations = this.stationRepository.removeByStationId(stationId);
-    LOG.info("Deleting the station by station id: " + stationId);
-    StationMixin mixin = new DeleteStationMixin();
-    if (deletedStations.isEmpty()) {
-      LOG.warn("Unable to delete station by station id: " + stationId);
-      mixin.addError(
-          ErrorCodes.NOT_FOUND,
-          this.messageSource.getMessage("station.not.found.station.id",
-              new Object[] {stationId}, locale));
-    } else {
+    return deleteStationByStationId(stationId, null, locale);
+  }
+
+  /**
+   * Deletes the station by station id if the precondition is satisfied.
+   *
+   * <p>The station is deleted without being loaded into the persistence context. A cached station
+   * is deleted in a single statement that only matches the station at the cached version, in which
+   * case the cached state is known to be the state that was deleted. Otherwise, the columns of the
+   * station are read and locked with a projection, and the station is then deleted by primary key.
+   *
+   * @param stationId station id
+   * @param ifMatch entity tags of which the station must match one, or {@code null}
+   * @param locale locale
+   * @return mixin object
+   */
+  @Override
+  @Transactional
+  @RetryOnTransientFailure
+  public StationMixin deleteStationByStationId(String stationId, String ifMatch, Locale locale) {
+    LOG.debug("Deleting the station by station id: {}", stationId);
+    Station deletedStation = deleteCachedStation(stationId, ifMatch);
+    if (deletedStation == null) {
+      List<Station> stations =
+          this.stationRepository.findAndLockByStationIdIn(Collections.singleton(stationId));
+      if (stations.isEmpty()) {
+        LOG.debug("Unable to delete station by station id: {}", stationId);
+        StationMixin mixin = new DeleteStationMixin();
+        mixin.addError(
+            ErrorCodes.NOT_FOUND,
+            this.messageSource.getMessage("station.not.found.station.id",
+                new Object[] {stationId}, locale));
+        return mixin;
+      }
       // Station id is supposed to be unique so there should only be one instance.
-      LocalDateTime currentTime = LocalDateTime.now(ZoneOffset.UTC);
-      mixin.setTimestamp(currentTime);
-      Station deletedStation = deletedStations.iterator().next();
-      mixin.buildMixin(deletedStation);
+      deletedStation = stations.get(0);
+      if (!EntityTags.matches(ifMatch,
+          EntityTags.of(deletedStation.getId(), deletedStation.getVersion()))) {
+        return preconditionFailed(new DeleteStationMixin(), stationId, locale);
+      }
+      this.stationRepository.deleteByIdIn(Collections.singleton(deletedStation.getId()));
     }
+    LocalDateTime currentTime = LocalDateTime.now(ZoneOffset.UTC);
+    this.tombstoneRepository.save(new StationTombstone(
+        deletedStation.getStationId(), deletedStation.getVersion(), currentTime));
+    this.eventPublisher.publishEvent(StationMutationEvent.deleted(deletedStation.copy()));
+    StationMixin mixin = new DeleteStationMixin();
+    mixin.setTimestamp(currentTime);
+    mixin.buildMixin(deletedStation);
     return mixin;
   }
+
+  /**
+   * Deletes the cached station in a single statement, without reading it first.
+   *
+   * <p>Returns {@code null} if the station has not been cached, if the precondition is not
+   * satisfied by the cached state, or if the cached state turns out to be stale, in which case the
+   * caller falls back to reading the station first.
+   */
+  private Station deleteCachedStation(String stationId, String ifMatch) {
+    Station cached = this.stationCache.peekByStationId(stationId);
+    if (cached == null
+        || !EntityTags.matches(ifMatch, EntityTags.of(cached.getId(), cached.getVersion()))) {
+      return null;
+    }
+    if (this.stationRepository.deleteIfVersionMatches(stationId, cached.getVersion()) == 0) {
+      LOG.debug("Cached state of station {} is stale", stationId);
+      return null;
+    }
+    return cached;
+  }
+
+  /**
+   * Deletes several stations by station ids in a single transaction.
+   *
+   * <p>The stations are read and locked with a single projection, and are then deleted with a
+   * single statement, rather than with a statement per station. Their tombstones are inserted in
+   * a single batch.
+   *
+   * @param deletionRequest station ids of the stations to be deleted
+   * @param locale locale object
+   * @return outcome of the deletion of each distinct station id
+   */
+  @Override
+  @Transactional
+  @RetryOnTransientFailure
+  public StationDeletion deleteStations(StationDeletionRequest deletionRequest, Locale locale) {
+    StationDeletion deletion = new StationDeletion();
+    Set<String> stationIds = distinctKeys(deletionRequest.getStationIds());
+    if (stationIds.size() > this.maxDeleteKeys) {
+      deletion.addError(ErrorCodes.BAD_REQUEST,
+          this.messageSource.getMessage("station.delete.limit.exceeded",
+              new Object[] {stationIds.size(), this.maxDeleteKeys}, locale));
+      return deletion;
+    }
+    LOG.debug("Deleting {} stations", stationIds.size());
+    Map<String, Station> stations = new LinkedHashMap<>();
+    if (!stationIds.isEmpty()) {
+      for (Station station : this.stationRepository.findAndLockByStationIdIn(stationIds)) {
+        stations.put(station.getStationId(), station);
+      }
+    }
+    if (!stations.isEmpty()) {
+      List<Long> ids = new ArrayList<>(stations.size());
+      for (Station station : stations.values()) {
+        ids.add(station.getId());
+      }
+      this.stationRepository.deleteByIdIn(ids);
+    }
+    LocalDateTime currentTime = LocalDateTime.now(ZoneOffset.UTC);
+    List<StationTombstone> tombstones = new ArrayList<>(stations.size());
+    for (String stationId : stationIds) {
+      StationMixin mixin = new DeleteStationMixin();
+      Station deletedStation = stations.get(stationId);
+      if (deletedStation == null) {
+        mixin.addError(
+            ErrorCodes.NOT_FOUND,
+            this.messageSource.getMessage("station.not.found.station.id",
+                new Object[] {stationId}, locale));
+      } else {
+        tombstones.add(new StationTombstone(
+            deletedStation.getStationId(), deletedStation.getVersion(), currentTime));
+        mixin.setTimestamp(currentTime);
+        mixin.buildMixin(deletedStation);
+        this.eventPublisher.publishEvent(StationMutationEvent.deleted(deletedStation.copy()));
+      }
+      deletion.getStationIds().put(stationId, mixin);
+    }
+    this.tombstoneRepository.saveAll(tombstones);
+    return deletion;
+  }
 }
@@ -0,0 +1,47 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iheartmedia.model.Station;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Versions of the recently mutated stations, by which the views maintained from the
+ * {@link StationMutationEvent}s discard the events delivered out of order.
+ *
+ * <p>The events of concurrent mutations are published after their transactions have committed,
+ * and so may reach a listener in either order. A deletion is recorded as the version following the
+ * last version of the station. The versions are only kept for a minute, which is far longer than
+ * the events of two mutations can be apart.
+ */
+final class StationVersions {
+
+  private final Cache<Long, Integer> versions = Caffeine.newBuilder()
+      .expireAfterWrite(1L, TimeUnit.MINUTES)
+      .build();
+
+  /**
+   * Records the version of the mutated station, unless a more recent version has been recorded.
+   *
+   * @param event mutation event
+   * @return {@code true} if the event is to be applied, or {@code false} if it is stale
+   */
+  boolean advance(StationMutationEvent event) {
+    Station station = event.getCurrent() != null ? event.getCurrent() : event.getPrevious();
+    if (station == null || station.getId() == null || station.getVersion() == null) {
+      return true;
+    }
+    int version = event.getCurrent() != null ? station.getVersion() : station.getVersion() + 1;
+    boolean[] advanced = new boolean[1];
+    this.versions.asMap().compute(station.getId(), (id, recorded) -> {
+      if (recorded != null && recorded > version) {
+        return recorded;
+      }
+      advanced[0] = true;
+      return version;
+    });
+    return advanced[0];
+  }
+}
@@ -8,14 +8,25 @@ import com.iheartmedia.model.ErrorCodes;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * General exception handler for the entire application.
  *
@@ -27,6 +38,9 @@ public class AppExceptionHandler extends ResponseEntityExceptionHandler {
   @Autowired
   private MessageSource messageSource;
 
+  @Autowired
+  private RequestMappingHandlerMapping handlerMapping;
+
   /**
    * Handles all exceptions related to persistence operation.
    *
@@ -44,4 +58,111 @@ public class AppExceptionHandler extends ResponseEntityExceptionHandler {
             ((ServletWebRequest)request).getLocale()));
     return new ResponseEntity<>(mixin, HttpStatus.CONFLICT);
   }
+
+  /**
+   * Handles the updates that lost a race against a concurrent update, and could not be resolved.
+   *
+   * @param ex exception raised
+   * @param request web request
+   * @return response entity returning a 412 error code
+   */
+  @ExceptionHandler(value = { OptimisticLockingFailureException.class })
+  protected ResponseEntity<StationMixin> handleOptimisticLockingFailure(
+      OptimisticLockingFailureException ex, WebRequest request) {
+    StationMixin mixin = new GetStationMixin();
+    mixin.addError(
+        ErrorCodes.PRECONDITION_FAILED,
+        this.messageSource.getMessage("station.modified.concurrently", null,
+            ((ServletWebRequest)request).getLocale()));
+    return new ResponseEntity<>(mixin, HttpStatus.PRECONDITION_FAILED);
+  }
+
+  /**
+   * Handles the requests rejected while the data source is unavailable.
+   *
+   * @param ex exception raised
+   * @param request web request
+   * @return response entity returning a 503 error code, and the number of seconds after which the
+   *     request may be retried
+   */
+  @ExceptionHandler(value = { DataSourceUnavailableException.class })
+  protected ResponseEntity<StationMixin> handleDataSourceUnavailable(
+      DataSourceUnavailableException ex, WebRequest request) {
+    StationMixin mixin = new GetStationMixin();
+    mixin.addError(
+        ErrorCodes.SERVICE_UNAVAILABLE,
+        this.messageSource.getMessage("datasource.unavailable", null,
+            ((ServletWebRequest)request).getLocale()));
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+    return new ResponseEntity<>(mixin, headers, HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  /**
+   * Handles the requests rejected while the service is saturated.
+   *
+   * @param ex exception raised
+   * @param request web request
+   * @return response entity returning a 503 error code, and the number of seconds after which the
+   *     request may be retried
+   */
+  @ExceptionHandler(value = { ServiceSaturatedException.class })
+  protected ResponseEntity<StationMixin> handleServiceSaturated(
+      ServiceSaturatedException ex, WebRequest request) {
+    StationMixin mixin = new GetStationMixin();
+    mixin.addError(
+        ErrorCodes.SERVICE_UNAVAILABLE,
+        this.messageSource.getMessage("service.saturated", null,
+            ((ServletWebRequest)request).getLocale()));
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+    return new ResponseEntity<>(mixin, headers, HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  /**
+   * Handles the mutations, searches and syncs sent to a read only replica.
+   *
+   * <p>A mutation is not allowed on the replica, and is answered with a 405 response whose
+   * {@code Allow} header lists the methods that the replica serves on the same resource, which is
+   * empty if the resource can not be read. A search or a sync is a read that only the primary
+   * implements, and is answered with a 501 response.
+   *
+   * @param ex exception raised
+   * @param request web request
+   * @return response entity returning a 405 or a 501 error code
+   */
+  @ExceptionHandler(value = { ReadOnlyReplicaException.class })
+  protected ResponseEntity<StationMixin> handleReadOnlyReplica(
+      ReadOnlyReplicaException ex, WebRequest request) {
+    StationMixin mixin = new GetStationMixin();
+    if (!ex.isMutation()) {
+      mixin.addError(
+          ErrorCodes.NOT_IMPLEMENTED,
+          this.messageSource.getMessage("station.replica.primary.only", null,
+              ((ServletWebRequest)request).getLocale()));
+      return new ResponseEntity<>(mixin, HttpStatus.NOT_IMPLEMENTED);
+    }
+    mixin.addError(
+        ErrorCodes.METHOD_NOT_ALLOWED,
+        this.messageSource.getMessage("station.replica.read.only", null,
+            ((ServletWebRequest)request).getLocale()));
+    HttpHeaders headers = new HttpHeaders();
+    headers.setAllow(readMethods(
+        request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+            RequestAttributes.SCOPE_REQUEST)));
+    return new ResponseEntity<>(mixin, headers, HttpStatus.METHOD_NOT_ALLOWED);
+  }
+
+  // Methods by which the resource of the URI template is read, which the replica serves.
+  private Set<HttpMethod> readMethods(Object pattern) {
+    Set<HttpMethod> methods = EnumSet.noneOf(HttpMethod.class);
+    for (RequestMappingInfo mappingInfo : this.handlerMapping.getHandlerMethods().keySet()) {
+      if (mappingInfo.getPatternsCondition().getPatterns().contains(pattern)
+          && mappingInfo.getMethodsCondition().getMethods().contains(RequestMethod.GET)) {
+        methods.add(HttpMethod.GET);
+        methods.add(HttpMethod.HEAD);
+      }
+    }
+    return methods;
+  }
 }
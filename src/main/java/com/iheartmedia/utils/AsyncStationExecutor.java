@@ -0,0 +1,156 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Runs the blocking service calls of the station endpoints off the servlet container's threads.
+ *
+ * <p>The calls are run on a fixed size pool of threads, sized independently of the servlet
+ * container, in front of which sits a bounded queue. A call is rejected with a
+ * {@link ServiceSaturatedException} rather than queued without bound if either the queue is full,
+ * or the endpoint already has as many calls in flight as it is allowed to. The limit of an
+ * endpoint defaults to {@code iheartmedia.async.max-concurrency-per-endpoint}, and may be
+ * overridden by {@code iheartmedia.async.endpoints.<endpoint>.max-concurrency}, so that a slow
+ * endpoint can not take up the whole pool.
+ *
+ * <p>If the asynchronous execution is disabled, the calls are run on the calling thread, subject
+ * to the same limits per endpoint.
+ *
+ * <p>The properties of the executor are bound by {@link AsyncStationProperties}.
+ *
+ * <p>The pool is published as the {@code station.async} executor metrics, and the rejections as
+ * the {@code station.async.rejections} counter tagged by the endpoint.
+ */
+@Component
+public class AsyncStationExecutor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncStationExecutor.class);
+
+  private final AsyncStationProperties properties;
+
+  private final ExecutorService executor;
+
+  private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public AsyncStationExecutor(AsyncStationProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+        properties.getPoolSize(), properties.getPoolSize(), 60L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+        new CustomizableThreadFactory("station-async-"), new ThreadPoolExecutor.AbortPolicy());
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    this.executor = ExecutorServiceMetrics.monitor(
+        meterRegistry, threadPoolExecutor, "station.async", Collections.emptyList());
+  }
+
+  /**
+   * Runs the call on behalf of the endpoint.
+   *
+   * @param endpoint name of the endpoint, by which the calls in flight are limited
+   * @param call blocking call to be run
+   * @param <T> type of the value returned by the call
+   * @return future completed by the outcome of the call
+   * @throws ServiceSaturatedException if the call can not be accepted
+   */
+  public <T> CompletableFuture<T> supply(String endpoint, Supplier<T> call) {
+    Semaphore semaphore = acquire(endpoint);
+    CompletableFuture<T> future = new CompletableFuture<>();
+    if (!this.properties.isEnabled()) {
+      try {
+        future.complete(call.get());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      } finally {
+        semaphore.release();
+      }
+      return future;
+    }
+    // An error is completed exceptionally too, as the caller would otherwise wait on the future
+    // until the request timed out.
+    Runnable task = JpaQueryCounter.propagate(TransientFailureRetryAspect.propagate(() -> {
+      try {
+        future.complete(call.get());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      } finally {
+        semaphore.release();
+      }
+    }));
+    try {
+      this.executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      semaphore.release();
+      throw reject(endpoint);
+    }
+    return future;
+  }
+
+  /**
+   * Admits a call that is run on the calling thread on behalf of the endpoint, e.g. a response
+   * served from a cache, so that it counts towards the calls in flight of the endpoint.
+   *
+   * @param endpoint name of the endpoint, by which the calls in flight are limited
+   * @return permit of the call, to be closed once the call has completed
+   * @throws ServiceSaturatedException if the endpoint already has as many calls in flight as it is
+   *     allowed to
+   */
+  public Permit admit(String endpoint) {
+    return acquire(endpoint)::release;
+  }
+
+  private Semaphore acquire(String endpoint) {
+    Semaphore semaphore = this.permits.computeIfAbsent(endpoint,
+        key -> new Semaphore(this.properties.getMaxConcurrency(key)));
+    if (!semaphore.tryAcquire()) {
+      throw reject(endpoint);
+    }
+    return semaphore;
+  }
+
+  private ServiceSaturatedException reject(String endpoint) {
+    LOG.debug("Rejecting a call on behalf of {}", endpoint);
+    this.meterRegistry.counter("station.async.rejections", "endpoint", endpoint).increment();
+    return new ServiceSaturatedException(endpoint, this.properties.getRetryAfterSeconds());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    this.executor.shutdown();
+  }
+
+  /**
+   * Permit of a call admitted by {@link #admit(String)}.
+   */
+  @FunctionalInterface
+  public interface Permit extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,107 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Properties of the {@link AsyncStationExecutor}, bound from {@code iheartmedia.async.*}.
+ *
+ * <p>The properties are shared by the {@link DataSourcePoolSizer}, which sizes the connection pool
+ * to the executor and to the endpoints that are limited without running on it.
+ */
+@Component
+@ConfigurationProperties(prefix = "iheartmedia.async")
+public class AsyncStationProperties {
+
+  private boolean enabled = true;
+
+  private int poolSize = 32;
+
+  private int queueCapacity = 200;
+
+  private int maxConcurrencyPerEndpoint = 64;
+
+  private long retryAfterSeconds = 1L;
+
+  private Map<String, Endpoint> endpoints = new HashMap<>();
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getPoolSize() {
+    return this.poolSize;
+  }
+
+  public void setPoolSize(int poolSize) {
+    this.poolSize = poolSize;
+  }
+
+  public int getQueueCapacity() {
+    return this.queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public int getMaxConcurrencyPerEndpoint() {
+    return this.maxConcurrencyPerEndpoint;
+  }
+
+  public void setMaxConcurrencyPerEndpoint(int maxConcurrencyPerEndpoint) {
+    this.maxConcurrencyPerEndpoint = maxConcurrencyPerEndpoint;
+  }
+
+  public long getRetryAfterSeconds() {
+    return this.retryAfterSeconds;
+  }
+
+  public void setRetryAfterSeconds(long retryAfterSeconds) {
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public Map<String, Endpoint> getEndpoints() {
+    return this.endpoints;
+  }
+
+  public void setEndpoints(Map<String, Endpoint> endpoints) {
+    this.endpoints = endpoints;
+  }
+
+  /**
+   * Returns the maximum number of calls that the endpoint may have in flight.
+   *
+   * @param endpoint name of the endpoint
+   * @return limit of the endpoint if it is overridden, or the default limit otherwise
+   */
+  public int getMaxConcurrency(String endpoint) {
+    Endpoint properties = this.endpoints.get(endpoint);
+    return properties == null || properties.getMaxConcurrency() == null
+        ? this.maxConcurrencyPerEndpoint : properties.getMaxConcurrency();
+  }
+
+  /**
+   * Properties of a single endpoint, bound from {@code iheartmedia.async.endpoints.<endpoint>.*}.
+   */
+  public static class Endpoint {
+
+    private Integer maxConcurrency;
+
+    public Integer getMaxConcurrency() {
+      return this.maxConcurrency;
+    }
+
+    public void setMaxConcurrency(Integer maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Configures the binary formats in which the stations can be exchanged besides JSON.
+ *
+ * <p>A client negotiates Smile with {@code application/x-jackson-smile}, and CBOR with
+ * {@code application/cbor}, in either the {@code Accept} or the {@code Content-Type} header. Both
+ * formats encode the same data model as JSON, but without having to format and parse text.
+ *
+ * <p>The converters replace the ones registered by Spring MVC, so that the binary formats are
+ * serialised by object mappers configured by the {@code spring.jackson.*} properties, the same as
+ * JSON. They are registered after the JSON converter, so JSON remains the format of a client that
+ * accepts any format.
+ *
+ * <p>A client negotiates Protobuf with {@code application/x-protobuf}. Its messages are declared by
+ * the schema {@code src/main/proto/stations.proto}, and are converted by the
+ * {@link StationProtobufHttpMessageConverter}, which is registered last for the same reason.
+ */
+@Configuration
+public class BinaryFormatsConfig implements WebMvcConfigurer {
+
+  /**
+   * String equivalent of {@link #SMILE}.
+   */
+  public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+  /**
+   * Media type of Smile.
+   */
+  public static final MediaType SMILE = MediaType.valueOf(SMILE_VALUE);
+
+  /**
+   * String equivalent of {@link #CBOR}.
+   */
+  public static final String CBOR_VALUE = "application/cbor";
+
+  /**
+   * Media type of CBOR.
+   */
+  public static final MediaType CBOR = MediaType.valueOf(CBOR_VALUE);
+
+  /**
+   * String equivalent of {@link #PROTOBUF}.
+   */
+  public static final String PROTOBUF_VALUE = "application/x-protobuf";
+
+  /**
+   * Media type of Protobuf.
+   */
+  public static final MediaType PROTOBUF = MediaType.valueOf(PROTOBUF_VALUE);
+
+  /**
+   * Returns the converter of Smile.
+   *
+   * @param applicationContext application context
+   * @param customizers customizers that apply the {@code spring.jackson.*} properties
+   */
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+      ApplicationContext applicationContext,
+      List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+    return new MappingJackson2SmileHttpMessageConverter(
+        customize(Jackson2ObjectMapperBuilder.smile(), applicationContext, customizers).build());
+  }
+
+  /**
+   * Returns the converter of CBOR.
+   *
+   * @param applicationContext application context
+   * @param customizers customizers that apply the {@code spring.jackson.*} properties
+   */
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+      ApplicationContext applicationContext,
+      List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+    return new MappingJackson2CborHttpMessageConverter(
+        customize(Jackson2ObjectMapperBuilder.cbor(), applicationContext, customizers).build());
+  }
+
+  /**
+   * Appends the converter of Protobuf, which is not a replacement of a converter registered by
+   * Spring MVC, and so would otherwise be registered ahead of JSON.
+   */
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.add(new StationProtobufHttpMessageConverter());
+  }
+
+  // The builder of the JSON object mapper is a singleton, so a builder of each format is
+  // customised the same way instead.
+  private static Jackson2ObjectMapperBuilder customize(Jackson2ObjectMapperBuilder builder,
+      ApplicationContext applicationContext,
+      List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+    builder.applicationContext(applicationContext);
+    for (Jackson2ObjectMapperBuilderCustomizer customizer : customizers) {
+      customizer.customize(builder);
+    }
+    return builder;
+  }
+}
@@ -0,0 +1,138 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.util.ObjectUtils;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Message source that resolves the template of each message once per code and locale.
+ *
+ * <p>The resolved templates are reused until {@link #clearCache()} is invoked, e.g. by the
+ * {@link MessagesEndpoint}, rather than the properties files being checked for changes while
+ * resolving the messages. A message with arguments is formatted with a copy of its compiled
+ * {@link MessageFormat}, so that concurrent requests for the same message neither parse the
+ * template nor contend for the lock on a shared format.
+ *
+ * <p>The templates are keyed by the locale of the request, which is taken from the
+ * {@code Accept-Language} header as sent by the client, so at most a bounded number of templates
+ * are held, the least recently used of which are evicted first.
+ */
+public class CachingMessageSource extends ReloadableResourceBundleMessageSource {
+
+  private static final Object NOT_FOUND = new Object();
+
+  private static final long DEFAULT_MAXIMUM_SIZE = 1000L;
+
+  private final Cache<TemplateKey, Object> templates;
+
+  private final AtomicLong reloadedAt = new AtomicLong(System.currentTimeMillis());
+
+  public CachingMessageSource() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Creates a message source that holds at most the given number of templates.
+   *
+   * @param maximumSize maximum number of templates
+   */
+  public CachingMessageSource(long maximumSize) {
+    this.templates = Caffeine.newBuilder().maximumSize(maximumSize).build();
+  }
+
+  @Override
+  protected String getMessageInternal(String code, Object[] args, Locale locale) {
+    if (code == null) {
+      return null;
+    }
+    if (locale == null) {
+      locale = Locale.getDefault();
+    }
+    Object[] argsToUse = resolveArguments(args, locale);
+    boolean withArguments = isAlwaysUseMessageFormat() || !ObjectUtils.isEmpty(argsToUse);
+    Locale templateLocale = locale;
+    Object template = this.templates.get(
+        new TemplateKey(code, locale, withArguments), key -> {
+          Object resolved = withArguments
+              ? resolveCode(code, templateLocale)
+              : resolveCodeWithoutArguments(code, templateLocale);
+          return resolved == null ? NOT_FOUND : resolved;
+        });
+    if (template == NOT_FOUND) {
+      // Falls back to the common messages and to the parent message source, if any.
+      return super.getMessageInternal(code, args, locale);
+    }
+    if (template instanceof MessageFormat) {
+      return ((MessageFormat) ((MessageFormat) template).clone()).format(argsToUse);
+    }
+    return (String) template;
+  }
+
+  /**
+   * Discards the resolved templates and the loaded properties files, so that the messages are
+   * resolved afresh from the properties files.
+   */
+  @Override
+  public void clearCache() {
+    super.clearCache();
+    this.templates.invalidateAll();
+    this.reloadedAt.set(System.currentTimeMillis());
+  }
+
+  /**
+   * Returns the number of templates that have been resolved since the cache was last cleared.
+   */
+  public int getCachedTemplateCount() {
+    this.templates.cleanUp();
+    return (int) this.templates.estimatedSize();
+  }
+
+  /**
+   * Returns the time at which the cache was last cleared, in milliseconds since the epoch.
+   */
+  public long getReloadedAt() {
+    return this.reloadedAt.get();
+  }
+
+  private static final class TemplateKey {
+
+    private final String code;
+
+    private final Locale locale;
+
+    private final boolean withArguments;
+
+    private TemplateKey(String code, Locale locale, boolean withArguments) {
+      this.code = code;
+      this.locale = locale;
+      this.withArguments = withArguments;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof TemplateKey)) {
+        return false;
+      }
+      TemplateKey that = (TemplateKey) other;
+      return this.withArguments == that.withArguments
+          && this.code.equals(that.code)
+          && this.locale.equals(that.locale);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.code, this.locale, this.withArguments);
+    }
+  }
+}
@@ -1,9 +1,8 @@
 // Copyright 2018 Kartik Krishnanand. All Rights Reserved.
 package com.iheartmedia.utils;
 
-import org.springframework.context.MessageSource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.support.ReloadableResourceBundleMessageSource;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Validator;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
@@ -15,12 +14,20 @@ import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 public class ConfigurationHelper {
 
 
+    /**
+     * Returns the message source.
+     *
+     * <p>The properties files are loaded once, and are only reloaded through the
+     * {@link MessagesEndpoint}. At most {@code iheartmedia.messages.maximum-templates} templates
+     * are cached.
+     */
     @Bean
-    public MessageSource messageSource() {
-        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+    public CachingMessageSource messageSource(
+        @Value("${iheartmedia.messages.maximum-templates:1000}") long maximumTemplates) {
+        CachingMessageSource messageSource = new CachingMessageSource(maximumTemplates);
         messageSource.setBasenames("classpath:messages", "classpath:ValidationMessages");
         messageSource.setUseCodeAsDefaultMessage(true);
-        messageSource.setCacheSeconds(5);
+        messageSource.setCacheSeconds(-1);
         messageSource.setDefaultEncoding("UTF-8");
         return messageSource;
     }
@@ -0,0 +1,54 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque continuation tokens handed out by the paginated endpoints.
+ *
+ * <p>A token is simply the URL safe base 64 representation of the keyset values of the last
+ * record returned. Clients are expected to treat the token as an opaque string.
+ */
+public final class ContinuationTokens {
+
+  private static final char SEPARATOR = '\u0000';
+
+  private ContinuationTokens() {}
+
+  /**
+   * Encodes the keyset values into a continuation token.
+   *
+   * @param values keyset values of the last returned record
+   * @return continuation token
+   */
+  public static String encode(Object... values) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        builder.append(SEPARATOR);
+      }
+      builder.append(values[i]);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(
+        builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes the continuation token into its keyset values.
+   *
+   * @param token continuation token
+   * @param expectedValues number of keyset values encoded in the token
+   * @return keyset values, or {@code null} if the token is malformed
+   */
+  public static String[] decode(String token, int expectedValues) {
+    String decoded;
+    try {
+      decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    String[] values = decoded.split(String.valueOf(SEPARATOR), -1);
+    return values.length == expectedValues ? values : null;
+  }
+}
@@ -0,0 +1,149 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Circuit breaker that fails fast while the data source is unreachable.
+ *
+ * <p>The breaker opens once the configured number of consecutive invocations have failed due to
+ * resource failures. While open, invocations are rejected with a
+ * {@link DataSourceUnavailableException} without touching the data source. Once the open duration
+ * has elapsed, a single trial invocation is let through. The breaker closes if the trial succeeds,
+ * and opens again otherwise.
+ *
+ * <p>The state is published as the {@code station.datasource.circuit.state} gauge, where 0, 1 and 2
+ * represent the closed, open and half open states respectively.
+ */
+@Component
+public class DataSourceCircuitBreaker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DataSourceCircuitBreaker.class);
+
+  /**
+   * Enum of the states of the circuit breaker.
+   */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureThreshold;
+
+  private final long openDurationNanos;
+
+  private final Counter rejections;
+
+  // Volatile so that the closed state, which is the common case, is checked without locking.
+  private volatile State state = State.CLOSED;
+
+  private volatile int consecutiveFailures;
+
+  private long openedAtNanos;
+
+  private boolean trialInFlight;
+
+  @Autowired
+  public DataSourceCircuitBreaker(
+      @Value("${iheartmedia.circuit-breaker.failure-threshold:5}") int failureThreshold,
+      @Value("${iheartmedia.circuit-breaker.open-duration-seconds:10}") long openDurationSeconds,
+      MeterRegistry meterRegistry) {
+    this.failureThreshold = failureThreshold;
+    this.openDurationNanos = TimeUnit.SECONDS.toNanos(openDurationSeconds);
+    this.rejections = meterRegistry.counter("station.datasource.circuit.rejections");
+    meterRegistry.gauge("station.datasource.circuit.state", this,
+        breaker -> breaker.getState().ordinal());
+  }
+
+  /**
+   * Returns the current state of the circuit breaker.
+   */
+  public synchronized State getState() {
+    if (this.state == State.OPEN
+        && System.nanoTime() - this.openedAtNanos >= this.openDurationNanos) {
+      return State.HALF_OPEN;
+    }
+    return this.state;
+  }
+
+  /**
+   * Acquires the permission to invoke the data source.
+   *
+   * @throws DataSourceUnavailableException if the circuit breaker is open
+   */
+  public void acquirePermission() {
+    if (this.state == State.CLOSED) {
+      return;
+    }
+    acquireTrialPermission();
+  }
+
+  private synchronized void acquireTrialPermission() {
+    if (this.state == State.CLOSED) {
+      return;
+    }
+    long elapsedNanos = System.nanoTime() - this.openedAtNanos;
+    if (elapsedNanos >= this.openDurationNanos && !this.trialInFlight) {
+      this.state = State.HALF_OPEN;
+      this.trialInFlight = true;
+      return;
+    }
+    this.rejections.increment();
+    long remainingNanos = Math.max(this.openDurationNanos - elapsedNanos, 0L);
+    throw new DataSourceUnavailableException(
+        Math.max(TimeUnit.NANOSECONDS.toSeconds(remainingNanos), 1L));
+  }
+
+  /**
+   * Records a successful invocation of the data source.
+   */
+  public void onSuccess() {
+    if (this.state == State.CLOSED && this.consecutiveFailures == 0) {
+      return;
+    }
+    reset();
+  }
+
+  private synchronized void reset() {
+    if (this.state != State.CLOSED) {
+      LOG.info("Data source is reachable again. Closing the circuit.");
+    }
+    this.state = State.CLOSED;
+    this.consecutiveFailures = 0;
+    this.trialInFlight = false;
+  }
+
+  /**
+   * Records a failed invocation of the data source.
+   *
+   * <p>Only resource failures count towards opening the circuit. Any other failure shows that the
+   * data source is reachable.
+   *
+   * @param throwable failure raised by the invocation
+   */
+  public synchronized void onFailure(Throwable throwable) {
+    if (!TransientFailures.isResourceFailure(throwable)) {
+      reset();
+      return;
+    }
+    this.consecutiveFailures++;
+    if (this.state == State.HALF_OPEN || this.consecutiveFailures >= this.failureThreshold) {
+      if (this.state != State.OPEN) {
+        LOG.warn("Data source is unreachable. Opening the circuit.");
+      }
+      this.state = State.OPEN;
+      this.openedAtNanos = System.nanoTime();
+      this.trialInFlight = false;
+    }
+  }
+}
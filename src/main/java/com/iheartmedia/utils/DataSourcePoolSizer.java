@@ -0,0 +1,79 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sizes the connection pool to the {@link AsyncStationExecutor}, and to the endpoints that hold
+ * connections on the servlet container's threads.
+ *
+ * <p>Every thread of the executor may hold a connection at once, and so may every call in flight
+ * of the endpoints that stream all the stations ({@code retrieveAllStations}) and import stations
+ * ({@code importStations}), which are limited by their
+ * {@code iheartmedia.async.endpoints.<endpoint>.max-concurrency} without running on the executor.
+ * The pool is given a connection for each of them, plus
+ * {@code iheartmedia.datasource.pool-headroom} connections for the background work, i.e. the
+ * scheduled refresh of the catalogue snapshot, the publishing of the replica snapshot and the
+ * purge of the tombstones, which share the single thread of the scheduler, and the rebuild of the
+ * indices on start up. A smaller pool leaves callers waiting on the pool for longer than the
+ * connection timeout, whereas a larger pool only adds idle connections. The pool is kept at a
+ * fixed size, so that a burst of requests does not wait on connections being opened.
+ *
+ * <p>The pool is only sized if {@code iheartmedia.datasource.size-pool-to-executor} is set, and the
+ * asynchronous execution is enabled. Retries of transient failures do not need connections of
+ * their own, as each attempt runs in a transaction of its own.
+ */
+@Component
+@ConditionalOnProperty(name = "iheartmedia.datasource.size-pool-to-executor", havingValue = "true")
+public class DataSourcePoolSizer implements BeanPostProcessor, Ordered {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DataSourcePoolSizer.class);
+
+  // Endpoints which hold a connection on the servlet container's threads for as long as they run.
+  private static final String[] BLOCKING_ENDPOINTS = {"retrieveAllStations", "importStations"};
+
+  private final AsyncStationProperties asyncProperties;
+
+  private final Environment environment;
+
+  @Autowired
+  public DataSourcePoolSizer(AsyncStationProperties asyncProperties, Environment environment) {
+    this.asyncProperties = asyncProperties;
+    this.environment = environment;
+  }
+
+  /**
+   * Runs ahead of the data source initialiser, which opens the pool to create the schema.
+   */
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (!(bean instanceof HikariDataSource) || !this.asyncProperties.isEnabled()) {
+      return bean;
+    }
+    int poolSize = this.asyncProperties.getPoolSize()
+        + this.environment.getProperty("iheartmedia.datasource.pool-headroom", Integer.class, 2);
+    for (String endpoint : BLOCKING_ENDPOINTS) {
+      poolSize += this.asyncProperties.getMaxConcurrency(endpoint);
+    }
+    HikariDataSource dataSource = (HikariDataSource) bean;
+    dataSource.setMaximumPoolSize(poolSize);
+    dataSource.setMinimumIdle(poolSize);
+    LOG.info("Sized the connection pool {} to {} connections", dataSource.getPoolName(),
+        dataSource.getMaximumPoolSize());
+    return bean;
+  }
+}
@@ -0,0 +1,22 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+/**
+ * Raised without invoking the data source while the data source circuit breaker is open.
+ */
+public class DataSourceUnavailableException extends RuntimeException {
+
+  private final long retryAfterSeconds;
+
+  public DataSourceUnavailableException(long retryAfterSeconds) {
+    super("Data source is unavailable. Retry after " + retryAfterSeconds + " seconds.");
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  /**
+   * Returns the number of seconds after which the data source may be invoked again.
+   */
+  public long getRetryAfterSeconds() {
+    return this.retryAfterSeconds;
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Builds and matches the entity tags of stations.
+ *
+ * <p>The entity tag of a station is derived from its primary key and its version, so that it
+ * changes whenever the station is updated, or is deleted and created again. The representation of
+ * the station in each format carries its own tag, which is derived from the tag of the station.
+ */
+public final class EntityTags {
+
+  private EntityTags() {}
+
+  /**
+   * Returns the strong entity tag of the station.
+   *
+   * @param id primary key of the station
+   * @param version version of the station
+   * @return entity tag, or {@code null} if the station has not been persisted
+   */
+  public static String of(Long id, Integer version) {
+    if (id == null || version == null) {
+      return null;
+    }
+    return "\"" + id + "-" + version + "\"";
+  }
+
+  /**
+   * Returns the entity tag of the representation of a resource in the format.
+   *
+   * <p>The representations of the same state in two formats differ byte for byte, so they must
+   * not share a strong tag. The tag of JSON is the tag of the resource, whereas the tag of any
+   * other format is suffixed by the subtype of its media type, e.g. {@code "1-0+cbor"}.
+   *
+   * @param eTag entity tag of the resource, or {@code null} if it has none
+   * @param format media type of the format
+   * @return entity tag of the representation
+   */
+  public static String inFormat(String eTag, MediaType format) {
+    if (eTag == null || MediaType.APPLICATION_JSON.isCompatibleWith(format)) {
+      return eTag;
+    }
+    return eTag.substring(0, eTag.length() - 1) + "+" + format.getSubtype() + "\"";
+  }
+
+  /**
+   * Returns {@code true} if the entity tag satisfies the {@code If-Match} precondition.
+   *
+   * <p>The tags are compared using the strong comparison, so weak tags never match. The tag of
+   * the representation of the station in any format matches the tag of the station.
+   *
+   * @param ifMatch value of the {@code If-Match} header, or {@code null} if there is none
+   * @param eTag entity tag of the current state of the station
+   * @return {@code true} if there is no precondition, or if the precondition is satisfied
+   */
+  public static boolean matches(String ifMatch, String eTag) {
+    if (ifMatch == null) {
+      return true;
+    }
+    for (String candidate : ifMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.equals("*") || withoutFormat(candidate).equals(eTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String withoutFormat(String eTag) {
+    int index = eTag.indexOf('+');
+    return index < 0 ? eTag : eTag.substring(0, index) + "\"";
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.function.IntSupplier;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records the number of SQL statements prepared by each request.
+ *
+ * <p>The counts are published as the {@code station.jpa.queries} distribution summary, tagged by
+ * the URI template and the HTTP method of the request. The statements of a request handled
+ * asynchronously are recorded once the request has been completed.
+ */
+@Component
+public class JpaQueryCountFilter extends OncePerRequestFilter {
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    JpaQueryCounter.start();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      IntSupplier count = JpaQueryCounter.detach();
+      Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      DistributionSummary summary = DistributionSummary.builder("station.jpa.queries")
+          .description("SQL statements prepared per request")
+          .baseUnit("statements")
+          .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+          .tag("method", request.getMethod())
+          .register(this.meterRegistry);
+      if (isAsyncStarted(request)) {
+        // The statements are still being prepared on behalf of the request by other threads.
+        request.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            summary.record(count.getAsInt());
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {}
+
+          @Override
+          public void onError(AsyncEvent event) {}
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {}
+        });
+      } else {
+        summary.record(count.getAsInt());
+      }
+    }
+  }
+}
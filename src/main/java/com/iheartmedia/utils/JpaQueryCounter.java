@@ -0,0 +1,91 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Counts the SQL statements prepared by Hibernate on the current thread.
+ *
+ * <p>An instance of this class is registered with Hibernate by the
+ * {@code hibernate.session_factory.statement_inspector} property, and so is not managed by Spring.
+ * The statements are only counted between {@link #start()} and {@link #stop()}, and are counted
+ * towards the calling thread by the tasks wrapped by {@link #propagate(Runnable)}.
+ *
+ * @see JpaQueryCountFilter
+ */
+public class JpaQueryCounter implements StatementInspector {
+
+  private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+  /**
+   * Starts counting the statements prepared on the current thread.
+   */
+  public static void start() {
+    COUNT.set(new int[1]);
+  }
+
+  /**
+   * Stops counting the statements prepared on the current thread.
+   *
+   * @return number of statements prepared since {@link #start()} was invoked, or {@code -1} if the
+   *     statements were not being counted
+   */
+  public static int stop() {
+    int[] count = COUNT.get();
+    COUNT.remove();
+    return count == null ? -1 : count[0];
+  }
+
+  /**
+   * Stops counting the statements prepared on the current thread, without ending the count.
+   *
+   * <p>The count goes on to include the statements prepared by the tasks propagated from the
+   * current thread, including the tasks that are yet to run.
+   *
+   * @return supplier of the number of statements counted, which supplies {@code -1} if the
+   *     statements were not being counted
+   */
+  public static IntSupplier detach() {
+    int[] count = COUNT.get();
+    COUNT.remove();
+    return () -> count == null ? -1 : count[0];
+  }
+
+  /**
+   * Returns the task wrapped so that the statements that it prepares are counted towards the
+   * current thread, if the statements of the current thread are being counted.
+   *
+   * @param task task to be wrapped
+   * @return wrapped task
+   */
+  public static Runnable propagate(Runnable task) {
+    int[] count = COUNT.get();
+    if (count == null) {
+      return task;
+    }
+    return () -> {
+      int[] previous = COUNT.get();
+      COUNT.set(count);
+      try {
+        task.run();
+      } finally {
+        if (previous == null) {
+          COUNT.remove();
+        } else {
+          COUNT.set(previous);
+        }
+      }
+    };
+  }
+
+  @Override
+  public String inspect(String sql) {
+    int[] count = COUNT.get();
+    if (count != null) {
+      count[0]++;
+    }
+    return sql;
+  }
+}
@@ -0,0 +1,49 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint to reload the messages.
+ *
+ * <p>{@code GET /actuator/messages} describes the message cache, and
+ * {@code POST /actuator/messages} reloads the messages from the properties files.
+ */
+@Component
+@Endpoint(id = "messages")
+public class MessagesEndpoint {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MessagesEndpoint.class);
+
+  private final CachingMessageSource messageSource;
+
+  @Autowired
+  public MessagesEndpoint(CachingMessageSource messageSource) {
+    this.messageSource = messageSource;
+  }
+
+  @ReadOperation
+  public Map<String, Object> messages() {
+    Map<String, Object> messages = new LinkedHashMap<>();
+    messages.put("cachedTemplates", this.messageSource.getCachedTemplateCount());
+    messages.put("reloadedAt", Instant.ofEpochMilli(this.messageSource.getReloadedAt()).toString());
+    return messages;
+  }
+
+  @WriteOperation
+  public Map<String, Object> reload() {
+    LOG.info("Reloading the messages");
+    this.messageSource.clearCache();
+    return messages();
+  }
+}
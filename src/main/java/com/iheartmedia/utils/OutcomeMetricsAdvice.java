@@ -0,0 +1,69 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counts the responses of the station endpoints by outcome.
+ *
+ * <p>The responses are published as the {@code station.requests} counter, tagged by the URI
+ * template and the HTTP method of the request, and by the outcome derived by {@link Outcomes}
+ * from the response body. The responses returned by the {@link AppExceptionHandler} are counted
+ * as well, and the responses that are written without a body being returned, e.g. from a cache,
+ * are counted by {@link #record(HttpServletRequest, String)}.
+ */
+@ControllerAdvice(basePackages = "com.iheartmedia")
+public class OutcomeMetricsAdvice implements ResponseBodyAdvice<Object> {
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Override
+  public boolean supports(MethodParameter returnType,
+      Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType,
+      MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType,
+      ServerHttpRequest request, ServerHttpResponse response) {
+    Object pattern = request instanceof ServletServerHttpRequest
+        ? ((ServletServerHttpRequest) request).getServletRequest()
+            .getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)
+        : null;
+    count(pattern, request.getMethodValue(), Outcomes.of(body));
+    return body;
+  }
+
+  /**
+   * Counts a response that the handler has written itself rather than returning its body.
+   *
+   * @param request request
+   * @param outcome outcome of the response
+   */
+  public void record(HttpServletRequest request, String outcome) {
+    count(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+        request.getMethod(), outcome);
+  }
+
+  private void count(Object pattern, String method, String outcome) {
+    this.meterRegistry.counter("station.requests",
+        "uri", pattern == null ? "UNKNOWN" : pattern.toString(),
+        "method", method,
+        "outcome", outcome).increment();
+  }
+}
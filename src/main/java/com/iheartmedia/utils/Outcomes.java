@@ -0,0 +1,36 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.model.ErrorCodes;
+import com.iheartmedia.model.IError;
+
+/**
+ * Derives the {@code outcome} tag of the metrics from the value returned by an endpoint or a
+ * service method.
+ */
+public final class Outcomes {
+
+  public static final String OK = "OK";
+
+  public static final String UNKNOWN = "UNKNOWN";
+
+  private Outcomes() {}
+
+  /**
+   * Returns the outcome represented by the value.
+   *
+   * <p>A value carrying errors is represented by the first of the errors, e.g. {@code NOT_FOUND}.
+   * Any other value, including a value which does not carry errors at all, is represented by
+   * {@code OK}.
+   *
+   * @param value value returned by an endpoint or a service method
+   * @return outcome
+   */
+  public static String of(Object value) {
+    if (value instanceof IError && ((IError) value).hasErrors()) {
+      ErrorCodes errorCode = ErrorCodes.forCode(((IError) value).getErrors().get(0).getCode());
+      return errorCode == null ? UNKNOWN : errorCode.name();
+    }
+    return OK;
+  }
+}
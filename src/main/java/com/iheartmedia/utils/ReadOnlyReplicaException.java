@@ -0,0 +1,29 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+/**
+ * Raised by a read only replica for the operations that only the primary can serve.
+ */
+public class ReadOnlyReplicaException extends RuntimeException {
+
+  private final boolean mutation;
+
+  /**
+   * Creates an exception for the operation.
+   *
+   * @param operation name of the operation
+   * @param mutation {@code true} if the operation creates, updates or deletes stations, or
+   *     {@code false} if it reads stations in a way that the replica does not support
+   */
+  public ReadOnlyReplicaException(String operation, boolean mutation) {
+    super("Operation " + operation + " is not supported by a read only replica.");
+    this.mutation = mutation;
+  }
+
+  /**
+   * Returns {@code true} if the operation creates, updates or deletes stations.
+   */
+  public boolean isMutation() {
+    return this.mutation;
+  }
+}
@@ -0,0 +1,22 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.IHeartMedia;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Enables the JPA repositories of the stations, unless the application runs as a read only
+ * replica.
+ *
+ * <p>A replica serves the stations from a memory mapped snapshot instead, and is started without
+ * a data source or an entity manager factory (see {@code application-replica.properties}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "iheartmedia.replica.enabled", havingValue = "false",
+    matchIfMissing = true)
+@EnableJpaRepositories(basePackageClasses = IHeartMedia.class, considerNestedRepositories = true)
+public class RepositoryConfig {
+}
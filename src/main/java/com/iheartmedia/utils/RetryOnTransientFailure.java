@@ -0,0 +1,23 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method whose invocation is retried if it fails due to a transient data access failure.
+ *
+ * <p>The retries wrap the transaction of the annotated method, so each attempt runs in a
+ * transaction of its own. Methods that have observable side effects before they complete, such as
+ * streaming to a response, must not be annotated.
+ *
+ * @see TransientFailureRetryAspect
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RetryOnTransientFailure {
+}
@@ -0,0 +1,59 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+
+/**
+ * Enables the Hibernate second level cache and query cache.
+ *
+ * <p>The stations are cached by primary key and by station id, and the hd enabled stations are
+ * cached by query. The regions are created by the {@link StationCacheRegionFactory}, which holds
+ * {@code iheartmedia.cache.second-level.heap-entries} entries per region on the heap, and
+ * overflows to {@code iheartmedia.cache.second-level.off-heap-megabytes} of off heap memory.
+ *
+ * <p>The cache is local to the JVM. The mutations made through the session factory keep it
+ * coherent, but the mutations made by other instances of the application are not seen. The hit,
+ * miss and put counts of the regions are published as the {@code hibernate.*} metrics.
+ */
+@Configuration
+@ConditionalOnProperty(name = "iheartmedia.cache.second-level.enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+  /**
+   * Returns the customizer that enables the caches when the session factory is built.
+   *
+   * <p>Static, as the session factory is built before the configuration is fully initialised.
+   */
+  @Bean
+  public static HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+      @Value("${iheartmedia.cache.second-level.heap-entries:10000}") long heapEntries,
+      @Value("${iheartmedia.cache.second-level.off-heap-megabytes:0}") long offHeapMegabytes) {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+      properties.put(AvailableSettings.USE_QUERY_CACHE, "true");
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY,
+          new StationCacheRegionFactory(heapEntries, offHeapMegabytes));
+      properties.put(AvailableSettings.GENERATE_STATISTICS, "true");
+    };
+  }
+
+  /**
+   * Publishes the statistics of the session factory, including those of the cache regions.
+   */
+  @Autowired
+  public void bindStatistics(EntityManagerFactory entityManagerFactory,
+      MeterRegistry meterRegistry) {
+    HibernateMetrics.monitor(meterRegistry, entityManagerFactory, "entityManagerFactory");
+  }
+}
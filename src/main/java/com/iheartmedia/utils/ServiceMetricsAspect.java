@@ -0,0 +1,64 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the invocations of the station service.
+ *
+ * <p>The invocations are published as the {@code station.service} timer, tagged by the method,
+ * the outcome derived by {@link Outcomes}, and the exception raised, if any. The percentiles of
+ * the timer are configured by the {@code management.metrics.distribution} properties.
+ *
+ * <p>The aspect has the highest precedence so that the timings include the retries made by the
+ * {@link TransientFailureRetryAspect}.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMetricsAspect {
+
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Invokes the service method, and records the time taken.
+   *
+   * @param joinPoint service method
+   * @return value returned by the service method
+   */
+  @Around("execution(public * com.iheartmedia.service.IStationService+.*(..))")
+  public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+    Timer.Sample sample = Timer.start(this.meterRegistry);
+    String outcome = Outcomes.UNKNOWN;
+    String exception = "none";
+    try {
+      Object value = joinPoint.proceed();
+      outcome = Outcomes.of(value);
+      return value;
+    } catch (Throwable throwable) {
+      exception = throwable.getClass().getSimpleName();
+      throw throwable;
+    } finally {
+      sample.stop(Timer.builder("station.service")
+          .description("Invocations of the station service")
+          .tag("method", joinPoint.getSignature().getName())
+          .tag("outcome", outcome)
+          .tag("exception", exception)
+          .register(this.meterRegistry));
+    }
+  }
+}
@@ -0,0 +1,24 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+/**
+ * Raised without invoking the service layer when the {@link AsyncStationExecutor} can not accept
+ * any more work, either for the endpoint or at all.
+ */
+public class ServiceSaturatedException extends RuntimeException {
+
+  private final long retryAfterSeconds;
+
+  public ServiceSaturatedException(String endpoint, long retryAfterSeconds) {
+    super("Unable to accept requests for " + endpoint + ". Retry after " + retryAfterSeconds
+        + " seconds.");
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  /**
+   * Returns the number of seconds after which the request may be retried.
+   */
+  public long getRetryAfterSeconds() {
+    return this.retryAfterSeconds;
+  }
+}
@@ -0,0 +1,69 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.JCacheRegionFactory;
+import org.hibernate.cache.spi.CacheDataDescription;
+
+import java.net.URI;
+import java.util.Properties;
+import java.util.UUID;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+/**
+ * Region factory of the Hibernate second level cache, backed by a local Ehcache cache manager.
+ *
+ * <p>Every region is held on the heap, up to the configured number of entries, and overflows to
+ * the configured amount of off heap memory, if any. The entries that are moved off the heap are
+ * serialised, so that they are not subject to garbage collection.
+ *
+ * <p>Each factory creates a cache manager of its own rather than the default cache manager of the
+ * provider, which would otherwise be shared, and closed, by every session factory in the JVM.
+ */
+public class StationCacheRegionFactory extends JCacheRegionFactory {
+
+  private final long heapEntries;
+
+  private final long offHeapMegabytes;
+
+  /**
+   * Constructs the region factory.
+   *
+   * @param heapEntries maximum number of entries held on the heap per region
+   * @param offHeapMegabytes megabytes of off heap memory per region, or 0 to only use the heap
+   */
+  public StationCacheRegionFactory(long heapEntries, long offHeapMegabytes) {
+    this.heapEntries = heapEntries;
+    this.offHeapMegabytes = offHeapMegabytes;
+  }
+
+  @Override
+  protected CacheManager getCacheManager(Properties properties) {
+    EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+        EhcacheCachingProvider.class.getName());
+    return provider.getCacheManager(
+        URI.create("urn:" + getClass().getName() + ":" + UUID.randomUUID()),
+        new DefaultConfiguration(getClass().getClassLoader()));
+  }
+
+  @Override
+  protected Cache<Object, Object> createCache(String regionName, Properties properties,
+      CacheDataDescription metadata) {
+    ResourcePoolsBuilder resources = ResourcePoolsBuilder.heap(this.heapEntries);
+    if (this.offHeapMegabytes > 0) {
+      resources = resources.offheap(this.offHeapMegabytes, MemoryUnit.MB);
+    }
+    CacheConfigurationBuilder<Object, Object> configuration = CacheConfigurationBuilder
+        .newCacheConfigurationBuilder(Object.class, Object.class, resources);
+    return getCacheManager().createCache(
+        regionName, Eh107Configuration.fromEhcacheCacheConfiguration(configuration));
+  }
+}
@@ -0,0 +1,74 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.model.Station;
+
+/**
+ * Allocation free checks of the constraints declared on the fields of {@link Station}.
+ *
+ * <p>The checks are equivalent to the bean validation constraints, but are hand written so that a
+ * valid station is recognised without regular expressions or reflection. They only tell whether
+ * the constraints are satisfied. The error messages of an invalid station are left to bean
+ * validation.
+ */
+public final class StationConstraints {
+
+  private StationConstraints() {}
+
+  /**
+   * Returns {@code true} if the station satisfies all the constraints declared on its fields.
+   */
+  public static boolean isValid(Station station) {
+    return isValidStationId(station.getStationId())
+        && isNotEmpty(station.getStationName())
+        && isValidCallSign(station.getCallSign());
+  }
+
+  /**
+   * Returns {@code true} if the call sign of the mixin, if any, is valid.
+   */
+  public static boolean isValid(StationMixin mixin) {
+    return mixin.getCallSign() == null || isValidCallSign(mixin.getCallSign());
+  }
+
+  /**
+   * Returns {@code true} if the station id matches {@code ^([KW])[A-Za-z0-9\-].*$}.
+   */
+  public static boolean isValidStationId(String stationId) {
+    if (stationId == null || stationId.length() < 2) {
+      return false;
+    }
+    char prefix = stationId.charAt(0);
+    if (prefix != 'K' && prefix != 'W') {
+      return false;
+    }
+    char second = stationId.charAt(1);
+    if (!(second >= 'A' && second <= 'Z') && !(second >= 'a' && second <= 'z')
+        && !(second >= '0' && second <= '9') && second != '-') {
+      return false;
+    }
+    // The dot of the regular expression matches any character but a line terminator.
+    for (int i = 2; i < stationId.length(); i++) {
+      if (isLineTerminator(stationId.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if the call sign is exactly 4 characters long.
+   */
+  public static boolean isValidCallSign(String callSign) {
+    return callSign != null && callSign.length() == 4;
+  }
+
+  private static boolean isNotEmpty(String value) {
+    return value != null && !value.isEmpty();
+  }
+
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+}
@@ -8,6 +8,7 @@ import com.iheartmedia.model.ErrorCodes;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.Validator;
@@ -42,12 +43,27 @@ public class StationMixinValidator implements Validator {
    */
   @Override public void validate(Object target, Errors errors) {
     StationMixin mixin = (StationMixin) target;
-    if (mixin.getCallSign() != null && mixin.getCallSign().length() != 4) {
+    if (!StationConstraints.isValid(mixin)) {
       errors.rejectValue("callSign", "callsign.size.invalid", new Object[] {mixin.getCallSign()},
           null); ;
     }
   }
 
+  /**
+   * Validates the mixin, allocating the errors only if the mixin turns out not to be valid.
+   *
+   * @param mixin mixin to be validated
+   * @return errors of the mixin, or {@code null} if the mixin is valid
+   */
+  public Errors findErrors(StationMixin mixin) {
+    if (StationConstraints.isValid(mixin)) {
+      return null;
+    }
+    Errors errors = new BeanPropertyBindingResult(mixin, "stationMixin");
+    validate(mixin, errors);
+    return errors;
+  }
+
   /**
    * Returns a list of errors
    *
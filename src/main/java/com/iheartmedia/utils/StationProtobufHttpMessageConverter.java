@@ -0,0 +1,220 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.iheartmedia.dto.StationDeletion;
+import com.iheartmedia.dto.StationDeletionRequest;
+import com.iheartmedia.dto.StationLookup;
+import com.iheartmedia.dto.StationLookupRequest;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
+import com.iheartmedia.model.IError;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.proto.StationProtos;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the value objects of the station API to and from the Protobuf format, whose schema is
+ * {@code src/main/proto/stations.proto}.
+ *
+ * <p>Stations, lookup requests and deletion requests are read, and mixin objects, pages of
+ * stations, lookups and deletions are written. The catalogue of all the stations is written by
+ * {@link #writeStation}, one station at a time, as a {@code StationList} message.
+ */
+public class StationProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  public StationProtobufHttpMessageConverter() {
+    super(BinaryFormatsConfig.PROTOBUF);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return isReadable(clazz) || isWritable(clazz);
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return isReadable(clazz) && canRead(mediaType);
+  }
+
+  @Override
+  public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+    return isWritable(clazz) && canWrite(mediaType);
+  }
+
+  private static boolean isReadable(Class<?> clazz) {
+    return clazz == Station.class || clazz == StationLookupRequest.class
+        || clazz == StationDeletionRequest.class;
+  }
+
+  private static boolean isWritable(Class<?> clazz) {
+    return StationMixin.class.isAssignableFrom(clazz) || clazz == StationPage.class
+        || clazz == StationLookup.class || clazz == StationDeletion.class;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+      throws IOException {
+    try {
+      if (clazz == Station.class) {
+        return toStation(StationProtos.Station.parseFrom(inputMessage.getBody()));
+      }
+      if (clazz == StationLookupRequest.class) {
+        StationProtos.StationLookupRequest message =
+            StationProtos.StationLookupRequest.parseFrom(inputMessage.getBody());
+        StationLookupRequest lookupRequest = new StationLookupRequest();
+        lookupRequest.setStationIds(new ArrayList<>(message.getStationIdsList()));
+        lookupRequest.setStationNames(new ArrayList<>(message.getStationNamesList()));
+        return lookupRequest;
+      }
+      StationProtos.StationDeletionRequest message =
+          StationProtos.StationDeletionRequest.parseFrom(inputMessage.getBody());
+      StationDeletionRequest deletionRequest = new StationDeletionRequest();
+      deletionRequest.setStationIds(new ArrayList<>(message.getStationIdsList()));
+      return deletionRequest;
+    } catch (InvalidProtocolBufferException e) {
+      throw new HttpMessageNotReadableException("Invalid Protobuf message", e);
+    }
+  }
+
+  @Override
+  protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+    Message message;
+    if (value instanceof StationMixin) {
+      message = toMessage((StationMixin) value);
+    } else if (value instanceof StationPage) {
+      message = toMessage((StationPage) value);
+    } else if (value instanceof StationLookup) {
+      message = toMessage((StationLookup) value);
+    } else {
+      message = toMessage((StationDeletion) value);
+    }
+    outputMessage.getHeaders().setContentLength(message.getSerializedSize());
+    message.writeTo(outputMessage.getBody());
+  }
+
+  /**
+   * Writes the station to a {@code StationList} message, which is built by writing each of its
+   * stations in turn to the same stream.
+   *
+   * @param station station
+   * @param output stream of the {@code StationList} message
+   */
+  public static void writeStation(Station station, CodedOutputStream output) throws IOException {
+    output.writeMessage(StationProtos.StationList.STATIONS_FIELD_NUMBER, toMessage(station));
+  }
+
+  /**
+   * Returns the station carried by the message.
+   *
+   * @param message message of the station
+   */
+  public static Station toStation(StationProtos.Station message) {
+    Station station = new Station();
+    station.setStationId(emptyToNull(message.getStationId()));
+    station.setStationName(emptyToNull(message.getName()));
+    station.setCallSign(emptyToNull(message.getCallSign()));
+    if (message.hasHdEnabled()) {
+      station.setHdEnabled(message.getHdEnabled().getValue());
+    }
+    return station;
+  }
+
+  private static StationProtos.Station toMessage(Station station) {
+    StationProtos.Station.Builder builder = StationProtos.Station.newBuilder();
+    if (station.getStationId() != null) {
+      builder.setStationId(station.getStationId());
+    }
+    if (station.getStationName() != null) {
+      builder.setName(station.getStationName());
+    }
+    if (station.getHdEnabled() != null) {
+      builder.setHdEnabled(BoolValue.of(station.getHdEnabled()));
+    }
+    if (station.getCallSign() != null) {
+      builder.setCallSign(station.getCallSign());
+    }
+    return builder.build();
+  }
+
+  private static StationProtos.StationMixin toMessage(StationMixin mixin) {
+    StationProtos.StationMixin.Builder builder = StationProtos.StationMixin.newBuilder();
+    if (mixin.getStationId() != null) {
+      builder.setStationId(mixin.getStationId());
+    }
+    if (mixin.getStationName() != null) {
+      builder.setName(mixin.getStationName());
+    }
+    if (mixin.getHdEnabled() != null) {
+      builder.setHdEnabled(BoolValue.of(mixin.getHdEnabled()));
+    }
+    if (mixin.getCallSign() != null) {
+      builder.setCallSign(mixin.getCallSign());
+    }
+    if (mixin.getTimestamp() != null) {
+      builder.setTimestamp(mixin.getTimestamp().toString());
+    }
+    return builder.addAllErrors(toMessages(mixin)).build();
+  }
+
+  private static StationProtos.StationPage toMessage(StationPage page) {
+    StationProtos.StationPage.Builder builder = StationProtos.StationPage.newBuilder();
+    for (Station station : page.getStations()) {
+      builder.addStations(toMessage(station));
+    }
+    if (page.getContinuationToken() != null) {
+      builder.setContinuationToken(page.getContinuationToken());
+    }
+    return builder.addAllErrors(toMessages(page)).build();
+  }
+
+  private static StationProtos.StationLookup toMessage(StationLookup lookup) {
+    StationProtos.StationLookup.Builder builder = StationProtos.StationLookup.newBuilder();
+    for (Map.Entry<String, StationMixin> entry : lookup.getStationIds().entrySet()) {
+      builder.putStationIds(entry.getKey(), toMessage(entry.getValue()));
+    }
+    for (Map.Entry<String, StationMixin> entry : lookup.getStationNames().entrySet()) {
+      builder.putStationNames(entry.getKey(), toMessage(entry.getValue()));
+    }
+    return builder.addAllErrors(toMessages(lookup)).build();
+  }
+
+  private static StationProtos.StationDeletion toMessage(StationDeletion deletion) {
+    StationProtos.StationDeletion.Builder builder = StationProtos.StationDeletion.newBuilder();
+    for (Map.Entry<String, StationMixin> entry : deletion.getStationIds().entrySet()) {
+      builder.putStationIds(entry.getKey(), toMessage(entry.getValue()));
+    }
+    return builder.addAllErrors(toMessages(deletion)).build();
+  }
+
+  private static List<StationProtos.Error> toMessages(IError value) {
+    List<StationProtos.Error> errors = new ArrayList<>(value.getErrors().size());
+    for (IError.Error error : value.getErrors()) {
+      StationProtos.Error.Builder builder =
+          StationProtos.Error.newBuilder().setCode(error.getCode());
+      if (error.getMessage() != null) {
+        builder.setMessage(error.getMessage());
+      }
+      errors.add(builder.build());
+    }
+    return errors;
+  }
+
+  // Protobuf does not distinguish an absent string from an empty one.
+  private static String emptyToNull(String value) {
+    return value.isEmpty() ? null : value;
+  }
+}
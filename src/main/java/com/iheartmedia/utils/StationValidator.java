@@ -0,0 +1,59 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.model.Station;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+/**
+ * Validates the stations to be created.
+ *
+ * <p>A station is first checked by {@link StationConstraints}, and is only validated by bean
+ * validation if the checks fail, so that the errors are reported exactly as before. A subclass of
+ * {@link Station}, which may declare constraints of its own, is always validated by bean
+ * validation.
+ */
+@Component
+public class StationValidator implements Validator {
+
+  private final SpringValidatorAdapter beanValidator;
+
+  @Autowired
+  public StationValidator(javax.validation.Validator beanValidator) {
+    this.beanValidator = new SpringValidatorAdapter(beanValidator);
+  }
+
+  @Override
+  public boolean supports(Class<?> clazz) {
+    return Station.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public void validate(Object target, Errors errors) {
+    Station station = (Station) target;
+    if (station.getClass() == Station.class && StationConstraints.isValid(station)) {
+      return;
+    }
+    this.beanValidator.validate(target, errors);
+  }
+
+  /**
+   * Validates the station, allocating the errors only if the station turns out not to be valid.
+   *
+   * @param station station to be validated
+   * @return errors of the station, or {@code null} if the station is valid
+   */
+  public Errors findErrors(Station station) {
+    if (station.getClass() == Station.class && StationConstraints.isValid(station)) {
+      return null;
+    }
+    Errors errors = new BeanPropertyBindingResult(station, "station");
+    this.beanValidator.validate(station, errors);
+    return errors.hasErrors() ? errors : null;
+  }
+}
@@ -0,0 +1,246 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.context.RetryContextSupport;
+import org.springframework.retry.listener.RetryListenerSupport;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Retries the methods annotated with {@link RetryOnTransientFailure} if they fail due to a
+ * transient data access failure.
+ *
+ * <p>The retries are spaced out by an exponential back off with random jitter, and are capped by
+ * both the maximum number of attempts per invocation and the retry budget of the current request,
+ * so that a request which invokes several methods can not multiply the number of retries. Every
+ * attempt is guarded by the {@link DataSourceCircuitBreaker}.
+ *
+ * <p>A request whose invocations run on other threads shares its retry budget with them by way of
+ * the tasks wrapped by {@link #propagate(Runnable)}.
+ *
+ * <p>The aspect takes precedence over the transaction advice so that it wraps the transaction of
+ * the method, which would otherwise be marked for roll back by the first failure. Only the
+ * {@link ServiceMetricsAspect} wraps this aspect, so that the retries are included in the timings.
+ *
+ * <p>The retries are published as the {@code station.retry.attempts} counter tagged by the
+ * exception that triggered them, and the invocations that failed after being retried as the
+ * {@code station.retry.exhausted} counter.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class TransientFailureRetryAspect {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TransientFailureRetryAspect.class);
+
+  private static final String RETRY_BUDGET_ATTRIBUTE =
+      TransientFailureRetryAspect.class.getName() + ".RETRY_BUDGET";
+
+  // Retry budget propagated to the current thread, which is set once the first retry is needed.
+  private static final ThreadLocal<AtomicReference<AtomicInteger>> BUDGET = new ThreadLocal<>();
+
+  private final RetryTemplate retryTemplate;
+
+  private final DataSourceCircuitBreaker circuitBreaker;
+
+  @Autowired
+  public TransientFailureRetryAspect(
+      DataSourceCircuitBreaker circuitBreaker,
+      MeterRegistry meterRegistry,
+      @Value("${iheartmedia.retry.max-attempts:3}") int maxAttempts,
+      @Value("${iheartmedia.retry.budget-per-request:3}") int budgetPerRequest,
+      @Value("${iheartmedia.retry.initial-backoff-millis:50}") long initialBackOffMillis,
+      @Value("${iheartmedia.retry.max-backoff-millis:1000}") long maxBackOffMillis) {
+    this.circuitBreaker = circuitBreaker;
+    ExponentialRandomBackOffPolicy backOffPolicy = new ExponentialRandomBackOffPolicy();
+    backOffPolicy.setInitialInterval(initialBackOffMillis);
+    backOffPolicy.setMaxInterval(maxBackOffMillis);
+    backOffPolicy.setMultiplier(2.0);
+    this.retryTemplate = new RetryTemplate();
+    this.retryTemplate.setBackOffPolicy(backOffPolicy);
+    this.retryTemplate.setRetryPolicy(
+        new TransientFailureRetryPolicy(maxAttempts, budgetPerRequest));
+    this.retryTemplate.registerListener(new RetryListenerSupport() {
+      @Override
+      public <T, E extends Throwable> void onError(RetryContext context,
+          RetryCallback<T, E> callback, Throwable throwable) {
+        if (context.getAttribute(TransientFailureRetryPolicy.RETRYABLE) == Boolean.TRUE) {
+          meterRegistry.counter("station.retry.attempts",
+              "exception", throwable.getClass().getSimpleName()).increment();
+        }
+      }
+
+      @Override
+      public <T, E extends Throwable> void close(RetryContext context,
+          RetryCallback<T, E> callback, Throwable throwable) {
+        if (throwable != null && context.getRetryCount() > 1) {
+          meterRegistry.counter("station.retry.exhausted",
+              "exception", throwable.getClass().getSimpleName()).increment();
+        }
+      }
+    });
+  }
+
+  /**
+   * Invokes the annotated method, retrying it if it fails due to a transient failure.
+   *
+   * @param joinPoint annotated method
+   * @return value returned by the annotated method
+   */
+  @Around("@annotation(com.iheartmedia.utils.RetryOnTransientFailure)")
+  public Object retryOnTransientFailure(ProceedingJoinPoint joinPoint) throws Throwable {
+    return this.retryTemplate.execute((RetryCallback<Object, Throwable>) context -> {
+      if (context.getRetryCount() > 0) {
+        LOG.warn("Retrying {} after a transient failure: {}",
+            joinPoint.getSignature().toShortString(), context.getLastThrowable());
+      }
+      this.circuitBreaker.acquirePermission();
+      try {
+        Object value = joinPoint.proceed();
+        this.circuitBreaker.onSuccess();
+        return value;
+      } catch (Throwable throwable) {
+        this.circuitBreaker.onFailure(throwable);
+        throw throwable;
+      }
+    });
+  }
+
+  /**
+   * Returns the task wrapped so that its invocations share the retry budget of the current
+   * request, if there is one.
+   *
+   * <p>The budget is captured when the task is wrapped, so that the task holds neither the request
+   * nor its attributes, which may be recycled by the servlet container before the task runs.
+   *
+   * @param task task to be wrapped
+   * @return wrapped task
+   */
+  public static Runnable propagate(Runnable task) {
+    AtomicReference<AtomicInteger> budget = requestBudget();
+    if (budget == null) {
+      return task;
+    }
+    return () -> {
+      AtomicReference<AtomicInteger> previous = BUDGET.get();
+      BUDGET.set(budget);
+      try {
+        task.run();
+      } finally {
+        if (previous == null) {
+          BUDGET.remove();
+        } else {
+          BUDGET.set(previous);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the holder of the retry budget of the current request, or {@code null} outside a
+   * request.
+   */
+  @SuppressWarnings("unchecked")
+  private static AtomicReference<AtomicInteger> requestBudget() {
+    AtomicReference<AtomicInteger> budget = BUDGET.get();
+    if (budget != null) {
+      return budget;
+    }
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return null;
+    }
+    budget = (AtomicReference<AtomicInteger>) attributes.getAttribute(RETRY_BUDGET_ATTRIBUTE,
+        RequestAttributes.SCOPE_REQUEST);
+    if (budget == null) {
+      budget = new AtomicReference<>();
+      attributes.setAttribute(RETRY_BUDGET_ATTRIBUTE, budget, RequestAttributes.SCOPE_REQUEST);
+    }
+    return budget;
+  }
+
+  /**
+   * Retry policy that only retries transient failures within the retry budget.
+   */
+  private static class TransientFailureRetryPolicy implements RetryPolicy {
+
+    private static final String RETRYABLE = "retryable";
+
+    private static final String BUDGET = "budget";
+
+    private final int maxAttempts;
+
+    private final int budgetPerRequest;
+
+    private TransientFailureRetryPolicy(int maxAttempts, int budgetPerRequest) {
+      this.maxAttempts = maxAttempts;
+      this.budgetPerRequest = budgetPerRequest;
+    }
+
+    @Override
+    public boolean canRetry(RetryContext context) {
+      return context.getLastThrowable() == null
+          || context.getAttribute(RETRYABLE) == Boolean.TRUE;
+    }
+
+    @Override
+    public RetryContext open(RetryContext parent) {
+      RetryContext context = new RetryContextSupport(parent);
+      context.setAttribute(BUDGET, currentBudget());
+      return context;
+    }
+
+    @Override
+    public void close(RetryContext context) {}
+
+    /**
+     * Records the failure, and consumes a retry from the budget if the failure may be retried.
+     *
+     * <p>The budget is consumed here rather than in {@link #canRetry(RetryContext)}, as the latter
+     * is invoked more than once per attempt.
+     */
+    @Override
+    public void registerThrowable(RetryContext context, Throwable throwable) {
+      ((RetryContextSupport) context).registerThrowable(throwable);
+      boolean retryable = throwable != null
+          && TransientFailures.isTransient(throwable)
+          && context.getRetryCount() < this.maxAttempts
+          && ((AtomicInteger) context.getAttribute(BUDGET)).getAndDecrement() > 0;
+      context.setAttribute(RETRYABLE, retryable);
+    }
+
+    /**
+     * Returns the retry budget shared by all the invocations made by the current request.
+     *
+     * <p>An invocation made outside a request has a retry budget of its own.
+     */
+    private AtomicInteger currentBudget() {
+      AtomicReference<AtomicInteger> budget = requestBudget();
+      if (budget == null) {
+        return new AtomicInteger(this.budgetPerRequest);
+      }
+      budget.compareAndSet(null, new AtomicInteger(this.budgetPerRequest));
+      return budget.get();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.JDBCConnectionException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+
+import javax.persistence.LockTimeoutException;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PessimisticLockException;
+import javax.persistence.QueryTimeoutException;
+
+/**
+ * Classifies the failures raised by data access operations.
+ *
+ * <p>A failure is transient if the same operation may succeed when it is retried, for instance a
+ * lost connection, a lock timeout or a deadlock. Deterministic failures, such as constraint
+ * violations, are never transient. Neither are optimistic locking conflicts, as blindly retrying
+ * the operation would overwrite the concurrent update that it lost to; the conflicts are instead
+ * resolved by the service layer. A failure is a resource failure if the data source itself could
+ * not be reached.
+ */
+public final class TransientFailures {
+
+  private TransientFailures() {}
+
+  /**
+   * Returns {@code true} if the failure, or any of its causes, is transient.
+   *
+   * @param throwable failure
+   * @return {@code true} if the operation may succeed when retried
+   */
+  public static boolean isTransient(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = nextCause(cause)) {
+      if (isOptimisticLockFailure(cause)) {
+        return false;
+      }
+      if (cause instanceof TransientDataAccessException
+          || cause instanceof RecoverableDataAccessException
+          || cause instanceof PessimisticLockException
+          || cause instanceof LockTimeoutException
+          || cause instanceof QueryTimeoutException
+          || cause instanceof LockAcquisitionException
+          || cause instanceof SQLTransientException
+          || isResourceFailure(cause)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if the failure, or any of its causes, indicates that the data source
+   * could not be reached.
+   *
+   * @param throwable failure
+   * @return {@code true} if the data source could not be reached
+   */
+  public static boolean isResourceFailure(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = nextCause(cause)) {
+      if (cause instanceof CannotCreateTransactionException
+          || cause instanceof DataAccessResourceFailureException
+          || cause instanceof JDBCConnectionException
+          || cause instanceof SQLTransientConnectionException
+          || cause instanceof SQLRecoverableException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if the failure is an optimistic locking conflict.
+   *
+   * @param throwable failure
+   * @return {@code true} if the failure was caused by a concurrent update
+   */
+  public static boolean isOptimisticLockFailure(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = nextCause(cause)) {
+      if (cause instanceof OptimisticLockingFailureException
+          || cause instanceof OptimisticLockException
+          || cause instanceof StaleStateException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Throwable nextCause(Throwable throwable) {
+    return throwable.getCause() == throwable ? null : throwable.getCause();
+  }
+}
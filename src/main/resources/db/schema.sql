@@ -0,0 +1,43 @@
+-- Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+--
+-- Schema of the station service, applied on start up by the production profile, in which Hibernate only
+-- validates the schema. The statements are idempotent. The sequences are incremented by the
+-- allocation size of the pooled identifier generators.
+
+CREATE SEQUENCE IF NOT EXISTS station_sequence START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS station_tombstone_sequence START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS user_station (
+    id BIGINT NOT NULL,
+    call_sign VARCHAR(255) NOT NULL,
+    user_created_timestamp TIMESTAMP NOT NULL,
+    hd_enabled BOOLEAN,
+    station_id VARCHAR(255) NOT NULL,
+    station_name VARCHAR(255) NOT NULL,
+    user_modified_timestamp TIMESTAMP NOT NULL,
+    version INT DEFAULT '0',
+    PRIMARY KEY (id),
+    CONSTRAINT station_unique_id_version UNIQUE (id, version),
+    CONSTRAINT station_unique_station_id UNIQUE (station_id),
+    CONSTRAINT station_unique_station_name UNIQUE (station_name)
+);
+
+CREATE INDEX IF NOT EXISTS station_index_station_id ON user_station (station_id);
+
+CREATE INDEX IF NOT EXISTS station_index_name ON user_station (station_name);
+
+CREATE INDEX IF NOT EXISTS station_index_hd_enabled ON user_station (hd_enabled);
+
+CREATE INDEX IF NOT EXISTS station_index_modified ON user_station (user_modified_timestamp, id);
+
+CREATE TABLE IF NOT EXISTS station_tombstone (
+    id BIGINT NOT NULL,
+    deleted_timestamp TIMESTAMP NOT NULL,
+    station_id VARCHAR(255) NOT NULL,
+    version INTEGER,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS station_tombstone_index_deleted
+    ON station_tombstone (deleted_timestamp, id);
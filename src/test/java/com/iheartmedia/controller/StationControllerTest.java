@@ -5,38 +5,67 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.BoolValue;
 import com.iheartmedia.IHeartMedia;
 import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
 import com.iheartmedia.dto.UpdateStationMixin;
 import com.iheartmedia.model.Station;
+import com.iheartmedia.proto.StationProtos;
 import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.repository.IStationTombstoneRepository;
+import com.iheartmedia.service.HdStationIndex;
+import com.iheartmedia.service.StationCatalogSnapshot;
+import com.iheartmedia.service.StationSearchIndex;
 import com.iheartmedia.utils.AppExceptionHandler;
+import com.iheartmedia.utils.BinaryFormatsConfig;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.MessageSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultHandler;
+import org.springframework.test.web.servlet.ResultMatcher;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Unit Test for {@link StationController}.
  */
 @RunWith(SpringJUnit4ClassRunner.class)
-@SpringBootTest(classes= {IHeartMedia.class})
+@SpringBootTest(classes= {IHeartMedia.class},
+    properties = "iheartmedia.stations.changes.settle-millis=0")
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 public class StationControllerTest {
 
@@ -48,6 +77,9 @@ public class StationControllerTest {
   @Autowired
   private IStationRepository stationRepository;
 
+  @Autowired
+  private IStationTombstoneRepository tombstoneRepository;
+
   private Station hdStation;
 
   private Station nonHdStation;
@@ -58,6 +90,18 @@ public class StationControllerTest {
   @Autowired
   private MessageSource messageSource;
 
+  @Autowired
+  private HdStationIndex hdStationIndex;
+
+  @Autowired
+  private StationSearchIndex searchIndex;
+
+  @Autowired
+  private StationCatalogSnapshot catalogSnapshot;
+
+  @Autowired
+  private RequestMappingHandlerAdapter handlerAdapter;
+
   @Before
   public void setUp() throws Exception {
     this.mockMvc =
@@ -80,6 +124,36 @@ public class StationControllerTest {
   public void tearDown() throws Exception {
     this.mockMvc = null;
     this.stationRepository.deleteAll();
+    this.tombstoneRepository.deleteAll();
+  }
+
+  /**
+   * Performs the request, and dispatches the result of a request that is handled asynchronously.
+   */
+  private ResultActions perform(RequestBuilder requestBuilder) throws Exception {
+    MvcResult result = this.mockMvc.perform(requestBuilder).andReturn();
+    if (result.getRequest().isAsyncStarted()) {
+      result.getAsyncResult();
+      return this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+    return new ResultActions() {
+      @Override
+      public ResultActions andExpect(ResultMatcher matcher) throws Exception {
+        matcher.match(result);
+        return this;
+      }
+
+      @Override
+      public ResultActions andDo(ResultHandler handler) throws Exception {
+        handler.handle(result);
+        return this;
+      }
+
+      @Override
+      public MvcResult andReturn() {
+        return result;
+      }
+    };
   }
 
   @Test
@@ -93,7 +167,7 @@ public class StationControllerTest {
     mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, false);
     ObjectWriter ow = mapper.writer().withDefaultPrettyPrinter();
     String body = ow.writeValueAsString(station);
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.post("/iheartmedia/station").
             contentType(MediaType.APPLICATION_JSON_UTF8).content(body)).
             andExpect(MockMvcResultMatchers.jsonPath("$.name",
@@ -114,7 +188,7 @@ public class StationControllerTest {
     mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, false);
     ObjectWriter ow = mapper.writer().withDefaultPrettyPrinter();
     String body = ow.writeValueAsString(this.nonHdStation);
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.post("/iheartmedia/station").
             contentType(MediaType.APPLICATION_JSON_UTF8).content(body)).
             andExpect(MockMvcResultMatchers.jsonPath("$.name").doesNotExist()).
@@ -140,7 +214,7 @@ public class StationControllerTest {
     mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, false);
     ObjectWriter ow = mapper.writer().withDefaultPrettyPrinter();
     String body = ow.writeValueAsString(station);
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.post("/iheartmedia/station").
                 contentType(MediaType.APPLICATION_JSON_UTF8).content(body)).
             andExpect(MockMvcResultMatchers.jsonPath("$.name").doesNotExist()).
@@ -156,9 +230,62 @@ public class StationControllerTest {
             andExpect(MockMvcResultMatchers.status().isBadRequest());
   }
 
+  @Test
+  public void testImportStations_jsonArray() throws Exception {
+    Station newStation = new Station();
+    newStation.setStationName("NPR News & Information");
+    newStation.setStationId("KQED-FM");
+    newStation.setCallSign("KQED");
+    Station invalidStation = new Station();
+    invalidStation.setStationName("Invalid");
+    invalidStation.setStationId("KQED-HD");
+    invalidStation.setCallSign("KQEDD");
+    ObjectMapper mapper = new ObjectMapper();
+    String body = mapper.writeValueAsString(
+        Arrays.asList(newStation, invalidStation, this.nonHdStation));
+    perform(
+        MockMvcRequestBuilders.post("/iheartmedia/stations/bulk").
+            contentType(MediaType.APPLICATION_JSON_UTF8).content(body)).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.length()", Matchers.equalTo(3))).
+        andExpect(MockMvcResultMatchers.jsonPath("$[0].stationId",
+            Matchers.equalTo(newStation.getStationId()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$[0].errors").doesNotExist()).
+        andExpect(MockMvcResultMatchers.jsonPath("$[1].stationId").doesNotExist()).
+        andExpect(MockMvcResultMatchers.jsonPath("$[1].errors[0].code", Matchers.equalTo(400))).
+        andExpect(MockMvcResultMatchers.jsonPath("$[1].errors[0].message",
+            Matchers.equalTo("Call sign KQEDD is of invalid length. Station call sign must be 4 "
+                + "characters long."))).
+        andExpect(MockMvcResultMatchers.jsonPath("$[2].stationId").doesNotExist()).
+        andExpect(MockMvcResultMatchers.jsonPath("$[2].errors[0].code", Matchers.equalTo(409)));
+    MatcherAssert.assertThat(this.stationRepository.findByStationId("KQED-FM").getStationName(),
+        Matchers.equalTo(newStation.getStationName()));
+    MatcherAssert.assertThat(this.stationRepository.count(), Matchers.equalTo(3L));
+  }
+
+  @Test
+  public void testImportStations_newlineDelimited() throws Exception {
+    String body =
+        "{\"stationId\": \"KQED-FM\", \"name\": \"KQED\", \"callSign\": \"KQED\"}\n"
+            + "{\"stationId\": \"WNYC-FM\", \"name\": \"WNYC\", \"callSign\": \"WNYC\"}\n"
+            + "{\"stationId\": ";
+    perform(
+        MockMvcRequestBuilders.post("/iheartmedia/stations/bulk").
+            contentType("application/x-ndjson").content(body)).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.length()", Matchers.equalTo(3))).
+        andExpect(MockMvcResultMatchers.jsonPath("$[0].stationId", Matchers.equalTo("KQED-FM"))).
+        andExpect(MockMvcResultMatchers.jsonPath("$[1].stationId", Matchers.equalTo("WNYC-FM"))).
+        andExpect(MockMvcResultMatchers.jsonPath("$[2].errors[0].code", Matchers.equalTo(400))).
+        andExpect(MockMvcResultMatchers.jsonPath("$[2].errors[0].message",
+            Matchers.equalTo(this.messageSource.getMessage("station.import.malformed",
+                new Object[] {3}, Locale.getDefault()))));
+    MatcherAssert.assertThat(this.stationRepository.count(), Matchers.equalTo(4L));
+  }
+
   @Test
   public void testDeleteStation_stationIdNotFound() throws Exception {
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.delete("/iheartmedia/station/W123").
                 contentType(MediaType.APPLICATION_JSON_UTF8)).
             andExpect(MockMvcResultMatchers.jsonPath("$.name").doesNotExist()).
@@ -175,9 +302,141 @@ public class StationControllerTest {
             andExpect(MockMvcResultMatchers.status().isBadRequest());
   }
 
+  @Test
+  public void testLookupStations_success() throws Exception {
+    String body = "{\"stationIds\": [\"WHTZ-FM\", \"KQED-FM\"], \"stationNames\": [\"102.7\"]}";
+    perform(
+        MockMvcRequestBuilders.post("/iheartmedia/stations/lookup").
+            contentType(MediaType.APPLICATION_JSON_UTF8).content(body)).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stationIds.WHTZ-FM.callSign",
+            Matchers.equalTo(this.hdStation.getCallSign()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stationIds.KQED-FM.errors[0].code",
+            Matchers.equalTo(404))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stationNames['102.7'].stationId",
+            Matchers.equalTo(this.nonHdStation.getStationId()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors").doesNotExist()).
+        andExpect(MockMvcResultMatchers.status().isOk());
+  }
+
+  @Test
+  public void testDeleteStations_success() throws Exception {
+    String body = "{\"stationIds\": [\"WHTZ-FM\", \"KQED-FM\"]}";
+    perform(
+        MockMvcRequestBuilders.delete("/iheartmedia/stations").
+            contentType(MediaType.APPLICATION_JSON_UTF8).content(body)).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stationIds.WHTZ-FM.callSign",
+            Matchers.equalTo(this.hdStation.getCallSign()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stationIds.WHTZ-FM.deletedAt").isNotEmpty()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stationIds.KQED-FM.errors[0].code",
+            Matchers.equalTo(404))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors").doesNotExist()).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/WHTZ-FM")).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code", Matchers.equalTo(404)));
+  }
+
+  @Test
+  public void testRetrieveStationChanges_success() throws Exception {
+    // Only the changes made after the millisecond in which the stations were created are returned.
+    long since = this.nonHdStation.getUpdatedTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/changes?since=" + since)).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations").doesNotExist()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.deletedStations").doesNotExist()).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    String firstDelta = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/changes")).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations.length()", Matchers.equalTo(2))).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andReturn().getResponse().getContentAsString();
+    String continuationToken =
+        (String) new ObjectMapper().readValue(firstDelta, Map.class).get("continuationToken");
+    perform(
+        MockMvcRequestBuilders.delete(
+            "/iheartmedia/station/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/changes").
+            param("since", continuationToken)).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations").doesNotExist()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.deletedStations.length()",
+            Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.deletedStations[0].stationId",
+            Matchers.equalTo(this.hdStation.getStationId()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.continuationToken").isNotEmpty()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.hasMore", Matchers.equalTo(false))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors").doesNotExist()).
+        andExpect(MockMvcResultMatchers.status().isOk());
+  }
+
+  @Test
+  public void testPollChanges_success() throws Exception {
+    perform(
+        MockMvcRequestBuilders.delete(
+            "/iheartmedia/station/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/feed?since=0")).
+        andExpect(MockMvcResultMatchers.jsonPath("$.changes.length()", Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.changes[0].sequence", Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.changes[0].type",
+            Matchers.equalTo("DELETED"))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.changes[0].stationId",
+            Matchers.equalTo(this.hdStation.getStationId()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.changes[0].station.name",
+            Matchers.equalTo(this.hdStation.getStationName()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.lastSequence", Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors").doesNotExist()).
+        andExpect(MockMvcResultMatchers.status().isOk());
+  }
+
+  @Test
+  public void testPollChanges_expiredSequence() throws Exception {
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/feed?since=5")).
+        andExpect(MockMvcResultMatchers.jsonPath("$.changes").doesNotExist()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code", Matchers.equalTo(410))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message",
+            Matchers.equalTo(this.messageSource.getMessage("station.feed.sequence.expired",
+                new Object[] {"5", "0"}, Locale.getDefault())))).
+        andExpect(MockMvcResultMatchers.status().isGone());
+  }
+
+  @Test
+  public void testStreamChanges_success() throws Exception {
+    perform(
+        MockMvcRequestBuilders.delete(
+            "/iheartmedia/station/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    MvcResult result = this.mockMvc.perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/feed/stream").
+            header("Last-Event-ID", "0")).
+        andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+    long deadline = System.currentTimeMillis() + 5000L;
+    while (!result.getResponse().getContentAsString().contains("\n\n")
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+    String events = result.getResponse().getContentAsString();
+    MatcherAssert.assertThat(events, Matchers.startsWith("id:1\ndata:{"));
+    MatcherAssert.assertThat(events, Matchers.containsString(
+        "\"stationId\":\"" + this.hdStation.getStationId() + "\""));
+  }
+
+  @Test
+  public void testStreamChanges_expiredSequence() throws Exception {
+    MvcResult result = this.mockMvc.perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/feed/stream?since=5")).
+        andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+    result.getAsyncResult(5000L);
+    MatcherAssert.assertThat(result.getResponse().getContentAsString(),
+        Matchers.equalTo("event:reset\ndata:0\n\n"));
+  }
+
   @Test
   public void testDeleteStation_success() throws Exception {
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.delete(
                 "/iheartmedia/station/" + this.hdStation.getStationId()).
             contentType(MediaType.APPLICATION_JSON_UTF8)).
@@ -204,7 +463,7 @@ public class StationControllerTest {
     mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, false);
     ObjectWriter ow = mapper.writer().withDefaultPrettyPrinter();
     String body = ow.writeValueAsString(mixin);
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.put("/iheartmedia/station/" + this.hdStation.getStationId()).
                 contentType(MediaType.APPLICATION_JSON_UTF8).content(body)).
             andExpect(MockMvcResultMatchers.jsonPath("$.name",
@@ -233,7 +492,7 @@ public class StationControllerTest {
     mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, false);
     ObjectWriter ow = mapper.writer().withDefaultPrettyPrinter();
     String body = ow.writeValueAsString(mixin);
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.put("/iheartmedia/station/" + this.hdStation.getStationId()).
                 contentType(MediaType.APPLICATION_JSON_UTF8).content(body)).
         andExpect(MockMvcResultMatchers.jsonPath("$.name").doesNotExist()).
@@ -252,7 +511,7 @@ public class StationControllerTest {
 
   @Test
   public void testRetrieveAllStations_success() throws Exception {
-    String responseString = this.mockMvc.perform(
+    String responseString = perform(
         MockMvcRequestBuilders.get("/iheartmedia/stations")).
             andReturn().getResponse().getContentAsString();
     ObjectMapper mapper = new ObjectMapper();
@@ -262,18 +521,409 @@ public class StationControllerTest {
         stations, Matchers.containsInAnyOrder(this.hdStation, this.nonHdStation));
   }
 
+  @Test
+  public void testRetrieveAllStations_snapshot() throws Exception {
+    String json = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations")).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andReturn().getResponse().getContentAsString();
+    this.catalogSnapshot.refresh();
+    MockHttpServletResponse response = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations").
+            header(HttpHeaders.ACCEPT_ENCODING, "gzip")).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_ENCODING, "gzip")).
+        andReturn().getResponse();
+    try (InputStream gzip = new GZIPInputStream(
+        new ByteArrayInputStream(response.getContentAsByteArray()))) {
+      MatcherAssert.assertThat(StreamUtils.copyToString(gzip, StandardCharsets.UTF_8),
+          Matchers.equalTo(json));
+    }
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations")).
+        andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.CONTENT_ENCODING)).
+        andExpect(MockMvcResultMatchers.header().longValue(
+            HttpHeaders.CONTENT_LENGTH, json.getBytes(StandardCharsets.UTF_8).length)).
+        andExpect(MockMvcResultMatchers.content().string(json));
+
+    // The snapshot is not served once the catalogue has changed.
+    perform(
+        MockMvcRequestBuilders.put("/iheartmedia/station/" + this.hdStation.getStationId()).
+            contentType(MediaType.APPLICATION_JSON_UTF8).content("{\"callSign\": \"WHTX\"}")).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations").
+            header(HttpHeaders.ACCEPT_ENCODING, "gzip")).
+        andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.CONTENT_ENCODING)).
+        andExpect(MockMvcResultMatchers.jsonPath("$[0].callSign", Matchers.equalTo("WHTX")));
+  }
+
+  @Test
+  public void testRetrieveAllStations_smile() throws Exception {
+    MockHttpServletResponse response = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations").
+            accept(BinaryFormatsConfig.SMILE)).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(
+            BinaryFormatsConfig.SMILE)).
+        andReturn().getResponse();
+    ObjectMapper mapper = new ObjectMapper(new SmileFactory());
+    List<Station> stations = mapper.readValue(response.getContentAsByteArray(),
+        new TypeReference<List<Station>>() {});
+    MatcherAssert.assertThat(
+        stations, Matchers.containsInAnyOrder(this.hdStation, this.nonHdStation));
+  }
+
+  @Test
+  public void testCreateStation_cbor() throws Exception {
+    Station station = new Station();
+    station.setStationName("NPR News & Information");
+    station.setStationId("KQED-FM");
+    station.setCallSign("KQED");
+    station.setHdEnabled(true);
+    ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+    MockHttpServletResponse response = perform(
+        MockMvcRequestBuilders.post("/iheartmedia/station").
+            contentType(BinaryFormatsConfig.CBOR).accept(BinaryFormatsConfig.CBOR).
+            content(mapper.writeValueAsBytes(station))).
+        andExpect(MockMvcResultMatchers.status().isCreated()).
+        andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(
+            BinaryFormatsConfig.CBOR)).
+        andReturn().getResponse();
+    Map<String, Object> mixin = mapper.readValue(response.getContentAsByteArray(),
+        new TypeReference<Map<String, Object>>() {});
+    MatcherAssert.assertThat(mixin.get("name"), Matchers.equalTo(station.getStationName()));
+    MatcherAssert.assertThat(mixin.get("callSign"), Matchers.equalTo(station.getCallSign()));
+  }
+
+  @Test
+  public void testFindByStationId_smile() throws Exception {
+    // Caches the response as JSON, which does not satisfy a client that prefers Smile.
+    String eTag = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    MockHttpServletResponse response = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId()).
+            header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-jackson-smile").
+            header(HttpHeaders.IF_NONE_MATCH, eTag)).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(
+            BinaryFormatsConfig.SMILE)).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY,
+            HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING)).
+        andReturn().getResponse();
+    String smileETag = response.getHeader(HttpHeaders.ETAG);
+    MatcherAssert.assertThat(smileETag, Matchers.not(Matchers.equalTo(eTag)));
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/name/" + this.hdStation.getStationName()).
+            accept(BinaryFormatsConfig.SMILE).header(HttpHeaders.IF_NONE_MATCH, smileETag)).
+        andExpect(MockMvcResultMatchers.status().isNotModified()).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY,
+            HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING));
+    // The tag of any format satisfies a precondition on the station.
+    perform(
+        MockMvcRequestBuilders.put("/iheartmedia/station/" + this.hdStation.getStationId()).
+            header(HttpHeaders.IF_MATCH, smileETag).
+            contentType(MediaType.APPLICATION_JSON_UTF8).content("{\"callSign\": \"WHTX\"}")).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    Map<String, Object> mixin = new ObjectMapper(new SmileFactory()).readValue(
+        response.getContentAsByteArray(), new TypeReference<Map<String, Object>>() {});
+    MatcherAssert.assertThat(mixin.get("callSign"), Matchers.equalTo(this.hdStation.getCallSign()));
+  }
+
+  @Test
+  public void testRetrieveAllStations_protobuf() throws Exception {
+    MockHttpServletResponse response = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations").
+            accept(BinaryFormatsConfig.PROTOBUF)).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(
+            BinaryFormatsConfig.PROTOBUF)).
+        andReturn().getResponse();
+    StationProtos.StationList stations =
+        StationProtos.StationList.parseFrom(response.getContentAsByteArray());
+    MatcherAssert.assertThat(stations.getStationsList(), Matchers.containsInAnyOrder(
+        StationProtos.Station.newBuilder().setStationId("WHTZ-FM").setName("Z-100")
+            .setCallSign("WHTZ").setHdEnabled(BoolValue.of(true)).build(),
+        StationProtos.Station.newBuilder().setStationId("KISS-FM").setName("102.7")
+            .setCallSign("KISS").setHdEnabled(BoolValue.of(false)).build()));
+
+    String eTag = perform(MockMvcRequestBuilders.get("/iheartmedia/stations")).
+        andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    MatcherAssert.assertThat(response.getHeader(HttpHeaders.ETAG),
+        Matchers.not(Matchers.equalTo(eTag)));
+  }
+
+  @Test
+  public void testLookupStations_protobuf() throws Exception {
+    // Built with the converters of the application, which include the converter of Protobuf.
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(this.stationController).
+        setControllerAdvice(this.handler).
+        setMessageConverters(this.handlerAdapter.getMessageConverters().toArray(
+            new HttpMessageConverter<?>[0])).build();
+    StationProtos.StationLookupRequest lookupRequest = StationProtos.StationLookupRequest
+        .newBuilder().addStationIds("WHTZ-FM").addStationIds("KQED-FM").build();
+    MvcResult result = mockMvc.perform(
+        MockMvcRequestBuilders.post("/iheartmedia/stations/lookup").
+            contentType(BinaryFormatsConfig.PROTOBUF).accept(BinaryFormatsConfig.PROTOBUF).
+            content(lookupRequest.toByteArray())).
+        andReturn();
+    MockHttpServletResponse response = mockMvc.perform(
+        MockMvcRequestBuilders.asyncDispatch(result)).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(
+            BinaryFormatsConfig.PROTOBUF)).
+        andReturn().getResponse();
+    StationProtos.StationLookup lookup =
+        StationProtos.StationLookup.parseFrom(response.getContentAsByteArray());
+    Assert.assertEquals(this.hdStation.getCallSign(),
+        lookup.getStationIdsOrThrow("WHTZ-FM").getCallSign());
+    Assert.assertEquals(404, lookup.getStationIdsOrThrow("KQED-FM").getErrors(0).getCode());
+
+    // JSON remains the format of a client that accepts any format.
+    result = mockMvc.perform(
+        MockMvcRequestBuilders.post("/iheartmedia/stations/lookup").
+            contentType(BinaryFormatsConfig.PROTOBUF).accept(MediaType.ALL).
+            content(lookupRequest.toByteArray())).
+        andReturn();
+    mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).
+        andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(
+            MediaType.APPLICATION_JSON));
+  }
+
   @Test
   public void testRetrieveAllStations_noData() throws Exception {
     this.stationRepository.deleteAll();
-    String responseString = this.mockMvc.perform(
+    String responseString = perform(
         MockMvcRequestBuilders.get("/iheartmedia/stations")).
         andReturn().getResponse().getContentAsString();
     MatcherAssert.assertThat(responseString, Matchers.equalTo("[]"));
   }
 
   @Test
-  public void testRetrieveStationByStationId() throws Exception {
+  public void testFindByStationId_notModified() throws Exception {
+    String eTag = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG)).
+        andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId()).
+            header(HttpHeaders.IF_NONE_MATCH, eTag)).
+        andExpect(MockMvcResultMatchers.status().isNotModified()).
+        andExpect(MockMvcResultMatchers.content().string(""));
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/name/" + this.hdStation.getStationName()).
+            header(HttpHeaders.IF_NONE_MATCH, eTag)).
+        andExpect(MockMvcResultMatchers.status().isNotModified());
+
+    perform(
+        MockMvcRequestBuilders.put("/iheartmedia/station/" + this.hdStation.getStationId()).
+            contentType(MediaType.APPLICATION_JSON_UTF8).content("{\"callSign\": \"WHTX\"}")).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId()).
+            header(HttpHeaders.IF_NONE_MATCH, eTag)).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG,
+            Matchers.not(Matchers.equalTo(eTag)))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.callSign", Matchers.equalTo("WHTX")));
+  }
+
+  @Test
+  public void testFindByStationId_cachedResponse() throws Exception {
+    MockHttpServletResponse response = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andReturn().getResponse();
+    // Served from the response cache, without being handled asynchronously.
+    MvcResult cachedResult = this.mockMvc.perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY,
+            HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING)).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG,
+            response.getHeader(HttpHeaders.ETAG))).
+        andExpect(MockMvcResultMatchers.content().string(response.getContentAsString())).
+        andReturn();
+    Assert.assertFalse(cachedResult.getRequest().isAsyncStarted());
+    this.mockMvc.perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId()).
+            header(HttpHeaders.IF_NONE_MATCH, response.getHeader(HttpHeaders.ETAG))).
+        andExpect(MockMvcResultMatchers.status().isNotModified()).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY,
+            HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING));
+
+    perform(
+        MockMvcRequestBuilders.delete("/iheartmedia/station/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code", Matchers.equalTo(404)));
+  }
+
+  @Test
+  public void testFindByStationId_cachedGzipResponse() throws Exception {
+    StringBuilder stationName = new StringBuilder();
+    for (int i = 0; i < 6; i++) {
+      stationName.append("Z-100 New York's Hit Music Station ");
+    }
+    perform(
+        MockMvcRequestBuilders.put("/iheartmedia/station/" + this.hdStation.getStationId()).
+            contentType(MediaType.APPLICATION_JSON_UTF8).
+            content("{\"name\": \"" + stationName.toString().trim() + "\"}")).
+        andExpect(MockMvcResultMatchers.status().isOk());
+    String json = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId())).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andReturn().getResponse().getContentAsString();
+    MockHttpServletResponse response = this.mockMvc.perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId()).
+            header(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8")).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_ENCODING, "gzip")).
+        andReturn().getResponse();
+    Assert.assertTrue(response.getContentLength() < json.length());
+    try (InputStream gzip = new GZIPInputStream(
+        new ByteArrayInputStream(response.getContentAsByteArray()))) {
+      MatcherAssert.assertThat(StreamUtils.copyToString(gzip, StandardCharsets.UTF_8),
+          Matchers.equalTo(json));
+    }
+
     this.mockMvc.perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId()).
+            header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")).
+        andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.CONTENT_ENCODING)).
+        andExpect(MockMvcResultMatchers.content().string(json));
+  }
+
+  @Test
+  public void testUpdateStation_preconditionFailed() throws Exception {
+    String eTag = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/" + this.hdStation.getStationId())).
+        andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    String updatedETag = perform(
+        MockMvcRequestBuilders.put("/iheartmedia/station/" + this.hdStation.getStationId()).
+            header(HttpHeaders.IF_MATCH, eTag).
+            contentType(MediaType.APPLICATION_JSON_UTF8).content("{\"callSign\": \"WHTX\"}")).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG,
+            Matchers.not(Matchers.equalTo(eTag)))).
+        andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    // The station has been updated since the first tag was handed out.
+    perform(
+        MockMvcRequestBuilders.put("/iheartmedia/station/" + this.hdStation.getStationId()).
+            header(HttpHeaders.IF_MATCH, eTag).
+            contentType(MediaType.APPLICATION_JSON_UTF8).content("{\"callSign\": \"WHTY\"}")).
+        andExpect(MockMvcResultMatchers.status().isPreconditionFailed()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code", Matchers.equalTo(412)));
+    perform(
+        MockMvcRequestBuilders.delete("/iheartmedia/station/" + this.hdStation.getStationId()).
+            header(HttpHeaders.IF_MATCH, eTag)).
+        andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    perform(
+        MockMvcRequestBuilders.delete("/iheartmedia/station/" + this.hdStation.getStationId()).
+            header(HttpHeaders.IF_MATCH, updatedETag)).
+        andExpect(MockMvcResultMatchers.status().isOk());
+  }
+
+  @Test
+  public void testRetrieveAllStations_notModified() throws Exception {
+    String eTag = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations")).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.LAST_MODIFIED)).
+        andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations").
+            header(HttpHeaders.IF_NONE_MATCH, eTag)).
+        andExpect(MockMvcResultMatchers.status().isNotModified()).
+        andExpect(MockMvcResultMatchers.content().string(""));
+
+    this.stationRepository.deleteById(this.nonHdStation.getId());
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations").
+            header(HttpHeaders.IF_NONE_MATCH, eTag)).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.length()", Matchers.equalTo(1)));
+  }
+
+  @Test
+  public void testRetrieveStationPage_success() throws Exception {
+    String firstPage = perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/page").param("limit", "1")).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations.length()", Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations[0].stationId",
+            Matchers.equalTo(this.hdStation.getStationId()))).
+        andReturn().getResponse().getContentAsString();
+    ObjectMapper mapper = new ObjectMapper();
+    StationPage page = mapper.readValue(firstPage, StationPage.class);
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/page").param("limit", "1").
+            param("continuationToken", page.getContinuationToken())).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations.length()", Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations[0].stationId",
+            Matchers.equalTo(this.nonHdStation.getStationId()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.continuationToken").doesNotExist());
+  }
+
+  @Test
+  public void testRetrieveHdStationPage_success() throws Exception {
+    // The stations were saved through the repository, so the view has to be reloaded.
+    this.hdStationIndex.rebuild();
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/hd")).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations.length()", Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations[0].stationId",
+            Matchers.equalTo(this.hdStation.getStationId()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.continuationToken").doesNotExist());
+  }
+
+  @Test
+  public void testSearchStations_success() throws Exception {
+    // The stations were saved through the repository, so the index has to be reloaded.
+    this.searchIndex.rebuild();
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/search").param("q", "wht")).
+        andExpect(MockMvcResultMatchers.status().isOk()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations.length()", Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations[0].stationId",
+            Matchers.equalTo(this.hdStation.getStationId()))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.continuationToken").doesNotExist());
+  }
+
+  @Test
+  public void testSearchStations_missingQuery() throws Exception {
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/search")).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code", Matchers.equalTo(400))).
+        andExpect(MockMvcResultMatchers.status().isBadRequest());
+  }
+
+  @Test
+  public void testRetrieveStationPage_invalidContinuationToken() throws Exception {
+    perform(
+        MockMvcRequestBuilders.get("/iheartmedia/stations/page").
+            param("continuationToken", "not-a-token")).
+        andExpect(MockMvcResultMatchers.jsonPath("$.stations").doesNotExist()).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors.length()",
+            Matchers.equalTo(1))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code",
+            Matchers.equalTo(400))).
+        andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message",
+            Matchers.equalTo(this.messageSource.getMessage("continuation.token.invalid",
+                new Object[] {"not-a-token"}, Locale.getDefault())))).
+        andExpect(MockMvcResultMatchers.status().isBadRequest());
+  }
+
+  @Test
+  public void testRetrieveStationByStationId() throws Exception {
+    perform(
         MockMvcRequestBuilders.get(
                 "/iheartmedia/station/id/" + this.nonHdStation.getStationId()).
                 contentType(MediaType.APPLICATION_JSON_UTF8)).
@@ -291,7 +941,7 @@ public class StationControllerTest {
 
   @Test
   public void testRetrieveStationByStationId_stationNotFound() throws Exception {
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.get(
             "/iheartmedia/station/id/test").
             contentType(MediaType.APPLICATION_JSON_UTF8)).
@@ -311,7 +961,7 @@ public class StationControllerTest {
 
   @Test
   public void testRetrieveStationByStationName() throws Exception {
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.get(
             "/iheartmedia/station/name/" + this.hdStation.getStationName()).
             contentType(MediaType.APPLICATION_JSON_UTF8)).
@@ -329,7 +979,7 @@ public class StationControllerTest {
 
   @Test
   public void testRetrieveStationByStationName_stationNotFound() throws Exception {
-    this.mockMvc.perform(
+    perform(
         MockMvcRequestBuilders.get(
             "/iheartmedia/station/name/test").
             contentType(MediaType.APPLICATION_JSON_UTF8)).
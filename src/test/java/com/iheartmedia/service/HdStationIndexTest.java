@@ -0,0 +1,62 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.model.Station;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit test for {@link HdStationIndex}.
+ */
+public class HdStationIndexTest {
+
+  private HdStationIndex hdStationIndex;
+
+  @Before
+  public void setUp() {
+    this.hdStationIndex = new HdStationIndex(null, new SimpleMeterRegistry());
+  }
+
+  private static Station station(int version, boolean hdEnabled) {
+    Station station = new Station();
+    station.setId(1L);
+    station.setVersion(version);
+    station.setStationId("WHTZ-FM");
+    station.setStationName("Z-100");
+    station.setCallSign("WHTZ");
+    station.setHdEnabled(hdEnabled);
+    return station;
+  }
+
+  @Test
+  public void testOnStationMutation_outOfOrder() {
+    this.hdStationIndex.onStationMutation(StationMutationEvent.created(station(0, true)));
+    // The update to version 2 is delivered before the update to version 1.
+    this.hdStationIndex.onStationMutation(
+        StationMutationEvent.updated(station(1, true), station(2, false)));
+    this.hdStationIndex.onStationMutation(
+        StationMutationEvent.updated(station(0, true), station(1, true)));
+    Assert.assertTrue(this.hdStationIndex.page(null, 10).isEmpty());
+  }
+
+  @Test
+  public void testOnStationMutation_deletedBeforeUpdate() {
+    this.hdStationIndex.onStationMutation(StationMutationEvent.created(station(0, true)));
+    this.hdStationIndex.onStationMutation(StationMutationEvent.deleted(station(1, true)));
+    this.hdStationIndex.onStationMutation(
+        StationMutationEvent.updated(station(0, true), station(1, true)));
+    Assert.assertTrue(this.hdStationIndex.page(null, 10).isEmpty());
+  }
+
+  @Test
+  public void testOnStationMutation_inOrder() {
+    this.hdStationIndex.onStationMutation(StationMutationEvent.created(station(0, false)));
+    this.hdStationIndex.onStationMutation(
+        StationMutationEvent.updated(station(0, false), station(1, true)));
+    Assert.assertEquals(1, this.hdStationIndex.page(null, 10).size());
+  }
+}
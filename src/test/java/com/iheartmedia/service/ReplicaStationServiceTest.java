@@ -0,0 +1,285 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.controller.StationController;
+import com.iheartmedia.dto.StationLookup;
+import com.iheartmedia.dto.StationLookupRequest;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
+import com.iheartmedia.model.ErrorCodes;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.utils.AppExceptionHandler;
+import com.iheartmedia.utils.ReadOnlyReplicaException;
+
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+/**
+ * Unit test for {@link ReplicaStationService}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes= {IHeartMedia.class}, properties = {
+    "iheartmedia.replica.snapshot.path=target/replica/stations.snapshot",
+    "iheartmedia.replica.snapshot.reload-millis=3600000",
+    "iheartmedia.stations.page.default-limit=2"})
+@ActiveProfiles("replica")
+public class ReplicaStationServiceTest {
+
+  private static final Path SNAPSHOT = Paths.get("target/replica/stations.snapshot");
+
+  @Autowired
+  private ApplicationContext applicationContext;
+
+  @Autowired
+  private ReplicaStationService stationService;
+
+  @Autowired
+  private StationController stationController;
+
+  @Autowired
+  private AppExceptionHandler handler;
+
+  @Before
+  public void setUp() throws Exception {
+    publish(station(3L, "WHTZ-FM", "Z-100", "WHTZ", true),
+        station(1L, "KISS-FM", "102.7 KIIS-FM", "KIIS", false),
+        station(2L, "KQED-FM", "KQED Public Radio", "KQED", true));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(SNAPSHOT);
+    Files.deleteIfExists(Paths.get("target/replica/published.snapshot"));
+  }
+
+  private static Station station(Long id, String stationId, String stationName, String callSign,
+      boolean hdEnabled) {
+    Station station = new Station();
+    station.setId(id);
+    station.setVersion(id.intValue());
+    station.setStationId(stationId);
+    station.setStationName(stationName);
+    station.setCallSign(callSign);
+    station.setHdEnabled(hdEnabled);
+    station.setCreatedTimeStamp(LocalDateTime.of(2018, 10, 1, 12, 0, 0, 123456789));
+    station.setUpdatedTimestamp(LocalDateTime.of(2018, 10, 1, 12, 0).plusSeconds(id));
+    return station;
+  }
+
+  // Published the same way as the primary does, by moving the snapshot in place.
+  private void publish(Station... stations) throws Exception {
+    MappedStationSnapshot.Builder builder = new MappedStationSnapshot.Builder();
+    for (Station station : stations) {
+      builder.add(station);
+    }
+    Files.createDirectories(SNAPSHOT.getParent());
+    Path temporaryFile = SNAPSHOT.resolveSibling("stations.snapshot.tmp");
+    builder.writeTo(temporaryFile);
+    Files.move(temporaryFile, SNAPSHOT, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    this.stationService.reload();
+  }
+
+  private static List<String> stationIds(List<Station> stations) {
+    List<String> stationIds = new ArrayList<>();
+    for (Station station : stations) {
+      stationIds.add(station.getStationId());
+    }
+    return stationIds;
+  }
+
+  @Test
+  public void testStartsWithoutDatabase() {
+    Assert.assertEquals(0, this.applicationContext.getBeanNamesForType(DataSource.class).length);
+    Assert.assertEquals(0,
+        this.applicationContext.getBeanNamesForType(EntityManagerFactory.class).length);
+    Assert.assertSame(this.stationService,
+        this.applicationContext.getBean(IStationService.class));
+  }
+
+  @Test
+  public void testRetrieveStationByStationId() {
+    StationMixin mixin = this.stationService.retrieveStationByStationId("KQED-FM", Locale.US);
+    Assert.assertFalse(mixin.hasErrors());
+    Assert.assertEquals("KQED Public Radio", mixin.getStationName());
+    Assert.assertEquals("KQED", mixin.getCallSign());
+    Assert.assertEquals(Boolean.TRUE, mixin.getHdEnabled());
+
+    Station station = this.stationService.retrieveAllStations().get(1);
+    Assert.assertEquals(station(2L, "KQED-FM", "KQED Public Radio", "KQED", true), station);
+    Assert.assertEquals(Long.valueOf(2L), station.getId());
+    Assert.assertEquals(Integer.valueOf(2), station.getVersion());
+    Assert.assertEquals(LocalDateTime.of(2018, 10, 1, 12, 0, 0, 123456789),
+        station.getCreatedTimeStamp());
+
+    mixin = this.stationService.retrieveStationByStationId("KQED", Locale.US);
+    Assert.assertEquals(ErrorCodes.NOT_FOUND.getCode(), mixin.getErrors().get(0).getCode());
+  }
+
+  @Test
+  public void testRetrieveStationByStationName() {
+    StationMixin mixin = this.stationService.retrieveStationByStationName("Z-100", Locale.US);
+    Assert.assertFalse(mixin.hasErrors());
+    Assert.assertEquals("WHTZ-FM", mixin.getStationId());
+
+    mixin = this.stationService.retrieveStationByStationName("Z-1000", Locale.US);
+    Assert.assertEquals(ErrorCodes.NOT_FOUND.getCode(), mixin.getErrors().get(0).getCode());
+  }
+
+  @Test
+  public void testLookupStations() {
+    StationLookupRequest lookupRequest = new StationLookupRequest();
+    lookupRequest.setStationIds(Arrays.asList("WHTZ-FM", "KFOG-FM"));
+    lookupRequest.setStationNames(Arrays.asList("102.7 KIIS-FM"));
+    StationLookup lookup = this.stationService.lookupStations(lookupRequest, Locale.US);
+    Assert.assertEquals("WHTZ", lookup.getStationIds().get("WHTZ-FM").getCallSign());
+    Assert.assertTrue(lookup.getStationIds().get("KFOG-FM").hasErrors());
+    Assert.assertEquals("KISS-FM", lookup.getStationNames().get("102.7 KIIS-FM").getStationId());
+  }
+
+  @Test
+  public void testRetrieveStationPage() {
+    StationPage page = this.stationService.retrieveStationPage(null, null, Locale.US);
+    Assert.assertEquals(Arrays.asList("KISS-FM", "KQED-FM"), stationIds(page.getStations()));
+    page = this.stationService.retrieveStationPage(page.getContinuationToken(), null, Locale.US);
+    Assert.assertEquals(Arrays.asList("WHTZ-FM"), stationIds(page.getStations()));
+    Assert.assertNull(page.getContinuationToken());
+
+    page = this.stationService.retrieveStationPage("not-a-token", null, Locale.US);
+    Assert.assertEquals(ErrorCodes.BAD_REQUEST.getCode(), page.getErrors().get(0).getCode());
+  }
+
+  @Test
+  public void testRetrieveHdStationPage() {
+    StationPage page = this.stationService.retrieveHdStationPage(null, 1, Locale.US);
+    Assert.assertEquals(Arrays.asList("KQED-FM"), stationIds(page.getStations()));
+    page = this.stationService.retrieveHdStationPage(page.getContinuationToken(), 1, Locale.US);
+    Assert.assertEquals(Arrays.asList("WHTZ-FM"), stationIds(page.getStations()));
+    Assert.assertNull(page.getContinuationToken());
+  }
+
+  @Test
+  public void testRetrieveHdStationPage_acrossBitmapWords() throws Exception {
+    List<Station> stations = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      stations.add(station((long) i + 1, String.format("W%03d-FM", i), "Station " + i, "WABC",
+          i % 3 == 0));
+    }
+    publish(stations.toArray(new Station[0]));
+    StationPage page = this.stationService.retrieveHdStationPage(null, 50, Locale.US);
+    Assert.assertEquals("W000-FM", page.getStations().get(0).getStationId());
+    Assert.assertEquals("W147-FM", page.getStations().get(49).getStationId());
+    page = this.stationService.retrieveHdStationPage(page.getContinuationToken(), 50, Locale.US);
+    Assert.assertEquals(17, page.getStations().size());
+    Assert.assertEquals("W150-FM", page.getStations().get(0).getStationId());
+    Assert.assertEquals("W198-FM", page.getStations().get(16).getStationId());
+    Assert.assertEquals(67, this.stationService.retrieveHdEnabledStations().size());
+  }
+
+  @Test
+  public void testRetrieveCatalogVersion() {
+    Assert.assertEquals(3L, this.stationService.retrieveCatalogVersion().getCount());
+    Assert.assertEquals(3L, this.stationService.retrieveCatalogVersion().getMaxId());
+    Assert.assertEquals(6L, this.stationService.retrieveCatalogVersion().getVersionSum());
+    Assert.assertEquals(LocalDateTime.of(2018, 10, 1, 12, 0, 3),
+        this.stationService.retrieveCatalogVersion().getLastModified());
+  }
+
+  @Test
+  public void testReload_swapsSnapshot() throws Exception {
+    publish(station(4L, "KFOG-FM", "KFOG", "KFOG", false));
+    Assert.assertEquals(Arrays.asList("KFOG-FM"),
+        stationIds(this.stationService.retrieveAllStations()));
+    Assert.assertTrue(
+        this.stationService.retrieveStationByStationId("WHTZ-FM", Locale.US).hasErrors());
+
+    // A snapshot that can not be mapped leaves the current one in place.
+    Path temporaryFile = SNAPSHOT.resolveSibling("stations.snapshot.tmp");
+    Files.write(temporaryFile, new byte[] {1, 2, 3});
+    Files.move(temporaryFile, SNAPSHOT, StandardCopyOption.REPLACE_EXISTING);
+    this.stationService.reload();
+    Assert.assertEquals(1, this.stationService.retrieveAllStations().size());
+  }
+
+  @Test
+  public void testPublish() throws Exception {
+    Path published = Paths.get("target/replica/published.snapshot");
+    new ReplicaSnapshotPublisher(this.stationService, published.toString()).publish();
+    MappedStationSnapshot snapshot = MappedStationSnapshot.open(published);
+    Assert.assertEquals(this.stationService.retrieveCatalogVersion(),
+        snapshot.getCatalogVersion());
+    Assert.assertEquals("Z-100", snapshot.findByStationId("WHTZ-FM").getStationName());
+  }
+
+  @Test(expected = ReadOnlyReplicaException.class)
+  public void testCreateStation_rejected() {
+    this.stationService.createStation(station(4L, "KFOG-FM", "KFOG", "KFOG", false));
+  }
+
+  private MockMvc mockMvc() {
+    return MockMvcBuilders.standaloneSetup(this.stationController)
+        .setControllerAdvice(this.handler).build();
+  }
+
+  @Test
+  public void testDeleteStation_methodNotAllowed() throws Exception {
+    MockMvc mockMvc = mockMvc();
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.delete(
+        "/iheartmedia/station/WHTZ-FM")).andReturn();
+    mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+        .andExpect(MockMvcResultMatchers.status().isMethodNotAllowed())
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ALLOW, ""))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code",
+            Matchers.equalTo(ErrorCodes.METHOD_NOT_ALLOWED.getCode())));
+  }
+
+  @Test
+  public void testDeleteStations_methodNotAllowed() throws Exception {
+    MockMvc mockMvc = mockMvc();
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.delete("/iheartmedia/stations")
+        .contentType(MediaType.APPLICATION_JSON).content("{\"stationIds\": [\"WHTZ-FM\"]}"))
+        .andReturn();
+    mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+        .andExpect(MockMvcResultMatchers.status().isMethodNotAllowed())
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ALLOW, "GET,HEAD"));
+  }
+
+  @Test
+  public void testSearchStations_notImplemented() throws Exception {
+    mockMvc().perform(MockMvcRequestBuilders.get("/iheartmedia/stations/search").param("q", "Z"))
+        .andExpect(MockMvcResultMatchers.status().isNotImplemented())
+        .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.ALLOW))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code",
+            Matchers.equalTo(ErrorCodes.NOT_IMPLEMENTED.getCode())));
+  }
+}
@@ -0,0 +1,70 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.model.Station;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit test for {@link StationCache}.
+ */
+public class StationCacheTest {
+
+  private StationCache stationCache;
+
+  private Station station;
+
+  @Before
+  public void setUp() {
+    this.stationCache = new StationCache(100L, 300L, 30L, new SimpleMeterRegistry());
+    this.station = new Station();
+    this.station.setId(1L);
+    this.station.setVersion(0);
+    this.station.setStationId("WHTZ-FM");
+    this.station.setStationName("Z-100");
+    this.station.setCallSign("WHTZ");
+  }
+
+  @Test
+  public void testGetAllByStationId_deletedDuringLoad() {
+    // The station is read, and then deleted before the loaded state is cached.
+    Map<String, Station> stations = this.stationCache.getAllByStationId(
+        Collections.singleton("WHTZ-FM"), stationIds -> {
+          this.stationCache.onStationMutation(StationMutationEvent.deleted(this.station.copy()));
+          return Collections.singletonList(this.station);
+        });
+    Assert.assertEquals(1, stations.size());
+    Assert.assertNull(this.stationCache.peekByStationId("WHTZ-FM"));
+    Assert.assertTrue(this.stationCache.getAllByStationId(
+        Collections.singleton("WHTZ-FM"), stationIds -> Collections.emptyList()).isEmpty());
+  }
+
+  @Test
+  public void testGetAllByStationName_renamedDuringLoad() {
+    Station renamed = this.station.copy();
+    renamed.setStationName("Z-101");
+    renamed.setVersion(1);
+    this.stationCache.getAllByStationName(Collections.singleton("Z-100"), stationNames -> {
+      this.stationCache.onStationMutation(
+          StationMutationEvent.updated(this.station.copy(), renamed));
+      return Collections.singletonList(this.station);
+    });
+    Assert.assertNull(this.stationCache.getByStationName("Z-100", stationName -> null));
+    Assert.assertEquals(Integer.valueOf(1),
+        this.stationCache.getByStationName("Z-101", stationName -> null).getVersion());
+  }
+
+  @Test
+  public void testGetAllByStationId_cachesLoadedStations() {
+    this.stationCache.getAllByStationId(Collections.singleton("WHTZ-FM"),
+        stationIds -> Collections.singletonList(this.station));
+    Assert.assertEquals("Z-100", this.stationCache.peekByStationId("WHTZ-FM").getStationName());
+  }
+}
@@ -0,0 +1,156 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+
+package com.iheartmedia.service;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.dto.StationChange;
+import com.iheartmedia.dto.StationChangePage;
+import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.ErrorCodes;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.repository.IStationTombstoneRepository;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link StationChangeFeed}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes= {IHeartMedia.class}, properties = {
+    "iheartmedia.stations.feed.capacity=3",
+    "iheartmedia.stations.feed.poll-timeout-seconds=1"})
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class StationChangeFeedTest {
+
+  @Autowired
+  private StationChangeFeed changeFeed;
+
+  @Autowired
+  private IStationService stationService;
+
+  @Autowired
+  private IStationRepository stationRepository;
+
+  @Autowired
+  private IStationTombstoneRepository tombstoneRepository;
+
+  @After
+  public void tearDown() {
+    this.stationRepository.deleteAll();
+    this.tombstoneRepository.deleteAll();
+  }
+
+  private Station createStation(String stationId) {
+    Station station = new Station();
+    station.setStationId(stationId);
+    station.setStationName(stationId + " Radio");
+    station.setCallSign(stationId.substring(0, 4));
+    station.setHdEnabled(Boolean.TRUE);
+    this.stationService.createStation(station);
+    return station;
+  }
+
+  @Test
+  public void testRead() throws Exception {
+    createStation("WHTZ-FM");
+    UpdateStationMixin mixin = new UpdateStationMixin();
+    mixin.setStationName("Z-100");
+    this.stationService.updateStation("WHTZ-FM", mixin, null, Locale.getDefault());
+    this.stationService.deleteStationByStationId("WHTZ-FM", null, Locale.getDefault());
+
+    StationChangePage page = this.changeFeed.read(0L, null, Locale.getDefault());
+    Assert.assertFalse(page.hasErrors());
+    MatcherAssert.assertThat(page.getChanges(), Matchers.hasSize(3));
+    Assert.assertEquals(Long.valueOf(3L), page.getLastSequence());
+    StationChange created = page.getChanges().get(0);
+    Assert.assertEquals(1L, created.getSequence());
+    Assert.assertEquals(StationMutationEvent.Type.CREATED, created.getType());
+    Assert.assertEquals("WHTZ-FM", created.getStationId());
+    Assert.assertEquals(Integer.valueOf(0), created.getVersion());
+    StationChange updated = page.getChanges().get(1);
+    Assert.assertEquals(StationMutationEvent.Type.UPDATED, updated.getType());
+    Assert.assertEquals(Integer.valueOf(1), updated.getVersion());
+    Assert.assertEquals("Z-100", updated.getStation().getStationName());
+    StationChange deleted = page.getChanges().get(2);
+    Assert.assertEquals(StationMutationEvent.Type.DELETED, deleted.getType());
+    Assert.assertEquals("Z-100", deleted.getStation().getStationName());
+
+    StationChangePage nextPage = this.changeFeed.read(1L, 1, Locale.getDefault());
+    MatcherAssert.assertThat(nextPage.getChanges(), Matchers.contains(updated));
+    Assert.assertEquals(Long.valueOf(2L), nextPage.getLastSequence());
+
+    StationChangePage lastPage = this.changeFeed.read(null, null, Locale.getDefault());
+    MatcherAssert.assertThat(lastPage.getChanges(), Matchers.empty());
+    Assert.assertEquals(Long.valueOf(3L), lastPage.getLastSequence());
+  }
+
+  @Test
+  public void testRead_overwrittenSequence() throws Exception {
+    createStation("WHTZ-FM");
+    createStation("KISS-FM");
+    createStation("KQED-FM");
+    createStation("WNYC-FM");
+
+    StationChangePage expiredPage = this.changeFeed.read(0L, null, Locale.getDefault());
+    Assert.assertEquals(ErrorCodes.GONE.getCode(), expiredPage.getErrors().get(0).getCode());
+    MatcherAssert.assertThat(expiredPage.getChanges(), Matchers.empty());
+
+    StationChangePage page = this.changeFeed.read(1L, null, Locale.getDefault());
+    Assert.assertFalse(page.hasErrors());
+    MatcherAssert.assertThat(page.getChanges(), Matchers.hasSize(3));
+    Assert.assertEquals("KISS-FM", page.getChanges().get(0).getStationId());
+
+    // A sequence which has not been reached, e.g. one issued before a restart, has to be reset too.
+    StationChangePage futurePage = this.changeFeed.read(5L, null, Locale.getDefault());
+    Assert.assertEquals(ErrorCodes.GONE.getCode(), futurePage.getErrors().get(0).getCode());
+  }
+
+  @Test
+  public void testRead_invalidSequence() throws Exception {
+    StationChangePage page = this.changeFeed.read(-1L, null, Locale.getDefault());
+    Assert.assertEquals(ErrorCodes.BAD_REQUEST.getCode(), page.getErrors().get(0).getCode());
+  }
+
+  @Test
+  public void testPoll_completedByMutation() throws Exception {
+    StationChangePage head = this.changeFeed.poll(null, null, Locale.getDefault()).get();
+    MatcherAssert.assertThat(head.getChanges(), Matchers.empty());
+    Assert.assertEquals(Long.valueOf(0L), head.getLastSequence());
+
+    CompletableFuture<StationChangePage> poll =
+        this.changeFeed.poll(head.getLastSequence(), null, Locale.getDefault());
+    Assert.assertFalse(poll.isDone());
+
+    createStation("WHTZ-FM");
+    StationChangePage page = poll.get(5, TimeUnit.SECONDS);
+    MatcherAssert.assertThat(page.getChanges(), Matchers.hasSize(1));
+    Assert.assertEquals("WHTZ-FM", page.getChanges().get(0).getStationId());
+    Assert.assertEquals(Long.valueOf(1L), page.getLastSequence());
+  }
+
+  @Test
+  public void testPoll_timesOut() throws Exception {
+    createStation("WHTZ-FM");
+    CompletableFuture<StationChangePage> poll =
+        this.changeFeed.poll(1L, null, Locale.getDefault());
+    StationChangePage page = poll.get(5, TimeUnit.SECONDS);
+    Assert.assertFalse(page.hasErrors());
+    MatcherAssert.assertThat(page.getChanges(), Matchers.empty());
+    Assert.assertEquals(Long.valueOf(1L), page.getLastSequence());
+  }
+}
@@ -0,0 +1,64 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.service;
+
+import com.iheartmedia.model.Station;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit test for {@link StationSearchIndex}.
+ */
+public class StationSearchIndexTest {
+
+  private StationSearchIndex searchIndex;
+
+  @Before
+  public void setUp() {
+    this.searchIndex = new StationSearchIndex(null, null, 3, 6, new SimpleMeterRegistry());
+  }
+
+  private static Station station(int version, String stationName) {
+    Station station = new Station();
+    station.setId(1L);
+    station.setVersion(version);
+    station.setStationId("WHTZ-FM");
+    station.setStationName(stationName);
+    station.setCallSign("WHTZ");
+    station.setHdEnabled(true);
+    return station;
+  }
+
+  @Test
+  public void testOnStationMutation_outOfOrder() {
+    this.searchIndex.onStationMutation(StationMutationEvent.created(station(0, "Z-100")));
+    // The update to version 2 is delivered before the update to version 1.
+    this.searchIndex.onStationMutation(
+        StationMutationEvent.updated(station(1, "Power 105"), station(2, "Hot 97")));
+    this.searchIndex.onStationMutation(
+        StationMutationEvent.updated(station(0, "Z-100"), station(1, "Power 105")));
+    Assert.assertEquals(1, this.searchIndex.search("hot", null, 10).size());
+    Assert.assertTrue(this.searchIndex.search("power", null, 10).isEmpty());
+  }
+
+  @Test
+  public void testOnStationMutation_deletedBeforeUpdate() {
+    this.searchIndex.onStationMutation(StationMutationEvent.created(station(0, "Z-100")));
+    this.searchIndex.onStationMutation(StationMutationEvent.deleted(station(1, "Power 105")));
+    this.searchIndex.onStationMutation(
+        StationMutationEvent.updated(station(0, "Z-100"), station(1, "Power 105")));
+    Assert.assertTrue(this.searchIndex.search("whtz", null, 10).isEmpty());
+  }
+
+  @Test
+  public void testOnStationMutation_inOrder() {
+    this.searchIndex.onStationMutation(StationMutationEvent.created(station(0, "Z-100")));
+    this.searchIndex.onStationMutation(
+        StationMutationEvent.updated(station(0, "Z-100"), station(1, "Power 105")));
+    Assert.assertEquals(1, this.searchIndex.search("power", null, 10).size());
+    Assert.assertTrue(this.searchIndex.search("z-100", null, 10).isEmpty());
+  }
+}
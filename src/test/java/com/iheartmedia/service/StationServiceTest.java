@@ -6,11 +6,20 @@ import com.iheartmedia.IHeartMedia;
 import com.iheartmedia.dto.CreateStationMixin;
 import com.iheartmedia.dto.DeleteStationMixin;
 import com.iheartmedia.dto.GetStationMixin;
+import com.iheartmedia.dto.StationDeletion;
+import com.iheartmedia.dto.StationDeletionRequest;
+import com.iheartmedia.dto.StationDelta;
+import com.iheartmedia.dto.StationLookup;
+import com.iheartmedia.dto.StationLookupRequest;
 import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.StationPage;
 import com.iheartmedia.dto.UpdateStationMixin;
 import com.iheartmedia.model.ErrorCodes;
 import com.iheartmedia.model.Station;
 import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.repository.IStationTombstoneRepository;
+import com.iheartmedia.utils.EntityTags;
+import com.iheartmedia.utils.JpaQueryCounter;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -26,15 +35,24 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Unit test for {@link StationService}.
  */
 @RunWith(SpringJUnit4ClassRunner.class)
-@SpringBootTest(classes= {IHeartMedia.class})
+@SpringBootTest(classes= {IHeartMedia.class},
+    properties = "iheartmedia.stations.changes.settle-millis=0")
 @DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
 public class StationServiceTest {
 
@@ -44,9 +62,15 @@ public class StationServiceTest {
   @Autowired
   private IStationRepository stationRepository;
 
+  @Autowired
+  private IStationTombstoneRepository tombstoneRepository;
+
   @Autowired
   private MessageSource messageSource;
 
+  @Autowired
+  private StationSearchIndex searchIndex;
+
   private Station hdStation;
 
   private Station nonHdStation;
@@ -70,6 +94,7 @@ public class StationServiceTest {
   @After
   public void tearDown() {
     this.stationRepository.deleteAll();
+    this.tombstoneRepository.deleteAll();
   }
 
   @Test
@@ -79,6 +104,211 @@ public class StationServiceTest {
         this.hdStation));
   }
 
+  @Test
+  public void testStreamAllStations() throws Exception {
+    List<Station> streamedStations = new ArrayList<>();
+    this.stationService.streamAllStations(streamedStations::add);
+    MatcherAssert.assertThat(streamedStations,
+        Matchers.contains(this.hdStation, this.nonHdStation));
+  }
+
+  @Test
+  public void testRetrieveStationPage() throws Exception {
+    StationPage firstPage =
+        this.stationService.retrieveStationPage(null, 1, Locale.getDefault());
+    MatcherAssert.assertThat(firstPage.getStations(), Matchers.contains(this.hdStation));
+    Assert.assertNotNull(firstPage.getContinuationToken());
+
+    StationPage lastPage = this.stationService.retrieveStationPage(
+        firstPage.getContinuationToken(), 1, Locale.getDefault());
+    MatcherAssert.assertThat(lastPage.getStations(), Matchers.contains(this.nonHdStation));
+    Assert.assertNull(lastPage.getContinuationToken());
+  }
+
+  @Test
+  public void testRetrieveStationPage_invalidLimit() throws Exception {
+    StationPage page = this.stationService.retrieveStationPage(null, 0, Locale.getDefault());
+    StationPage expected = new StationPage();
+    expected.addError(ErrorCodes.BAD_REQUEST,
+        this.messageSource.getMessage("station.page.limit.invalid", new Object[] {0},
+            Locale.getDefault()));
+    MatcherAssert.assertThat(page, Matchers.equalTo(expected));
+  }
+
+  @Test
+  public void testRetrieveHdStationPage() throws Exception {
+    this.stationService.createStation(newStation("KQED-FM", "KQED", Boolean.TRUE));
+    this.stationService.createStation(newStation("WNYC-FM", "WNYC", Boolean.TRUE));
+    this.stationService.createStation(newStation("KEXP-FM", "KEXP", Boolean.FALSE));
+
+    StationPage firstPage =
+        this.stationService.retrieveHdStationPage(null, 1, Locale.getDefault());
+    MatcherAssert.assertThat(firstPage.getStations(),
+        Matchers.contains(Matchers.hasProperty("stationId", Matchers.equalTo("KQED-FM"))));
+    Assert.assertNotNull(firstPage.getContinuationToken());
+
+    StationPage lastPage = this.stationService.retrieveHdStationPage(
+        firstPage.getContinuationToken(), 1, Locale.getDefault());
+    MatcherAssert.assertThat(lastPage.getStations(),
+        Matchers.contains(Matchers.hasProperty("stationId", Matchers.equalTo("WNYC-FM"))));
+    Assert.assertNull(lastPage.getContinuationToken());
+
+    UpdateStationMixin enableHd = new UpdateStationMixin();
+    enableHd.setHdEnabled(Boolean.TRUE);
+    this.stationService.updateStation("KEXP-FM", enableHd, Locale.getDefault());
+    UpdateStationMixin disableHd = new UpdateStationMixin();
+    disableHd.setHdEnabled(Boolean.FALSE);
+    this.stationService.updateStation("KQED-FM", disableHd, Locale.getDefault());
+    this.stationService.deleteStationByStationId("WNYC-FM", Locale.getDefault());
+
+    StationPage page = this.stationService.retrieveHdStationPage(null, null, Locale.getDefault());
+    MatcherAssert.assertThat(page.getStations(),
+        Matchers.contains(Matchers.hasProperty("stationId", Matchers.equalTo("KEXP-FM"))));
+  }
+
+  @Test
+  public void testSearchStations() throws Exception {
+    // The stations were saved through the repository, so the index has to be reloaded.
+    this.searchIndex.rebuild();
+    this.stationService.createStation(newStation("KQED-FM", "KQED", Boolean.FALSE));
+    this.stationService.createStation(newStation("WNYC-FM", "WNYC", Boolean.TRUE));
+
+    StationPage firstPage = this.stationService.searchStations("k", null, 1, Locale.getDefault());
+    MatcherAssert.assertThat(firstPage.getStations(), Matchers.contains(this.nonHdStation));
+    Assert.assertNotNull(firstPage.getContinuationToken());
+    StationPage lastPage = this.stationService.searchStations(
+        "k", firstPage.getContinuationToken(), 1, Locale.getDefault());
+    MatcherAssert.assertThat(lastPage.getStations(),
+        Matchers.contains(Matchers.hasProperty("stationId", Matchers.equalTo("KQED-FM"))));
+    Assert.assertNull(lastPage.getContinuationToken());
+
+    MatcherAssert.assertThat(
+        this.stationService.searchStations("Radio", null, null, Locale.getDefault()).getStations(),
+        Matchers.contains(Matchers.hasProperty("stationId", Matchers.equalTo("KQED-FM")),
+            Matchers.hasProperty("stationId", Matchers.equalTo("WNYC-FM"))));
+    MatcherAssert.assertThat(
+        this.stationService.searchStations("Z 100", null, null, Locale.getDefault()).getStations(),
+        Matchers.contains(this.hdStation));
+    // Matches the call sign with a typo.
+    MatcherAssert.assertThat(
+        this.stationService.searchStations("wnic", null, null, Locale.getDefault()).getStations(),
+        Matchers.contains(Matchers.hasProperty("stationId", Matchers.equalTo("WNYC-FM"))));
+  }
+
+  @Test
+  public void testSearchStations_maintainedIncrementally() throws Exception {
+    this.stationService.createStation(newStation("KQED-FM", "KQED", Boolean.FALSE));
+    this.stationService.createStation(newStation("WNYC-FM", "WNYC", Boolean.TRUE));
+    UpdateStationMixin rename = new UpdateStationMixin();
+    rename.setStationName("Bay \u00c1rea News");
+    this.stationService.updateStation("KQED-FM", rename, Locale.getDefault());
+    this.stationService.deleteStationByStationId("WNYC-FM", Locale.getDefault());
+
+    Assert.assertTrue(this.stationService.searchStations("radio", null, null, Locale.getDefault())
+        .getStations().isEmpty());
+    MatcherAssert.assertThat(
+        this.stationService.searchStations("area", null, null, Locale.getDefault()).getStations(),
+        Matchers.contains(Matchers.hasProperty("stationId", Matchers.equalTo("KQED-FM"))));
+  }
+
+  @Test
+  public void testSearchStations_invalidQuery() throws Exception {
+    StationPage page = this.stationService.searchStations("--", null, null, Locale.getDefault());
+    StationPage expected = new StationPage();
+    expected.addError(ErrorCodes.BAD_REQUEST,
+        this.messageSource.getMessage("station.search.query.invalid", new Object[] {"--"},
+            Locale.getDefault()));
+    MatcherAssert.assertThat(page, Matchers.equalTo(expected));
+  }
+
+  @Test
+  public void testRetrieveHdStationPage_invalidToken() throws Exception {
+    StationPage page =
+        this.stationService.retrieveHdStationPage("not a token!", null, Locale.getDefault());
+    StationPage expected = new StationPage();
+    expected.addError(ErrorCodes.BAD_REQUEST,
+        this.messageSource.getMessage("continuation.token.invalid",
+            new Object[] {"not a token!"}, Locale.getDefault()));
+    MatcherAssert.assertThat(page, Matchers.equalTo(expected));
+  }
+
+  @Test
+  public void testRetrieveStationChanges() throws Exception {
+    StationDelta firstDelta = this.stationService.retrieveStationChanges(null, 1,
+        Locale.getDefault());
+    MatcherAssert.assertThat(firstDelta.getStations(), Matchers.contains(this.hdStation));
+    Assert.assertTrue(firstDelta.isHasMore());
+
+    StationDelta secondDelta = this.stationService.retrieveStationChanges(
+        firstDelta.getContinuationToken(), 1, Locale.getDefault());
+    MatcherAssert.assertThat(secondDelta.getStations(), Matchers.contains(this.nonHdStation));
+    MatcherAssert.assertThat(secondDelta.getDeletedStations(), Matchers.empty());
+    Assert.assertFalse(secondDelta.isHasMore());
+
+    UpdateStationMixin mixin = new UpdateStationMixin();
+    mixin.setStationName("Z-100 New York");
+    this.stationService.updateStation(
+        this.hdStation.getStationId(), mixin, null, Locale.getDefault());
+    this.stationService.deleteStationByStationId(
+        this.nonHdStation.getStationId(), null, Locale.getDefault());
+    Station station = new Station();
+    station.setStationId("KQED-FM");
+    station.setStationName("NPR News & Information");
+    station.setCallSign("KQED");
+    this.stationService.createStation(station);
+
+    StationDelta thirdDelta = this.stationService.retrieveStationChanges(
+        secondDelta.getContinuationToken(), null, Locale.getDefault());
+    Assert.assertFalse(thirdDelta.hasErrors());
+    Assert.assertEquals(2, thirdDelta.getStations().size());
+    Assert.assertEquals("Z-100 New York", thirdDelta.getStations().get(0).getStationName());
+    Assert.assertEquals("KQED-FM", thirdDelta.getStations().get(1).getStationId());
+    Assert.assertEquals(1, thirdDelta.getDeletedStations().size());
+    Assert.assertEquals(this.nonHdStation.getStationId(),
+        thirdDelta.getDeletedStations().get(0).getStationId());
+    Assert.assertFalse(thirdDelta.isHasMore());
+
+    StationDelta lastDelta = this.stationService.retrieveStationChanges(
+        thirdDelta.getContinuationToken(), null, Locale.getDefault());
+    MatcherAssert.assertThat(lastDelta.getStations(), Matchers.empty());
+    MatcherAssert.assertThat(lastDelta.getDeletedStations(), Matchers.empty());
+    Assert.assertEquals(thirdDelta.getContinuationToken(), lastDelta.getContinuationToken());
+  }
+
+  @Test
+  public void testRetrieveStationChanges_sinceTime() throws Exception {
+    Instant created = this.hdStation.getUpdatedTimestamp().toInstant(ZoneOffset.UTC);
+    StationDelta delta = this.stationService.retrieveStationChanges(
+        created.minusMillis(1L).toString(), null, Locale.getDefault());
+    MatcherAssert.assertThat(delta.getStations(),
+        Matchers.contains(this.hdStation, this.nonHdStation));
+
+    // Only the changes made after the given millisecond are returned.
+    Instant lastCreated = this.nonHdStation.getUpdatedTimestamp().toInstant(ZoneOffset.UTC);
+    StationDelta lastDelta = this.stationService.retrieveStationChanges(
+        String.valueOf(lastCreated.toEpochMilli()), null, Locale.getDefault());
+    Assert.assertFalse(lastDelta.hasErrors());
+    MatcherAssert.assertThat(lastDelta.getStations(), Matchers.empty());
+
+    StationDelta futureDelta = this.stationService.retrieveStationChanges(
+        String.valueOf(System.currentTimeMillis() + 60000L), null, Locale.getDefault());
+    Assert.assertFalse(futureDelta.hasErrors());
+    MatcherAssert.assertThat(futureDelta.getStations(), Matchers.empty());
+  }
+
+  @Test
+  public void testRetrieveStationChanges_invalidSince() throws Exception {
+    StationDelta invalidDelta =
+        this.stationService.retrieveStationChanges("not a token", null, Locale.getDefault());
+    Assert.assertEquals(ErrorCodes.BAD_REQUEST.getCode(),
+        invalidDelta.getErrors().get(0).getCode());
+
+    // Tombstones older than the retention period may have been purged.
+    StationDelta expiredDelta =
+        this.stationService.retrieveStationChanges("0", null, Locale.getDefault());
+    Assert.assertEquals(ErrorCodes.GONE.getCode(), expiredDelta.getErrors().get(0).getCode());
+  }
+
   @Test
   public void testRetriveByStationId() throws Exception {
     StationMixin fetchedHdStation =
@@ -113,6 +343,105 @@ public class StationServiceTest {
     MatcherAssert.assertThat(fetchedNonHdStation, Matchers.equalTo(nonHdMixin));
   }
 
+  @Test
+  public void testRetrieveByStationId_servedFromCache() throws Exception {
+    this.stationService.retrieveStationByStationId(this.hdStation.getStationId(),
+        Locale.getDefault());
+    // Bypasses the service, so the cached station is not invalidated.
+    Station station = this.stationRepository.findById(this.hdStation.getId()).get();
+    station.setCallSign("WXYZ");
+    this.stationRepository.save(station);
+
+    StationMixin fetchedStation =
+        this.stationService.retrieveStationByStationId(this.hdStation.getStationId(),
+            Locale.getDefault());
+    MatcherAssert.assertThat(fetchedStation.getCallSign(),
+        Matchers.equalTo(this.hdStation.getCallSign()));
+  }
+
+  @Test
+  public void testRetrieveByStationName_invalidatedOnRename() throws Exception {
+    String oldName = this.hdStation.getStationName();
+    this.stationService.retrieveStationByStationName(oldName, Locale.getDefault());
+    StationMixin mixin = new UpdateStationMixin();
+    mixin.setStationName(oldName + "Update");
+    this.stationService.updateStation(this.hdStation.getStationId(), mixin, Locale.getDefault());
+
+    StationMixin oldNameMixin =
+        this.stationService.retrieveStationByStationName(oldName, Locale.getDefault());
+    MatcherAssert.assertThat(oldNameMixin.getErrors().get(0).getCode(),
+        Matchers.equalTo(ErrorCodes.NOT_FOUND.getCode()));
+    StationMixin newNameMixin = this.stationService.retrieveStationByStationName(
+        mixin.getStationName(), Locale.getDefault());
+    MatcherAssert.assertThat(newNameMixin.getStationId(),
+        Matchers.equalTo(this.hdStation.getStationId()));
+  }
+
+  @Test
+  public void testRetrieveByStationId_notFoundInvalidatedOnCreate() throws Exception {
+    StationMixin notFound =
+        this.stationService.retrieveStationByStationId("KQED-FM", Locale.getDefault());
+    Assert.assertTrue(notFound.hasErrors());
+    Station newStation = new Station();
+    newStation.setCallSign("KQED");
+    newStation.setStationName("KQED Public Media for Northern CA");
+    newStation.setStationId("KQED-FM");
+    this.stationService.createStation(newStation);
+
+    StationMixin found =
+        this.stationService.retrieveStationByStationId("KQED-FM", Locale.getDefault());
+    Assert.assertFalse(found.hasErrors());
+    MatcherAssert.assertThat(found.getStationName(),
+        Matchers.equalTo(newStation.getStationName()));
+  }
+
+  @Test
+  public void testLookupStations() throws Exception {
+    StationLookupRequest lookupRequest = new StationLookupRequest();
+    lookupRequest.setStationIds(Arrays.asList(
+        this.hdStation.getStationId(), "KQED-FM", this.hdStation.getStationId()));
+    lookupRequest.setStationNames(Arrays.asList(this.nonHdStation.getStationName()));
+    JpaQueryCounter.start();
+    StationLookup lookup = this.stationService.lookupStations(lookupRequest, Locale.getDefault());
+    // A single query per kind of key, irrespective of the number of stations.
+    Assert.assertEquals(2, JpaQueryCounter.stop());
+
+    Assert.assertFalse(lookup.hasErrors());
+    MatcherAssert.assertThat(lookup.getStationIds().keySet(),
+        Matchers.contains(this.hdStation.getStationId(), "KQED-FM"));
+    StationMixin hdMixin = new GetStationMixin();
+    hdMixin.buildMixin(this.hdStation);
+    MatcherAssert.assertThat(lookup.getStationIds().get(this.hdStation.getStationId()),
+        Matchers.equalTo(hdMixin));
+    StationMixin notFound = new GetStationMixin();
+    notFound.addError(ErrorCodes.NOT_FOUND,
+        this.messageSource.getMessage("station.not.found.station.id", new Object[] {"KQED-FM"},
+            Locale.getDefault()));
+    MatcherAssert.assertThat(lookup.getStationIds().get("KQED-FM"), Matchers.equalTo(notFound));
+    MatcherAssert.assertThat(
+        lookup.getStationNames().get(this.nonHdStation.getStationName()).getStationId(),
+        Matchers.equalTo(this.nonHdStation.getStationId()));
+
+    // Both the stations and the station that was not found are now served from the cache.
+    JpaQueryCounter.start();
+    this.stationService.lookupStations(lookupRequest, Locale.getDefault());
+    Assert.assertEquals(0, JpaQueryCounter.stop());
+  }
+
+  @Test
+  public void testLookupStations_limitExceeded() throws Exception {
+    List<String> stationIds = new ArrayList<>();
+    for (int i = 0; i <= 100; i++) {
+      stationIds.add("W" + i + "-FM");
+    }
+    StationLookupRequest lookupRequest = new StationLookupRequest();
+    lookupRequest.setStationIds(stationIds);
+    StationLookup lookup = this.stationService.lookupStations(lookupRequest, Locale.getDefault());
+    MatcherAssert.assertThat(lookup.getErrors().get(0).getCode(),
+        Matchers.equalTo(ErrorCodes.BAD_REQUEST.getCode()));
+    Assert.assertTrue(lookup.getStationIds().isEmpty());
+  }
+
   @Test
   public void testCreateStation_success() throws Exception {
     Station newStation = new Station();
@@ -129,6 +458,21 @@ public class StationServiceTest {
         Matchers.equalTo(this.stationRepository.findById(savedStation.getId()).get()));
   }
 
+  @Test
+  public void testCreateStation_invalidStation() throws Exception {
+    Station newStation = new Station();
+    newStation.setCallSign("KQED-FM");
+    newStation.setStationName("KQED Public Media for Northern CA");
+    newStation.setStationId("KQED-FM");
+    try {
+      this.stationService.createStation(newStation);
+      Assert.fail("Expected the station to be refused");
+    } catch (IllegalArgumentException e) {
+      // The call sign is not 4 characters long.
+    }
+    Assert.assertNull(this.stationRepository.findByStationId("KQED-FM"));
+  }
+
   @Test
   public void testUpdateStation_success() throws Exception {
     Station fetchedStation = this.stationRepository.findById(this.hdStation.getId()).get();
@@ -163,6 +507,139 @@ public class StationServiceTest {
     MatcherAssert.assertThat(updatedMixin, Matchers.equalTo(expected));
   }
 
+  @Test
+  public void testUpdateStation_ifMatchNotSatisfied() throws Exception {
+    UpdateStationMixin mixin = new UpdateStationMixin();
+    mixin.setCallSign("WHTX");
+    String staleETag = EntityTags.of(this.hdStation.getId(), this.hdStation.getVersion() + 1);
+    StationMixin updatedMixin = this.stationService.updateStation(
+        this.hdStation.getStationId(), mixin, staleETag, Locale.getDefault());
+    StationMixin expected = new UpdateStationMixin();
+    expected.addError(ErrorCodes.PRECONDITION_FAILED,
+        this.messageSource.getMessage("station.precondition.failed",
+            new Object[] {this.hdStation.getStationId()}, Locale.getDefault()));
+    MatcherAssert.assertThat(updatedMixin, Matchers.equalTo(expected));
+    Assert.assertEquals("WHTZ",
+        this.stationRepository.findByStationId(this.hdStation.getStationId()).getCallSign());
+  }
+
+  @Test
+  public void testUpdateStation_ifMatchSatisfied() throws Exception {
+    UpdateStationMixin mixin = new UpdateStationMixin();
+    mixin.setCallSign("WHTX");
+    String eTag = EntityTags.of(this.hdStation.getId(), this.hdStation.getVersion());
+    StationMixin updatedMixin = this.stationService.updateStation(
+        this.hdStation.getStationId(), mixin, eTag, Locale.getDefault());
+    Assert.assertFalse(updatedMixin.hasErrors());
+    Assert.assertEquals(EntityTags.of(this.hdStation.getId(), this.hdStation.getVersion() + 1),
+        updatedMixin.getETag());
+  }
+
+  @Test
+  public void testUpdateStation_cachedStationUpdatedInSingleStatement() throws Exception {
+    this.stationService.retrieveStationByStationId(this.hdStation.getStationId(),
+        Locale.getDefault());
+    UpdateStationMixin mixin = new UpdateStationMixin();
+    mixin.setCallSign("WHTX");
+    JpaQueryCounter.start();
+    StationMixin updatedMixin = this.stationService.updateStation(
+        this.hdStation.getStationId(), mixin, Locale.getDefault());
+    Assert.assertEquals(1, JpaQueryCounter.stop());
+
+    Assert.assertFalse(updatedMixin.hasErrors());
+    Assert.assertEquals("WHTX", updatedMixin.getCallSign());
+    Assert.assertEquals(this.hdStation.getStationName(), updatedMixin.getStationName());
+    Assert.assertEquals(EntityTags.of(this.hdStation.getId(), this.hdStation.getVersion() + 1),
+        updatedMixin.getETag());
+    Station updatedStation = this.stationRepository.findById(this.hdStation.getId()).get();
+    Assert.assertEquals("WHTX", updatedStation.getCallSign());
+    Assert.assertEquals(this.hdStation.getVersion() + 1, updatedStation.getVersion().intValue());
+    // The cache is refreshed, so the next update is a single statement as well.
+    Assert.assertEquals("WHTX", this.stationService.retrieveStationByStationId(
+        this.hdStation.getStationId(), Locale.getDefault()).getCallSign());
+  }
+
+  @Test
+  public void testUpdateStation_staleCachedStationReadBeforeUpdate() throws Exception {
+    this.stationService.retrieveStationByStationId(this.hdStation.getStationId(),
+        Locale.getDefault());
+    // Bypasses the service, so the cached station is stale.
+    Station station = this.stationRepository.findById(this.hdStation.getId()).get();
+    station.setHdEnabled(Boolean.FALSE);
+    this.stationRepository.save(station);
+
+    UpdateStationMixin mixin = new UpdateStationMixin();
+    mixin.setCallSign("WHTX");
+    StationMixin updatedMixin = this.stationService.updateStation(
+        this.hdStation.getStationId(), mixin, Locale.getDefault());
+    Assert.assertFalse(updatedMixin.hasErrors());
+    Assert.assertEquals(Boolean.FALSE, updatedMixin.getHdEnabled());
+    Station updatedStation = this.stationRepository.findById(this.hdStation.getId()).get();
+    Assert.assertEquals("WHTX", updatedStation.getCallSign());
+    Assert.assertEquals(Boolean.FALSE, updatedStation.getHdEnabled());
+    Assert.assertEquals(this.hdStation.getVersion() + 2, updatedStation.getVersion().intValue());
+  }
+
+  @Test
+  public void testDeleteByStationId_ifMatchNotSatisfied() throws Exception {
+    String staleETag = EntityTags.of(this.hdStation.getId(), this.hdStation.getVersion() + 1);
+    StationMixin deletedMixin = this.stationService.deleteStationByStationId(
+        this.hdStation.getStationId(), staleETag, Locale.getDefault());
+    MatcherAssert.assertThat(deletedMixin.getErrors().get(0).getCode(),
+        Matchers.equalTo(ErrorCodes.PRECONDITION_FAILED.getCode()));
+    Assert.assertNotNull(this.stationRepository.findByStationId(this.hdStation.getStationId()));
+  }
+
+  /**
+   * Updates a single station from many threads at once, half of which update the call sign while
+   * the other half toggle HD. Every update must either succeed or fail its precondition, and no
+   * successful update may be lost.
+   */
+  @Test
+  public void testUpdateStation_concurrentUpdates() throws Exception {
+    int threads = 8;
+    int updatesPerThread = 25;
+    String stationId = this.hdStation.getStationId();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<List<StationMixin>>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      futures.add(executor.submit(() -> {
+        start.await();
+        List<StationMixin> results = new ArrayList<>();
+        for (int i = 0; i < updatesPerThread; i++) {
+          UpdateStationMixin mixin = new UpdateStationMixin();
+          if (thread % 2 == 0) {
+            mixin.setCallSign("WH" + thread + (i % 10));
+          } else {
+            mixin.setHdEnabled(i % 2 == 0);
+          }
+          results.add(this.stationService.updateStation(stationId, mixin, Locale.getDefault()));
+        }
+        return results;
+      }));
+    }
+    start.countDown();
+    int succeeded = 0;
+    for (Future<List<StationMixin>> future : futures) {
+      for (StationMixin result : future.get(60, TimeUnit.SECONDS)) {
+        if (result.hasErrors()) {
+          MatcherAssert.assertThat(result.getErrors().get(0).getCode(),
+              Matchers.equalTo(ErrorCodes.PRECONDITION_FAILED.getCode()));
+        } else {
+          succeeded++;
+        }
+      }
+    }
+    executor.shutdown();
+
+    Station station = this.stationRepository.findByStationId(stationId);
+    MatcherAssert.assertThat(succeeded, Matchers.greaterThan(0));
+    // Every successful update increments the version exactly once.
+    Assert.assertEquals(this.hdStation.getVersion() + succeeded, station.getVersion().intValue());
+  }
+
   @Test
   public void testDeleteByStationId() throws Exception {
     StationMixin deletedMixin =
@@ -176,9 +653,82 @@ public class StationServiceTest {
     MatcherAssert.assertThat(deletedMixin, Matchers.equalTo(expected));
   }
 
+  @Test
+  public void testDeleteByStationId_cached() throws Exception {
+    this.stationService.retrieveStationByStationId(
+        this.hdStation.getStationId(), Locale.getDefault());
+    JpaQueryCounter.start();
+    StationMixin deletedMixin = this.stationService.deleteStationByStationId(
+        this.hdStation.getStationId(), EntityTags.of(this.hdStation.getId(),
+            this.hdStation.getVersion()), Locale.getDefault());
+    // The cached station is deleted without being read, followed by the insert of its tombstone.
+    Assert.assertEquals(3, JpaQueryCounter.stop());
+    Assert.assertFalse(deletedMixin.hasErrors());
+    MatcherAssert.assertThat(deletedMixin.getCallSign(),
+        Matchers.equalTo(this.hdStation.getCallSign()));
+    Assert.assertNotNull(deletedMixin.getTimestamp());
+    Assert.assertNull(this.stationRepository.findByStationId(this.hdStation.getStationId()));
+    Assert.assertEquals(1, this.tombstoneRepository.count());
+  }
+
+  @Test
+  public void testDeleteByStationId_notFound() throws Exception {
+    StationMixin deletedMixin =
+        this.stationService.deleteStationByStationId("KQED-FM", Locale.getDefault());
+    MatcherAssert.assertThat(deletedMixin.getErrors().get(0).getCode(),
+        Matchers.equalTo(ErrorCodes.NOT_FOUND.getCode()));
+    Assert.assertEquals(0, this.tombstoneRepository.count());
+  }
+
+  @Test
+  public void testDeleteStations() throws Exception {
+    StationDeletionRequest deletionRequest = new StationDeletionRequest();
+    deletionRequest.setStationIds(Arrays.asList(this.hdStation.getStationId(), "KQED-FM",
+        this.nonHdStation.getStationId(), this.hdStation.getStationId()));
+    StationDeletion deletion =
+        this.stationService.deleteStations(deletionRequest, Locale.getDefault());
+
+    Assert.assertFalse(deletion.hasErrors());
+    MatcherAssert.assertThat(deletion.getStationIds().keySet(), Matchers.contains(
+        this.hdStation.getStationId(), "KQED-FM", this.nonHdStation.getStationId()));
+    StationMixin hdMixin = new DeleteStationMixin();
+    hdMixin.buildMixin(this.hdStation);
+    MatcherAssert.assertThat(deletion.getStationIds().get(this.hdStation.getStationId()),
+        Matchers.equalTo(hdMixin));
+    MatcherAssert.assertThat(
+        deletion.getStationIds().get("KQED-FM").getErrors().get(0).getCode(),
+        Matchers.equalTo(ErrorCodes.NOT_FOUND.getCode()));
+    Assert.assertEquals(0, this.stationRepository.count());
+    Assert.assertEquals(2, this.tombstoneRepository.count());
+  }
+
+  @Test
+  public void testDeleteStations_limitExceeded() throws Exception {
+    List<String> stationIds = new ArrayList<>();
+    for (int i = 0; i <= 1000; i++) {
+      stationIds.add("W" + i + "-FM");
+    }
+    StationDeletionRequest deletionRequest = new StationDeletionRequest();
+    deletionRequest.setStationIds(stationIds);
+    StationDeletion deletion =
+        this.stationService.deleteStations(deletionRequest, Locale.getDefault());
+    MatcherAssert.assertThat(deletion.getErrors().get(0).getCode(),
+        Matchers.equalTo(ErrorCodes.BAD_REQUEST.getCode()));
+    Assert.assertTrue(deletion.getStationIds().isEmpty());
+  }
+
   @Test
   public void testHdEnabledStations() throws Exception {
     List<Station> hdStations = this.stationService.retrieveHdEnabledStations();
     MatcherAssert.assertThat(hdStations, Matchers.equalTo(Arrays.asList(this.hdStation)));
   }
+
+  private static Station newStation(String stationId, String callSign, Boolean hdEnabled) {
+    Station station = new Station();
+    station.setStationId(stationId);
+    station.setStationName(callSign + " Radio");
+    station.setCallSign(callSign);
+    station.setHdEnabled(hdEnabled);
+    return station;
+  }
 }
@@ -0,0 +1,143 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit test for {@link AsyncStationExecutor}.
+ */
+public class AsyncStationExecutorTest {
+
+  private MeterRegistry meterRegistry;
+
+  private AsyncStationExecutor executor;
+
+  private CountDownLatch release;
+
+  @Before
+  public void setUp() throws Exception {
+    this.meterRegistry = new SimpleMeterRegistry();
+    // One thread, one queued call, and at most three calls in flight per endpoint.
+    AsyncStationProperties properties = new AsyncStationProperties();
+    properties.setPoolSize(1);
+    properties.setQueueCapacity(1);
+    properties.setMaxConcurrencyPerEndpoint(3);
+    properties.setRetryAfterSeconds(2L);
+    AsyncStationProperties.Endpoint endpoint = new AsyncStationProperties.Endpoint();
+    endpoint.setMaxConcurrency(1);
+    properties.getEndpoints().put("findByStationId", endpoint);
+    this.executor = new AsyncStationExecutor(properties, this.meterRegistry);
+    this.release = new CountDownLatch(1);
+  }
+
+  @After
+  public void tearDown() {
+    this.release.countDown();
+    this.executor.shutdown();
+  }
+
+  private String block() {
+    try {
+      this.release.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return Thread.currentThread().getName();
+  }
+
+  @Test
+  public void testSupply_runsOffTheCallingThread() throws Exception {
+    this.release.countDown();
+    String threadName = this.executor.supply("retrieveStationPage", this::block)
+        .get(10, TimeUnit.SECONDS);
+    Assert.assertTrue(threadName.startsWith("station-async-"));
+  }
+
+  @Test
+  public void testSupply_endpointLimitExceeded() throws Exception {
+    CompletableFuture<String> inFlight = this.executor.supply("findByStationId", this::block);
+    try {
+      this.executor.supply("findByStationId", this::block);
+      Assert.fail("Expected the call to be rejected");
+    } catch (ServiceSaturatedException e) {
+      Assert.assertEquals(2L, e.getRetryAfterSeconds());
+    }
+    // The other endpoints are not limited by the endpoint that is saturated.
+    CompletableFuture<String> queued = this.executor.supply("retrieveStationPage", this::block);
+    this.release.countDown();
+    inFlight.get(10, TimeUnit.SECONDS);
+    queued.get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(1.0,
+        this.meterRegistry.counter("station.async.rejections", "endpoint", "findByStationId")
+            .count(), 0.0);
+  }
+
+  @Test
+  public void testAdmit_endpointLimitExceeded() throws Exception {
+    try (AsyncStationExecutor.Permit permit = this.executor.admit("findByStationId")) {
+      this.executor.supply("findByStationId", this::block);
+      Assert.fail("Expected the call to be rejected");
+    } catch (ServiceSaturatedException e) {
+      Assert.assertEquals(2L, e.getRetryAfterSeconds());
+    }
+    // The permit was released once closed.
+    this.release.countDown();
+    Assert.assertNotNull(
+        this.executor.supply("findByStationId", this::block).get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testSupply_queueFull() throws Exception {
+    CompletableFuture<String> running = this.executor.supply("retrieveStationPage", this::block);
+    CompletableFuture<String> queued = this.executor.supply("retrieveStationPage", this::block);
+    try {
+      this.executor.supply("retrieveStationPage", this::block);
+      Assert.fail("Expected the call to be rejected");
+    } catch (ServiceSaturatedException e) {
+      Assert.assertEquals(2L, e.getRetryAfterSeconds());
+    }
+    this.release.countDown();
+    running.get(10, TimeUnit.SECONDS);
+    queued.get(10, TimeUnit.SECONDS);
+    // The permit of the rejected call was released, so the endpoint accepts calls again.
+    Assert.assertNotNull(
+        this.executor.supply("retrieveStationPage", this::block).get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testSupply_failurePropagated() throws Exception {
+    CompletableFuture<String> future = this.executor.supply("createStation", () -> {
+      throw new IllegalStateException("Failed");
+    });
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      Assert.fail("Expected the call to fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testSupply_errorPropagated() throws Exception {
+    CompletableFuture<String> future = this.executor.supply("findByStationId", () -> {
+      throw new StackOverflowError();
+    });
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      Assert.fail("Expected the call to fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof StackOverflowError);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Unit test for {@link CachingMessageSource}.
+ */
+public class CachingMessageSourceTest {
+
+  private CachingMessageSource messageSource;
+
+  @Before
+  public void setUp() throws Exception {
+    this.messageSource = new CachingMessageSource();
+    this.messageSource.setBasenames("classpath:messages", "classpath:ValidationMessages");
+    this.messageSource.setUseCodeAsDefaultMessage(true);
+    this.messageSource.setCacheSeconds(-1);
+    this.messageSource.setDefaultEncoding("UTF-8");
+  }
+
+  @Test
+  public void testGetMessage_templateResolvedOnce() throws Exception {
+    Assert.assertEquals("Station was not found for station id: KQED-FM.",
+        this.messageSource.getMessage("station.not.found.station.id",
+            new Object[] {"KQED-FM"}, Locale.US));
+    Assert.assertEquals("Station was not found for station id: WHTZ-FM.",
+        this.messageSource.getMessage("station.not.found.station.id",
+            new Object[] {"WHTZ-FM"}, Locale.US));
+    Assert.assertEquals(1, this.messageSource.getCachedTemplateCount());
+  }
+
+  @Test
+  public void testGetMessage_withoutArguments() throws Exception {
+    Assert.assertEquals("Station service is busy. Please try again later.",
+        this.messageSource.getMessage("service.saturated", null, Locale.US));
+  }
+
+  @Test
+  public void testGetMessage_unknownCode() throws Exception {
+    Assert.assertEquals("unknown.code",
+        this.messageSource.getMessage("unknown.code", null, Locale.US));
+  }
+
+  @Test
+  public void testGetMessage_templatesBounded() throws Exception {
+    CachingMessageSource boundedMessageSource = new CachingMessageSource(2L);
+    boundedMessageSource.setBasenames("classpath:messages");
+    for (String language : Locale.getISOLanguages()) {
+      Assert.assertEquals("Station service is busy. Please try again later.",
+          boundedMessageSource.getMessage("service.saturated", null, new Locale(language)));
+    }
+    Assert.assertTrue(boundedMessageSource.getCachedTemplateCount() <= 2);
+  }
+
+  @Test
+  public void testClearCache() throws Exception {
+    this.messageSource.getMessage("service.saturated", null, Locale.US);
+    this.messageSource.clearCache();
+    Assert.assertEquals(0, this.messageSource.getCachedTemplateCount());
+    Assert.assertEquals("Station service is busy. Please try again later.",
+        this.messageSource.getMessage("service.saturated", null, Locale.US));
+  }
+}
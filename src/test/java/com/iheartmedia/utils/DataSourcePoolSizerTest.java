@@ -0,0 +1,65 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.service.IStationService;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Unit test for {@link DataSourcePoolSizer}, run against the production profile.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes= {IHeartMedia.class}, properties = {
+    "spring.datasource.url=jdbc:h2:mem:prod;DB_CLOSE_ON_EXIT=FALSE",
+    "iheartmedia.async.pool-size=12"})
+@ActiveProfiles("production")
+public class DataSourcePoolSizerTest {
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private IStationService stationService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  public void testPoolSizedToExecutor() throws Exception {
+    HikariDataSource hikariDataSource = (HikariDataSource) this.dataSource;
+    // 12 threads, 8 streams of all the stations, 2 imports and 2 connections of headroom.
+    Assert.assertEquals(24, hikariDataSource.getMaximumPoolSize());
+    Assert.assertEquals(24, hikariDataSource.getMinimumIdle());
+    Assert.assertFalse(hikariDataSource.isAutoCommit());
+    Assert.assertNotNull(this.meterRegistry.find("hikaricp.connections.max")
+        .tags("pool", "station-pool").gauge());
+  }
+
+  @Test
+  public void testSchemaValidated() throws Exception {
+    Station station = new Station();
+    station.setStationId("KQED-FM");
+    station.setStationName("NPR News & Information");
+    station.setCallSign("KQED");
+    Assert.assertFalse(this.stationService.createStation(station).hasErrors());
+    StationMixin deleted =
+        this.stationService.deleteStationByStationId("KQED-FM", null, Locale.getDefault());
+    Assert.assertFalse(deleted.hasErrors());
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.repository.IStationRepository;
+
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Unit test for {@link OutcomeMetricsAdvice} and {@link JpaQueryCountFilter}, as scraped from the
+ * Prometheus endpoint.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes= {IHeartMedia.class})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class OutcomeMetricsAdviceTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private IStationRepository stationRepository;
+
+  @Before
+  public void setUp() throws Exception {
+    Station station = new Station();
+    station.setStationId("WHTZ-FM");
+    station.setStationName("Z-100");
+    station.setCallSign("WHTZ");
+    this.stationRepository.save(station);
+  }
+
+  @After
+  public void tearDown() {
+    this.stationRepository.deleteAll();
+  }
+
+  @Test
+  public void testPrometheusEndpoint_countsOutcomes() throws Exception {
+    MvcResult found = this.mockMvc.perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/WHTZ-FM")).andReturn();
+    this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(found))
+        .andExpect(MockMvcResultMatchers.status().isOk());
+    // Served from the response cache, without a body being returned by the controller.
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/iheartmedia/station/id/WHTZ-FM"))
+        .andExpect(MockMvcResultMatchers.request().asyncNotStarted())
+        .andExpect(MockMvcResultMatchers.status().isOk());
+    MvcResult notFound = this.mockMvc.perform(
+        MockMvcRequestBuilders.get("/iheartmedia/station/id/WXYZ-FM")).andReturn();
+    this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(notFound))
+        .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.content().string(Matchers.allOf(
+            Matchers.containsString("station_requests_total{method=\"GET\",outcome=\"OK\","
+                + "uri=\"/iheartmedia/station/id/{stationId}\",} 2.0"),
+            Matchers.containsString("station_requests_total{method=\"GET\",outcome=\"NOT_FOUND\","
+                + "uri=\"/iheartmedia/station/id/{stationId}\",} 1.0"),
+            Matchers.containsString("http_server_requests_seconds{exception=\"None\",method=\"GET\","
+                + "status=\"200\",uri=\"/iheartmedia/station/id/{stationId}\",quantile=\"0.99\",}"),
+            Matchers.containsString("station_jpa_queries_statements_count{method=\"GET\","
+                + "uri=\"/iheartmedia/station/id/{stationId}\",}"))));
+  }
+}
@@ -0,0 +1,159 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.repository.IStationTombstoneRepository;
+import com.iheartmedia.service.IStationService;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+
+import javax.persistence.EntityManagerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Unit test for {@link SecondLevelCacheConfig}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes= {IHeartMedia.class}, properties = {
+    "iheartmedia.cache.second-level.enabled=true",
+    "iheartmedia.cache.second-level.heap-entries=100",
+    "iheartmedia.cache.second-level.off-heap-megabytes=1"})
+public class SecondLevelCacheConfigTest {
+
+  @Autowired
+  private IStationService stationService;
+
+  @Autowired
+  private IStationRepository stationRepository;
+
+  @Autowired
+  private IStationTombstoneRepository tombstoneRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private Statistics statistics;
+
+  @Before
+  public void setUp() throws Exception {
+    Station station = new Station();
+    station.setHdEnabled(Boolean.TRUE);
+    station.setStationId("WHTZ-FM");
+    station.setStationName("Z-100");
+    station.setCallSign("WHTZ");
+    this.stationRepository.save(station);
+    this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.statistics.clear();
+  }
+
+  @After
+  public void tearDown() {
+    this.stationRepository.deleteAll();
+    this.tombstoneRepository.deleteAll();
+  }
+
+  @Test
+  public void testFindByStationId_servedFromNaturalIdCache() throws Exception {
+    // The station is cached as it is inserted.
+    Assert.assertEquals("WHTZ", this.stationRepository.findByStationId("WHTZ-FM").getCallSign());
+    Assert.assertEquals("WHTZ", this.stationRepository.findByStationId("WHTZ-FM").getCallSign());
+    Assert.assertEquals(0, this.statistics.getPrepareStatementCount());
+    Assert.assertEquals(2, this.statistics.getNaturalIdCacheHitCount());
+    Assert.assertEquals(2.0, this.meterRegistry.get("hibernate.cache.natural.id.requests")
+        .tags("result", "hit").functionCounter().count(), 0.0);
+
+    Assert.assertNull(this.stationRepository.findByStationId("KISS-FM"));
+    Assert.assertEquals(1, this.statistics.getNaturalIdCacheMissCount());
+  }
+
+  @Test
+  public void testFindByStationId_coherentAfterUpdate() throws Exception {
+    Assert.assertEquals("WHTZ", this.stationRepository.findByStationId("WHTZ-FM").getCallSign());
+    StationMixin changes = new UpdateStationMixin();
+    changes.setCallSign("WHTA");
+    Assert.assertFalse(
+        this.stationService.updateStation("WHTZ-FM", changes, Locale.getDefault()).hasErrors());
+    Assert.assertEquals("WHTA", this.stationRepository.findByStationId("WHTZ-FM").getCallSign());
+
+    // Once cached by the service, the station is updated in a single statement.
+    this.stationService.retrieveStationByStationId("WHTZ-FM", Locale.getDefault());
+    changes.setCallSign("WHTB");
+    Assert.assertFalse(
+        this.stationService.updateStation("WHTZ-FM", changes, Locale.getDefault()).hasErrors());
+    Assert.assertEquals("WHTB", this.stationRepository.findByStationId("WHTZ-FM").getCallSign());
+  }
+
+  @Test
+  public void testUpdateStation_onlyEvictsUpdatedStation() throws Exception {
+    Station other = new Station();
+    other.setStationId("KISS-FM");
+    other.setStationName("Kiss FM");
+    other.setCallSign("KISS");
+    this.stationRepository.save(other);
+    this.stationService.retrieveStationByStationId("WHTZ-FM", Locale.getDefault());
+    StationMixin changes = new UpdateStationMixin();
+    changes.setCallSign("WHTA");
+    Assert.assertFalse(
+        this.stationService.updateStation("WHTZ-FM", changes, Locale.getDefault()).hasErrors());
+    this.stationService.deleteStationByStationId("WHTZ-FM", null, Locale.getDefault());
+
+    // The cached station is updated and deleted without evicting the other stations.
+    this.statistics.clear();
+    Assert.assertEquals("KISS", this.stationRepository.findByStationId("KISS-FM").getCallSign());
+    Assert.assertEquals(0, this.statistics.getPrepareStatementCount());
+    Assert.assertNull(this.stationRepository.findByStationId("WHTZ-FM"));
+  }
+
+  @Test
+  public void testUpdateStation_returnsStoredTimestamp() throws Exception {
+    this.stationService.retrieveStationByStationId("WHTZ-FM", Locale.getDefault());
+    StationMixin changes = new UpdateStationMixin();
+    changes.setCallSign("WHTA");
+    StationMixin updated = this.stationService.updateStation("WHTZ-FM", changes,
+        Locale.getDefault());
+    Assert.assertFalse(updated.hasErrors());
+    Timestamp stored = this.jdbcTemplate.queryForObject(
+        "SELECT user_modified_timestamp FROM user_station WHERE station_id = ?", Timestamp.class,
+        "WHTZ-FM");
+    Assert.assertEquals(stored.toLocalDateTime(), updated.getTimestamp());
+  }
+
+  @Test
+  public void testFindHdEnabledStations_servedFromQueryCache() throws Exception {
+    Assert.assertEquals(1, this.stationService.retrieveHdEnabledStations().size());
+    Assert.assertEquals(1, this.stationService.retrieveHdEnabledStations().size());
+    Assert.assertEquals(1, this.statistics.getQueryCacheHitCount());
+
+    StationMixin changes = new UpdateStationMixin();
+    changes.setHdEnabled(Boolean.FALSE);
+    Assert.assertFalse(
+        this.stationService.updateStation("WHTZ-FM", changes, Locale.getDefault()).hasErrors());
+    List<Station> hdStations = this.stationService.retrieveHdEnabledStations();
+    Assert.assertTrue(hdStations.isEmpty());
+  }
+}
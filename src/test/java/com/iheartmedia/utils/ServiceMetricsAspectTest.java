@@ -0,0 +1,61 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.service.IStationService;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Locale;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Unit test for {@link ServiceMetricsAspect}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes= {IHeartMedia.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ServiceMetricsAspectTest {
+
+  @Autowired
+  private IStationService stationService;
+
+  @Autowired
+  private IStationRepository stationRepository;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @After
+  public void tearDown() {
+    this.stationRepository.deleteAll();
+  }
+
+  @Test
+  public void testServiceInvocation_timedByOutcome() throws Exception {
+    this.stationService.retrieveStationByStationId("WXYZ-FM", Locale.getDefault());
+    this.stationService.retrieveHdEnabledStations();
+
+    Timer notFound = this.meterRegistry.find("station.service")
+        .tags("method", "retrieveStationByStationId", "outcome", "NOT_FOUND").timer();
+    MatcherAssert.assertThat(notFound, Matchers.notNullValue());
+    MatcherAssert.assertThat(notFound.count(), Matchers.is(1L));
+
+    Timer ok = this.meterRegistry.find("station.service")
+        .tags("method", "retrieveHdEnabledStations", "outcome", "OK", "exception", "none")
+        .timer();
+    MatcherAssert.assertThat(ok, Matchers.notNullValue());
+    MatcherAssert.assertThat(ok.count(), Matchers.is(1L));
+  }
+}
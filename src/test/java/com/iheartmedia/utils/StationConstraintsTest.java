@@ -0,0 +1,68 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.dto.UpdateStationMixin;
+import com.iheartmedia.model.Station;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+/**
+ * Unit test for {@link StationConstraints}.
+ */
+public class StationConstraintsTest {
+
+  private LocalValidatorFactoryBean validator;
+
+  @Before
+  public void setUp() throws Exception {
+    this.validator = new LocalValidatorFactoryBean();
+    this.validator.afterPropertiesSet();
+  }
+
+  @After
+  public void tearDown() {
+    this.validator.close();
+  }
+
+  private static Station station(String stationId, String stationName, String callSign) {
+    Station station = new Station();
+    station.setStationId(stationId);
+    station.setStationName(stationName);
+    station.setCallSign(callSign);
+    return station;
+  }
+
+  @Test
+  public void testIsValid_agreesWithBeanValidation() throws Exception {
+    String[] stationIds = {null, "", "W", "K", "WHTZ-FM", "KISS-FM", "K-", "W1", "Wz", "w1",
+        "AXYZ-FM", "W_FM", "W FM", "WHTZ\nFM", "W\n", "WHTZ ", "KQED FM", "W-\t"};
+    String[] stationNames = {null, "", "Z-100"};
+    String[] callSigns = {null, "", "WHT", "WHTZ", "WHTZ1", "KQ D"};
+    for (String stationId : stationIds) {
+      for (String stationName : stationNames) {
+        for (String callSign : callSigns) {
+          Station station = station(stationId, stationName, callSign);
+          Assert.assertEquals(String.valueOf(station),
+              this.validator.validate(station).isEmpty(), StationConstraints.isValid(station));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIsValid_mixin() throws Exception {
+    StationMixin mixin = new UpdateStationMixin();
+    Assert.assertTrue(StationConstraints.isValid(mixin));
+    mixin.setCallSign("WHTZ");
+    Assert.assertTrue(StationConstraints.isValid(mixin));
+    mixin.setCallSign("");
+    Assert.assertFalse(StationConstraints.isValid(mixin));
+    mixin.setCallSign("WHTZ1");
+    Assert.assertFalse(StationConstraints.isValid(mixin));
+  }
+}
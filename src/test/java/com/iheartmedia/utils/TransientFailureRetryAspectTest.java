@@ -0,0 +1,116 @@
+// Copyright 2018 Kartik Krishnanand. All Rights Reserved.
+package com.iheartmedia.utils;
+
+import com.iheartmedia.IHeartMedia;
+import com.iheartmedia.dto.StationMixin;
+import com.iheartmedia.model.Station;
+import com.iheartmedia.repository.IStationRepository;
+import com.iheartmedia.service.IStationService;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Unit test for {@link TransientFailureRetryAspect}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes= {IHeartMedia.class})
+@TestPropertySource(properties = {
+    "iheartmedia.retry.initial-backoff-millis=1",
+    "iheartmedia.retry.max-backoff-millis=2",
+    "iheartmedia.circuit-breaker.failure-threshold=2"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class TransientFailureRetryAspectTest {
+
+  @Autowired
+  private IStationService stationService;
+
+  @MockBean
+  private IStationRepository stationRepository;
+
+  @Autowired
+  private DataSourceCircuitBreaker circuitBreaker;
+
+  private Station station;
+
+  @Before
+  public void setUp() throws Exception {
+    this.station = new Station();
+    this.station.setStationId("KQED-FM");
+    this.station.setStationName("KQED");
+    this.station.setCallSign("KQED");
+  }
+
+  @Test(expected = DataIntegrityViolationException.class)
+  public void testConstraintViolation_notRetried() throws Exception {
+    Mockito.when(this.stationRepository.save(ArgumentMatchers.any(Station.class)))
+        .thenThrow(new DataIntegrityViolationException("Duplicate station id"));
+    try {
+      this.stationService.createStation(this.station);
+    } finally {
+      Mockito.verify(this.stationRepository, Mockito.times(1))
+          .save(ArgumentMatchers.any(Station.class));
+    }
+  }
+
+  @Test
+  public void testLockFailure_retried() throws Exception {
+    Mockito.when(this.stationRepository.save(ArgumentMatchers.any(Station.class)))
+        .thenThrow(new CannotAcquireLockException("Lock timeout"))
+        .thenReturn(this.station);
+    StationMixin mixin = this.stationService.createStation(this.station);
+    MatcherAssert.assertThat(mixin.getStationId(), Matchers.equalTo(this.station.getStationId()));
+    Mockito.verify(this.stationRepository, Mockito.times(2))
+        .save(ArgumentMatchers.any(Station.class));
+  }
+
+  @Test(expected = CannotAcquireLockException.class)
+  public void testLockFailure_retriesExhausted() throws Exception {
+    Mockito.when(this.stationRepository.save(ArgumentMatchers.any(Station.class)))
+        .thenThrow(new CannotAcquireLockException("Lock timeout"));
+    try {
+      this.stationService.createStation(this.station);
+    } finally {
+      Mockito.verify(this.stationRepository, Mockito.times(3))
+          .save(ArgumentMatchers.any(Station.class));
+    }
+  }
+
+  @Test
+  public void testConnectionFailure_opensCircuit() throws Exception {
+    Mockito.when(this.stationRepository.save(ArgumentMatchers.any(Station.class)))
+        .thenThrow(new CannotGetJdbcConnectionException("Connection refused"));
+    try {
+      this.stationService.createStation(this.station);
+    } catch (DataSourceUnavailableException e) {
+      // The circuit opens after the second of the three attempts.
+    }
+    MatcherAssert.assertThat(this.circuitBreaker.getState(),
+        Matchers.equalTo(DataSourceCircuitBreaker.State.OPEN));
+    Mockito.verify(this.stationRepository, Mockito.times(2))
+        .save(ArgumentMatchers.any(Station.class));
+    try {
+      this.stationService.createStation(this.station);
+      throw new AssertionError("Expected the circuit breaker to reject the invocation.");
+    } catch (DataSourceUnavailableException e) {
+      MatcherAssert.assertThat(e.getRetryAfterSeconds(), Matchers.greaterThan(0L));
+    }
+    Mockito.verify(this.stationRepository, Mockito.times(2))
+        .save(ArgumentMatchers.any(Station.class));
+  }
+}